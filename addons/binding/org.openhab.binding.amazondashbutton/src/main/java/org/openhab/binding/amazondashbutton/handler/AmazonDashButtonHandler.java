@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
  */
 public class AmazonDashButtonHandler extends BaseThingHandler implements PcapNetworkInterfaceListener {
     private PacketCapturingService packetCapturingService;
+    private PacketCapturingHandler packetCapturingHandler;
 
     private long lastCommandHandled = 0;
 
@@ -66,8 +67,8 @@ public class AmazonDashButtonHandler extends BaseThingHandler implements PcapNet
                     return;
                 }
 
-                packetCapturingService = new PacketCapturingService(pcapNetworkInterface);
-                boolean capturingStarted = packetCapturingService.startCapturing(new PacketCapturingHandler() {
+                packetCapturingService = PacketCapturingService.getInstance(pcapNetworkInterface);
+                packetCapturingHandler = new PacketCapturingHandler() {
 
                     @Override
                     public void packetCaptured(MacAddress macAddress) {
@@ -78,7 +79,8 @@ public class AmazonDashButtonHandler extends BaseThingHandler implements PcapNet
                             lastCommandHandled = now;
                         }
                     }
-                }, macAddress);
+                };
+                boolean capturingStarted = packetCapturingService.startCapturing(packetCapturingHandler, macAddress);
                 if (capturingStarted) {
                     updateStatus(ThingStatus.ONLINE);
                 } else {
@@ -94,8 +96,9 @@ public class AmazonDashButtonHandler extends BaseThingHandler implements PcapNet
     public void dispose() {
         super.dispose();
         if (packetCapturingService != null) {
-            packetCapturingService.stopCapturing();
+            packetCapturingService.stopCapturing(packetCapturingHandler);
             packetCapturingService = null;
+            packetCapturingHandler = null;
         }
         PcapNetworkInterfaceService.instance().unregisterListener(this);
     }
@@ -8,6 +8,14 @@
  */
 package org.openhab.binding.amazondashbutton.internal.capturing;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -15,21 +23,22 @@ import java.util.concurrent.Executors;
 import org.openhab.binding.amazondashbutton.internal.pcap.PcapNetworkInterfaceWrapper;
 import org.pcap4j.core.BpfProgram.BpfCompileMode;
 import org.pcap4j.core.NotOpenException;
-import org.pcap4j.core.PacketListener;
 import org.pcap4j.core.PcapHandle;
+import org.pcap4j.core.PcapNativeException;
 import org.pcap4j.core.PcapNetworkInterface.PromiscuousMode;
-import org.pcap4j.packet.ArpPacket;
-import org.pcap4j.packet.EthernetPacket;
-import org.pcap4j.packet.Packet;
-import org.pcap4j.packet.UdpPacket;
-import org.pcap4j.packet.namednumber.ArpOperation;
-import org.pcap4j.packet.namednumber.UdpPort;
+import org.pcap4j.core.RawPacketListener;
 import org.pcap4j.util.MacAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The {@link PacketCapturingService} is responsible for capturing packets.
+ * The {@link PacketCapturingService} is responsible for capturing packets. There is one instance per network
+ * interface, which can be obtained by calling {@link #getInstance(PcapNetworkInterfaceWrapper)}.
+ *
+ * All {@link PacketCapturingHandler}s of a network interface share a single {@link PcapHandle}. Its BPF filter only
+ * accepts ARP requests and BOOTP requests sent by the registered MAC addresses and is rebuilt every time a handler is
+ * added or removed. Captured packets are not dissected, only the source MAC address is read from the Ethernet header
+ * in order to find the handlers to be called.
  *
  * @author Oliver Libutzki - Initial contribution
  *
@@ -41,14 +50,70 @@ public class PacketCapturingService {
     private static final int READ_TIMEOUT = 10; // [ms]
     private static final int SNAPLEN = 65536; // [bytes]
 
+    /** ARP requests (operation 1) and BOOTP requests */
+    private static final String REQUEST_FILTER = "((arp and arp[6:2] = 1) or udp dst port bootps)";
+
+    /** offset of the source MAC address in the Ethernet header */
+    private static final int ETHERNET_SOURCE_OFFSET = 6;
+    private static final int ETHERNET_HEADER_LENGTH = 14;
+
+    private static final Map<PcapNetworkInterfaceWrapper, PacketCapturingService> instances = new HashMap<>();
+
     private final PcapNetworkInterfaceWrapper pcapNetworkInterface;
 
+    /** The registered handlers with their MAC address, which is null for handlers of all MAC addresses */
+    private final Map<PacketCapturingHandler, MacAddress> registrations = new HashMap<>();
+
+    private volatile Map<Long, List<PacketCapturingHandler>> handlersByMacAddress = Collections.emptyMap();
+    private volatile List<PacketCapturingHandler> handlersForAllMacAddresses = Collections.emptyList();
+
     private PcapHandle pcapHandle;
+    private boolean filterChanged;
+
+    private final RawPacketListener packetListener = new RawPacketListener() {
 
-    public PacketCapturingService(PcapNetworkInterfaceWrapper pcapNetworkInterface) {
+        @Override
+        public void gotPacket(byte[] packet) {
+            if (packet.length < ETHERNET_HEADER_LENGTH) {
+                return;
+            }
+            final List<PacketCapturingHandler> handlers = handlersByMacAddress
+                    .get(toLong(packet, ETHERNET_SOURCE_OFFSET));
+            final List<PacketCapturingHandler> handlersForAll = handlersForAllMacAddresses;
+            if (handlers == null && handlersForAll.isEmpty()) {
+                return;
+            }
+
+            final MacAddress sourceMacAddress = MacAddress.getByAddress(Arrays.copyOfRange(packet,
+                    ETHERNET_SOURCE_OFFSET, ETHERNET_SOURCE_OFFSET + MacAddress.SIZE_IN_BYTES));
+            if (handlers != null) {
+                packetCaptured(handlers, sourceMacAddress);
+            }
+            packetCaptured(handlersForAll, sourceMacAddress);
+        }
+    };
+
+    private PacketCapturingService(PcapNetworkInterfaceWrapper pcapNetworkInterface) {
         this.pcapNetworkInterface = pcapNetworkInterface;
     }
 
+    /**
+     * Returns the {@link PacketCapturingService} of the given network interface.
+     *
+     * @param pcapNetworkInterface The network interface
+     * @return The {@link PacketCapturingService} shared by all handlers of the network interface
+     */
+    public static PacketCapturingService getInstance(PcapNetworkInterfaceWrapper pcapNetworkInterface) {
+        synchronized (instances) {
+            PacketCapturingService instance = instances.get(pcapNetworkInterface);
+            if (instance == null) {
+                instance = new PacketCapturingService(pcapNetworkInterface);
+                instances.put(pcapNetworkInterface, instance);
+            }
+            return instance;
+        }
+    }
+
     /**
      * Calls {@link #startCapturing(PacketCapturingHandler, String)} with a null MAC address.
      *
@@ -60,9 +125,10 @@ public class PacketCapturingService {
     }
 
     /**
-     * Starts the capturing in a dedicated thread, so this method returns immediately. Every time a packet is captured,
-     * the {@link PacketCapturingHandler#packetCaptured(MacAddress)} of the given
-     * {@link PacketCapturingHandler} is called.
+     * Registers the given {@link PacketCapturingHandler}. Every time a packet is captured, the
+     * {@link PacketCapturingHandler#packetCaptured(MacAddress)} of the given {@link PacketCapturingHandler} is called.
+     * The capturing is started in a dedicated thread when the first handler is registered, so this method returns
+     * immediately.
      *
      * It's possible to capture packets sent by a specific MAC address by providing the given parameter. If the
      * macAddress is null, all MAC addresses are considered.
@@ -71,115 +137,215 @@ public class PacketCapturingService {
      * @param macAddress The source MAC address of the captured packet, might be null in order to deactivate this filter
      *            criteria
      * @return Returns true, if the capturing has been started successfully, otherwise returns false
-     * @throws IllegalStateException Thrown if {@link PcapHandle#isOpen()} of {@link #pcapHandle} returns true
      */
-
-    public boolean startCapturing(final PacketCapturingHandler packetCapturingHandler, final String macAddress) {
-        if (pcapHandle != null) {
-            if (pcapHandle.isOpen()) {
-                throw new IllegalStateException("There is an open pcap handle.");
-            } else {
-                pcapHandle.close();
-            }
-        }
-        try {
-            pcapHandle = pcapNetworkInterface.openLive(SNAPLEN, PromiscuousMode.PROMISCUOUS, READ_TIMEOUT);
-            StringBuilder filterBuilder = new StringBuilder("(arp or port bootps)");
-            if (macAddress != null) {
-                filterBuilder.append(" and ether src " + macAddress);
+    public synchronized boolean startCapturing(final PacketCapturingHandler packetCapturingHandler,
+            final String macAddress) {
+        MacAddress sourceMacAddress = null;
+        if (macAddress != null) {
+            try {
+                sourceMacAddress = MacAddress.getByName(macAddress);
+            } catch (IllegalArgumentException e) {
+                logger.error("Capturing packets of invalid MAC address {} is not possible.", macAddress);
+                return false;
             }
-            pcapHandle.setFilter(filterBuilder.toString(), BpfCompileMode.OPTIMIZE);
-        } catch (Exception e) {
-            logger.error("Capturing packets on device {} failed.", pcapNetworkInterface.getName(), e);
-            return false;
         }
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        executorService.submit(new Callable<Void>() {
 
-            @Override
-            public Void call() throws Exception {
-                try {
-                    pcapHandle.loop(-1, new PacketListener() {
+        registrations.put(packetCapturingHandler, sourceMacAddress);
+        updateHandlers();
 
-                        @Override
-                        public void gotPacket(Packet packet) {
-                            if (!packet.contains(EthernetPacket.class)) {
-                                return;
-                            }
-                            final EthernetPacket ethernetPacket = packet.get(EthernetPacket.class);
-                            final MacAddress sourceMacAddress = ethernetPacket.getHeader().getSrcAddr();
-                            if (shouldCapture(packet)) {
-                                packetCapturingHandler.packetCaptured(sourceMacAddress);
-                            }
-                        }
-                    });
-                } finally {
-                    if (pcapHandle != null && pcapHandle.isOpen()) {
-                        pcapHandle.close();
-                        pcapHandle = null;
-                    }
+        if (pcapHandle == null) {
+            try {
+                pcapHandle = pcapNetworkInterface.openLive(SNAPLEN, PromiscuousMode.PROMISCUOUS, READ_TIMEOUT);
+                pcapHandle.setFilter(buildFilter(), BpfCompileMode.OPTIMIZE);
+            } catch (Exception e) {
+                logger.error("Capturing packets on device {} failed.", pcapNetworkInterface.getName(), e);
+                if (pcapHandle != null) {
+                    pcapHandle.close();
+                    pcapHandle = null;
                 }
-                return null;
+                registrations.remove(packetCapturingHandler);
+                updateHandlers();
+                return false;
             }
-        });
+            filterChanged = false;
+            startLoop(pcapHandle);
+        } else {
+            updateFilter();
+        }
+
         if (macAddress == null) {
             logger.debug("Started capturing ARP and BOOTP requests for network device {}.",
                     pcapNetworkInterface.getName());
         } else {
-            logger.debug("Started capturing ARP  and BOOTP requests for network device {} and MAC address {}.",
+            logger.debug("Started capturing ARP and BOOTP requests for network device {} and MAC address {}.",
                     pcapNetworkInterface.getName(), macAddress);
         }
         return true;
     }
 
     /**
-     * Checks if the given {@link Packet} should be captured.
+     * Unregisters the given {@link PacketCapturingHandler}. The capturing is stopped, if no other handler is
+     * registered. This can be called without calling {@link #startCapturing(PacketCapturingHandler)} or
+     * {@link #startCapturing(PacketCapturingHandler, String)} before.
      *
-     * @param packet The packet to be checked
-     * @return Returns true, if the packet should be captured, otherwise false
+     * @param packetCapturingHandler The handler to be unregistered
      */
-    private boolean shouldCapture(final Packet packet) {
-        if (packet.contains(ArpPacket.class)) {
-            ArpPacket arpPacket = packet.get(ArpPacket.class);
-            if (arpPacket.getHeader().getOperation().equals(ArpOperation.REQUEST)) {
-                return true;
-            }
+    public synchronized void stopCapturing(final PacketCapturingHandler packetCapturingHandler) {
+        if (!registrations.containsKey(packetCapturingHandler)) {
+            return;
         }
-        if (packet.contains(UdpPacket.class)) {
-            final UdpPacket udpPacket = packet.get(UdpPacket.class);
-            if (UdpPort.BOOTPS == udpPacket.getHeader().getDstPort()) {
-                return true;
-            }
+        final MacAddress macAddress = registrations.remove(packetCapturingHandler);
+        updateHandlers();
+
+        if (pcapHandle == null) {
+            return;
+        }
+        if (registrations.isEmpty()) {
+            // the capturing thread closes the handle
+            final PcapHandle handle = pcapHandle;
+            pcapHandle = null;
+            breakLoop(handle);
+            logger.debug("Stopped capturing ARP and BOOTP requests for network device {}.",
+                    pcapNetworkInterface.getName());
+        } else {
+            updateFilter();
+            logger.debug("Stopped capturing ARP and BOOTP requests for network device {} and MAC address {}.",
+                    pcapNetworkInterface.getName(), macAddress);
         }
-        return false;
     }
 
     /**
-     * Stops the capturing. This can be called without calling {@link #startCapturing(PacketCapturingHandler)} or
-     * {@link #startCapturing(PacketCapturingHandler, String)} before.
+     * Returns the tracked {@link PcapNetworkInterfaceWrapper}.
+     *
+     * @return the tracked {@link PcapNetworkInterfaceWrapper}
      */
-    public void stopCapturing() {
-        if (pcapHandle != null) {
-            if (pcapHandle.isOpen()) {
-                try {
-                    pcapHandle.breakLoop();
-                    logger.debug("Stopped capturing ARP and BOOTP requests for network device {}.",
-                            pcapNetworkInterface.getName());
-                } catch (NotOpenException e) {
-                    // Just ignore
-                }
+    public PcapNetworkInterfaceWrapper getPcapNetworkInterface() {
+        return pcapNetworkInterface;
+    }
+
+    /**
+     * Rebuilds the handler lookup tables from {@link #registrations}.
+     */
+    private void updateHandlers() {
+        final Map<Long, List<PacketCapturingHandler>> byMacAddress = new HashMap<>();
+        final List<PacketCapturingHandler> forAll = new ArrayList<>();
+        for (Map.Entry<PacketCapturingHandler, MacAddress> registration : registrations.entrySet()) {
+            if (registration.getValue() == null) {
+                forAll.add(registration.getKey());
             } else {
-                pcapHandle = null;
+                final Long key = toLong(registration.getValue().getAddress(), 0);
+                List<PacketCapturingHandler> handlers = byMacAddress.get(key);
+                if (handlers == null) {
+                    handlers = new ArrayList<>(1);
+                    byMacAddress.put(key, handlers);
+                }
+                handlers.add(registration.getKey());
             }
         }
+        handlersByMacAddress = byMacAddress;
+        handlersForAllMacAddresses = forAll;
     }
 
     /**
-     * Returns the tracked {@link PcapNetworkInterfaceWrapper}.
+     * Builds the BPF filter for the registered handlers. The source MAC addresses are only filtered, if no handler is
+     * registered for all MAC addresses.
      *
-     * @return the tracked {@link PcapNetworkInterfaceWrapper}
+     * @return the filter expression
      */
-    public PcapNetworkInterfaceWrapper getPcapNetworkInterface() {
-        return pcapNetworkInterface;
+    private String buildFilter() {
+        final StringBuilder filterBuilder = new StringBuilder(REQUEST_FILTER);
+        if (!registrations.containsValue(null)) {
+            final Set<MacAddress> macAddresses = new LinkedHashSet<>(registrations.values());
+            String separator = " and (";
+            for (MacAddress macAddress : macAddresses) {
+                filterBuilder.append(separator).append("ether src ").append(macAddress);
+                separator = " or ";
+            }
+            filterBuilder.append(')');
+        }
+        return filterBuilder.toString();
+    }
+
+    /**
+     * Lets the capturing thread set the new filter. The filter is not changed from this thread, as the handle is in
+     * use by the capturing thread.
+     */
+    private void updateFilter() {
+        filterChanged = true;
+        breakLoop(pcapHandle);
+    }
+
+    private void breakLoop(PcapHandle handle) {
+        try {
+            handle.breakLoop();
+        } catch (NotOpenException e) {
+            // Just ignore
+        }
+    }
+
+    /**
+     * Starts the capturing thread for the given handle. The thread sets a changed filter and ends, when the handle is
+     * no longer the current handle of this service.
+     *
+     * @param handle The opened handle
+     */
+    private void startLoop(final PcapHandle handle) {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.submit(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                try {
+                    while (true) {
+                        try {
+                            handle.loop(-1, packetListener);
+                        } catch (InterruptedException e) {
+                            // the loop has been broken to change the filter or to stop the capturing
+                        }
+                        synchronized (PacketCapturingService.this) {
+                            if (pcapHandle != handle) {
+                                break;
+                            }
+                            if (filterChanged) {
+                                filterChanged = false;
+                                final String filter = buildFilter();
+                                handle.setFilter(filter, BpfCompileMode.OPTIMIZE);
+                                logger.debug("Changed the filter of network device {} to {}.",
+                                        pcapNetworkInterface.getName(), filter);
+                            }
+                        }
+                    }
+                } catch (PcapNativeException | NotOpenException e) {
+                    logger.error("Capturing packets on device {} failed.", pcapNetworkInterface.getName(), e);
+                    synchronized (PacketCapturingService.this) {
+                        if (pcapHandle == handle) {
+                            pcapHandle = null;
+                        }
+                    }
+                } finally {
+                    handle.close();
+                }
+                return null;
+            }
+        });
+        executorService.shutdown();
+    }
+
+    private void packetCaptured(List<PacketCapturingHandler> handlers, MacAddress sourceMacAddress) {
+        for (PacketCapturingHandler handler : handlers) {
+            try {
+                handler.packetCaptured(sourceMacAddress);
+            } catch (Exception e) {
+                logger.error("An exception occurred while handling a packet from {}.", sourceMacAddress, e);
+            }
+        }
+    }
+
+    private static long toLong(byte[] macAddress, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + MacAddress.SIZE_IN_BYTES; i++) {
+            value = (value << 8) | (macAddress[i] & 0xff);
+        }
+        return value;
     }
 }
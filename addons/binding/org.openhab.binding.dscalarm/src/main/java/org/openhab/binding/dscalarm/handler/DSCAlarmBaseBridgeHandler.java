@@ -13,7 +13,9 @@ import static org.openhab.binding.dscalarm.DSCAlarmBindingConstants.*;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -25,6 +27,7 @@ import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.binding.BaseBridgeHandler;
+import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
 import org.openhab.binding.dscalarm.config.DSCAlarmPartitionConfiguration;
@@ -57,7 +60,11 @@ public abstract class DSCAlarmBaseBridgeHandler extends BaseBridgeHandler {
     private DSCAlarmDiscoveryService dscAlarmDiscoveryService = null;
 
     /** The Panel Thing handler for the bridge. */
-    private DSCAlarmBaseThingHandler panelThingHandler = null;
+    private volatile DSCAlarmBaseThingHandler panelThingHandler = null;
+
+    /** The child things by thing type, partition and zone. Rebuilt when needed after a child was added or removed. */
+    private Map<String, Thing> thingIndex = null;
+    private final Object thingIndexLock = new Object();
 
     /** Connection status for the bridge. */
     private boolean connected = false;
@@ -349,6 +356,7 @@ public abstract class DSCAlarmBaseBridgeHandler extends BaseBridgeHandler {
         if (things.size() != thingCount) {
             thingsHaveChanged = true;
             thingCount = things.size();
+            invalidateThingIndex();
         }
 
         for (Thing thing : things) {
@@ -381,21 +389,53 @@ public abstract class DSCAlarmBaseBridgeHandler extends BaseBridgeHandler {
 
     }
 
+    @Override
+    public void childHandlerInitialized(ThingHandler childHandler, Thing childThing) {
+        invalidateThingIndex();
+    }
+
+    @Override
+    public void childHandlerDisposed(ThingHandler childHandler, Thing childThing) {
+        invalidateThingIndex();
+    }
+
     /**
-     * Find a Thing.
+     * Invalidate the thing index, it is rebuilt on the next search.
+     */
+    private void invalidateThingIndex() {
+        synchronized (thingIndexLock) {
+            thingIndex = null;
+        }
+    }
+
+    /**
+     * Get the key of a thing in the thing index.
      *
      * @param dscAlarmThingType
      * @param partitionId
      * @param zoneId
-     * @return thing
+     * @return key
      */
-    public Thing findThing(DSCAlarmThingType dscAlarmThingType, int partitionId, int zoneId) {
-
-        List<Thing> things = getThing().getThings();
+    private static String getThingKey(DSCAlarmThingType dscAlarmThingType, int partitionId, int zoneId) {
+        switch (dscAlarmThingType) {
+            case PARTITION:
+                return dscAlarmThingType + ":" + partitionId;
+            case ZONE:
+                return dscAlarmThingType + ":" + zoneId;
+            default:
+                return dscAlarmThingType.toString();
+        }
+    }
 
-        Thing thing = null;
+    /**
+     * Build the thing index from the child things.
+     *
+     * @return thing index
+     */
+    private Map<String, Thing> buildThingIndex() {
+        Map<String, Thing> index = new HashMap<>();
 
-        for (Thing t : things) {
+        for (Thing t : getThing().getThings()) {
 
             try {
                 Configuration config = t.getConfiguration();
@@ -405,54 +445,74 @@ public abstract class DSCAlarmBaseBridgeHandler extends BaseBridgeHandler {
                     DSCAlarmThingType handlerDSCAlarmThingType = handler.getDSCAlarmThingType();
 
                     if (handlerDSCAlarmThingType != null) {
-                        if (handlerDSCAlarmThingType.equals(dscAlarmThingType)) {
-                            switch (handlerDSCAlarmThingType) {
-                                case PANEL:
-                                case KEYPAD:
-                                    thing = t;
-                                    logger.debug("findThing(): Thing Found - {}, {}, {}", t, handler,
-                                            handlerDSCAlarmThingType);
-                                    return thing;
-                                case PARTITION:
-                                    BigDecimal partitionNumber = (BigDecimal) config
-                                            .get(DSCAlarmPartitionConfiguration.PARTITION_NUMBER);
-                                    if (partitionId == partitionNumber.intValue()) {
-                                        thing = t;
-                                        logger.debug("findThing(): Thing Found - {}, {}, {}", t, handler,
-                                                handlerDSCAlarmThingType);
-                                        return thing;
-                                    }
-                                    break;
-                                case ZONE:
-                                    BigDecimal zoneNumber = (BigDecimal) config
-                                            .get(DSCAlarmZoneConfiguration.ZONE_NUMBER);
-                                    if (zoneId == zoneNumber.intValue()) {
-                                        thing = t;
-                                        logger.debug("findThing(): Thing Found - {}, {}, {}", t, handler,
-                                                handlerDSCAlarmThingType);
-                                        return thing;
-                                    }
-                                    break;
-                                default:
-                                    break;
-                            }
+                        int partitionId = 0;
+                        int zoneId = 0;
+
+                        switch (handlerDSCAlarmThingType) {
+                            case PARTITION:
+                                BigDecimal partitionNumber = (BigDecimal) config
+                                        .get(DSCAlarmPartitionConfiguration.PARTITION_NUMBER);
+                                partitionId = partitionNumber.intValue();
+                                break;
+                            case ZONE:
+                                BigDecimal zoneNumber = (BigDecimal) config.get(DSCAlarmZoneConfiguration.ZONE_NUMBER);
+                                zoneId = zoneNumber.intValue();
+                                break;
+                            default:
+                                break;
+                        }
+
+                        // the first thing found is used, as before
+                        String key = getThingKey(handlerDSCAlarmThingType, partitionId, zoneId);
+                        if (!index.containsKey(key)) {
+                            index.put(key, t);
                         }
                     }
                 }
             } catch (Exception e) {
-                logger.debug("findThing(): Error Seaching Thing - {} ", e.getMessage(), e);
+                logger.debug("buildThingIndex(): Error Indexing Thing - {} ", e.getMessage(), e);
             }
         }
 
+        logger.debug("buildThingIndex(): {} Things Indexed", index.size());
+
+        return index;
+    }
+
+    /**
+     * Find a Thing.
+     *
+     * @param dscAlarmThingType
+     * @param partitionId
+     * @param zoneId
+     * @return thing
+     */
+    public Thing findThing(DSCAlarmThingType dscAlarmThingType, int partitionId, int zoneId) {
+        Map<String, Thing> index;
+
+        synchronized (thingIndexLock) {
+            if (thingIndex == null) {
+                thingIndex = buildThingIndex();
+            }
+            index = thingIndex;
+        }
+
+        Thing thing = index.get(getThingKey(dscAlarmThingType, partitionId, zoneId));
+
+        if (thing != null) {
+            logger.debug("findThing(): Thing Found - {}, {}", thing, dscAlarmThingType);
+        }
+
         return thing;
     }
 
     /**
-     * Handles an incoming message from the DSC Alarm System.
+     * Handles an incoming message from the DSC Alarm System. Only the connection handling is synchronized, the message
+     * is decoded and passed to the things without holding the bridge lock.
      *
      * @param incomingMessage
      */
-    public synchronized void handleIncomingMessage(String incomingMessage) {
+    public void handleIncomingMessage(String incomingMessage) {
         if (incomingMessage != null && !incomingMessage.isEmpty()) {
             DSCAlarmMessage dscAlarmMessage = new DSCAlarmMessage(incomingMessage);
             DSCAlarmMessageType dscAlarmMessageType = dscAlarmMessage.getDSCAlarmMessageType();
@@ -469,23 +529,28 @@ public abstract class DSCAlarmBaseBridgeHandler extends BaseBridgeHandler {
             DSCAlarmCode dscAlarmCode = DSCAlarmCode
                     .getDSCAlarmCodeValue(dscAlarmMessage.getMessageInfo(DSCAlarmMessageInfoType.CODE));
 
+            DSCAlarmBaseThingHandler panelThingHandler = this.panelThingHandler;
             if (panelThingHandler != null) {
                 panelThingHandler.setPanelMessage(dscAlarmMessage);
             }
 
             if (dscAlarmCode == DSCAlarmCode.LoginResponse) {
                 String dscAlarmMessageData = dscAlarmMessage.getMessageInfo(DSCAlarmMessageInfoType.DATA);
-                if (dscAlarmMessageData.equals("3")) {
-                    sendCommand(DSCAlarmCode.NetworkLogin);
-                    // onConnected();
-                } else if (dscAlarmMessageData.equals("1")) {
-                    onConnected();
+                synchronized (this) {
+                    if (dscAlarmMessageData.equals("3")) {
+                        sendCommand(DSCAlarmCode.NetworkLogin);
+                        // onConnected();
+                    } else if (dscAlarmMessageData.equals("1")) {
+                        onConnected();
+                    }
                 }
                 return;
             } else if (dscAlarmCode == DSCAlarmCode.CommandAcknowledge) {
                 String dscAlarmMessageData = dscAlarmMessage.getMessageInfo(DSCAlarmMessageInfoType.DATA);
                 if (dscAlarmMessageData.equals("000")) {
-                    setBridgeStatus(true);
+                    synchronized (this) {
+                        setBridgeStatus(true);
+                    }
                 }
             }
 
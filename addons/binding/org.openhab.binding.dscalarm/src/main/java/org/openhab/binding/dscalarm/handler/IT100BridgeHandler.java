@@ -54,7 +54,7 @@ public class IT100BridgeHandler extends DSCAlarmBaseBridgeHandler implements Ser
     private int baudRate;
     private SerialPort serialPort = null;
     private OutputStreamWriter serialOutput = null;
-    private BufferedReader serialInput = null;
+    private volatile BufferedReader serialInput = null;
 
     @Override
     public void initialize() {
@@ -233,8 +233,12 @@ public class IT100BridgeHandler extends DSCAlarmBaseBridgeHandler implements Ser
      * @param serialPortEvent
      */
     @Override
-    public synchronized void serialEvent(SerialPortEvent serialPortEvent) {
-        if (serialPortEvent.getEventType() == SerialPortEvent.DATA_AVAILABLE) {
+    public void serialEvent(SerialPortEvent serialPortEvent) {
+        // The events are delivered by a single thread. Not holding the bridge lock here lets the polling task run
+        // while the things are updated.
+        BufferedReader serialInput = this.serialInput;
+
+        if (serialPortEvent.getEventType() == SerialPortEvent.DATA_AVAILABLE && serialInput != null) {
             try {
                 String messageLine = serialInput.readLine();
                 handleIncomingMessage(messageLine);
@@ -8,23 +8,31 @@
  */
 package org.openhab.binding.gardena.internal;
 
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpResponseException;
-import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
 import org.eclipse.jetty.client.util.StringContentProvider;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
@@ -67,6 +75,9 @@ import com.google.gson.GsonBuilder;
 /**
  * {@link GardenaSmart} implementation to access Gardena Smart Home.
  *
+ * The requests are sent asynchronously in two lanes with a limited number of concurrent requests each, one for the
+ * refresh of the devices and one for commands. A slow refresh therefore never delays a command.
+ *
  * @author Gerhard Riegler - Initial contribution
  */
 public class GardenaSmartImpl implements GardenaSmart {
@@ -93,11 +104,17 @@ public class GardenaSmartImpl implements GardenaSmart {
     private static final String URL_COMMAND = URL + "/sg-1/devices/%s/abilities/%s/command?locationId=%s";
     private static final String URL_PROPERTY = URL + "/sg-1/devices/%s/abilities/%s/properties/%s?locationId=%s";
 
+    private static final int MAX_REFRESH_REQUESTS = 4;
+    private static final int MAX_COMMAND_REQUESTS = 2;
+
     private Gson gson = new GsonBuilder().registerTypeAdapter(Date.class, new DateDeserializer()).create();
     private HttpClient httpClient;
+    private final Semaphore refreshLane = new Semaphore(MAX_REFRESH_REQUESTS);
+    private final Semaphore commandLane = new Semaphore(MAX_COMMAND_REQUESTS);
+    private final Object sessionLock = new Object();
 
     private String mowerDuration = DEFAULT_MOWER_DURATION;
-    private Session session;
+    private volatile Session session;
     private GardenaConfig config;
     private String id;
 
@@ -107,8 +124,9 @@ public class GardenaSmartImpl implements GardenaSmart {
 
     private GardenaSmartEventListener eventListener;
 
-    private Map<String, Device> allDevicesById = new HashMap<String, Device>();
-    private Set<Location> allLocations = new HashSet<Location>();
+    private Map<String, Device> allDevicesById = new ConcurrentHashMap<String, Device>();
+    private Map<String, byte[]> devicePayloadHashes = new HashMap<String, byte[]>();
+    private Set<Location> allLocations = ConcurrentHashMap.<Location> newKeySet();
 
     /**
      * {@inheritDoc}
@@ -127,6 +145,7 @@ public class GardenaSmartImpl implements GardenaSmart {
 
         httpClient = new HttpClient(new SslContextFactory(true));
         httpClient.setConnectTimeout(config.getConnectionTimeout() * 1000L);
+        httpClient.setMaxConnectionsPerDestination(MAX_REFRESH_REQUESTS + MAX_COMMAND_REQUESTS);
 
         try {
             httpClient.start();
@@ -158,7 +177,7 @@ public class GardenaSmartImpl implements GardenaSmart {
     /**
      * Schedules the device refresh thread.
      */
-    private void startRefreshThread() {
+    private synchronized void startRefreshThread() {
         refreshThreadFuture = scheduler.scheduleWithFixedDelay(refreshDevicesThread, 6, config.getRefresh(),
                 TimeUnit.SECONDS);
     }
@@ -166,12 +185,20 @@ public class GardenaSmartImpl implements GardenaSmart {
     /**
      * Stops the device refresh thread.
      */
-    private void stopRefreshThread(boolean force) {
+    private synchronized void stopRefreshThread(boolean force) {
         if (refreshThreadFuture != null) {
             refreshThreadFuture.cancel(force);
         }
     }
 
+    /**
+     * Reschedules the device refresh thread, so the result of a command is refreshed soon.
+     */
+    private synchronized void restartRefreshThread() {
+        stopRefreshThread(false);
+        startRefreshThread();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -208,22 +235,19 @@ public class GardenaSmartImpl implements GardenaSmart {
     public void loadAllDevices() throws GardenaException {
         stopRefreshThread(false);
         try {
-            allLocations.clear();
-            allDevicesById.clear();
-
-            verifySession();
-            Locations locations = executeRequest(HttpMethod.GET, URL_LOCATIONS + session.getUserId(), null,
-                    Locations.class);
-
-            for (Location location : locations.getLocations()) {
-                allLocations.add(location);
-                Devices devices = loadDevices(location);
-                for (Device device : devices.getDevices()) {
-                    if (DEVICE_CATEGORY_GATEWAY.equals(device.getCategory())) {
-                        location.getDeviceIds().remove(device.getId());
-                    } else {
-                        allDevicesById.put(device.getId(), device);
-                    }
+            synchronized (refreshDevicesThread) {
+                allLocations.clear();
+                allDevicesById.clear();
+                devicePayloadHashes.clear();
+
+                verifySession();
+                Locations locations = executeRequest(refreshLane, HttpMethod.GET,
+                        URL_LOCATIONS + session.getUserId(), null, Locations.class);
+                allLocations.addAll(locations.getLocations());
+
+                for (Device device : loadDevicesOfAllLocations()) {
+                    allDevicesById.put(device.getId(), device);
+                    devicePayloadHashes.put(device.getId(), getPayloadHash(device));
                 }
             }
         } finally {
@@ -232,10 +256,35 @@ public class GardenaSmartImpl implements GardenaSmart {
     }
 
     /**
-     * Loads all devices for the location, adds virtual properties for commands.
+     * Loads the devices of all locations in parallel, gateways are skipped.
+     */
+    private List<Device> loadDevicesOfAllLocations() throws GardenaException {
+        Map<Location, CompletableFuture<Devices>> requests = new LinkedHashMap<Location, CompletableFuture<Devices>>();
+        for (Location location : allLocations) {
+            requests.put(location, executeRequestAsync(refreshLane, HttpMethod.GET, URL_DEVICES + location.getId(),
+                    null, Devices.class));
+        }
+
+        List<Device> allDevices = new ArrayList<Device>();
+        for (Map.Entry<Location, CompletableFuture<Devices>> request : requests.entrySet()) {
+            Location location = request.getKey();
+            Devices devices = getResult(request.getValue());
+            initDevices(location, devices);
+            for (Device device : devices.getDevices()) {
+                if (DEVICE_CATEGORY_GATEWAY.equals(device.getCategory())) {
+                    location.getDeviceIds().remove(device.getId());
+                } else {
+                    allDevices.add(device);
+                }
+            }
+        }
+        return allDevices;
+    }
+
+    /**
+     * Initializes the loaded devices of the location, adds virtual properties for commands.
      */
-    private Devices loadDevices(Location location) throws GardenaException {
-        Devices devices = executeRequest(HttpMethod.GET, URL_DEVICES + location.getId(), null, Devices.class);
+    private void initDevices(Location location, Devices devices) throws GardenaException {
         for (Device device : devices.getDevices()) {
             device.setLocation(location);
             for (Ability ability : device.getAbilities()) {
@@ -255,7 +304,19 @@ public class GardenaSmartImpl implements GardenaSmart {
                 mower.addProperty(new Property(GardenaSmartCommandName.DURATION_PROPERTY, mowerDuration));
             }
         }
-        return devices;
+    }
+
+    /**
+     * Returns a hash of the abilities, properties and all other data of the device to detect changes.
+     */
+    private byte[] getPayloadHash(Device device) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return digest.digest(gson.toJson(device).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform supports MD5
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
     }
 
     /**
@@ -314,11 +375,11 @@ public class GardenaSmartImpl implements GardenaSmart {
                 String propertyUrl = String.format(URL_PROPERTY, device.getId(), ABILITY_OUTLET,
                         PROPERTY_BUTTON_MANUAL_OVERRIDE_TIME, device.getLocation().getId());
 
-                stopRefreshThread(false);
-                executeRequest(HttpMethod.PUT, propertyUrl, new SimplePropertiesWrapper(prop), NoResult.class);
+                executeRequest(commandLane, HttpMethod.PUT, propertyUrl, new SimplePropertiesWrapper(prop),
+                        NoResult.class);
                 device.getAbility(ABILITY_OUTLET).getProperty(PROPERTY_BUTTON_MANUAL_OVERRIDE_TIME)
                         .setValue(prop.getValue());
-                startRefreshThread();
+                restartRefreshThread();
 
                 break;
             case OUTLET_VALVE:
@@ -337,9 +398,8 @@ public class GardenaSmartImpl implements GardenaSmart {
         }
 
         if (command != null) {
-            stopRefreshThread(false);
-            executeRequest(HttpMethod.POST, getCommandUrl(device, ability), command, NoResult.class);
-            startRefreshThread();
+            executeRequest(commandLane, HttpMethod.POST, getCommandUrl(device, ability), command, NoResult.class);
+            restartRefreshThread();
         }
     }
 
@@ -351,10 +411,37 @@ public class GardenaSmartImpl implements GardenaSmart {
     }
 
     /**
-     * Communicates with Gardena Smart Home and parses the result.
+     * Communicates with Gardena Smart Home and parses the result, waits for the response.
      */
-    private synchronized <T> T executeRequest(HttpMethod method, String url, Object contentObject, Class<T> result)
+    private <T> T executeRequest(Semaphore lane, HttpMethod method, String url, Object contentObject, Class<T> result)
             throws GardenaException {
+        return getResult(executeRequestAsync(lane, method, url, contentObject, result));
+    }
+
+    /**
+     * Waits for the result of an asynchronous request.
+     */
+    private <T> T getResult(CompletableFuture<T> future) throws GardenaException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof GardenaException) {
+                throw (GardenaException) ex.getCause();
+            }
+            throw new GardenaException(ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GardenaException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Sends a request to Gardena Smart Home and parses the result asynchronously. Waits, if the maximum number of
+     * requests of the lane are in progress.
+     */
+    private <T> CompletableFuture<T> executeRequestAsync(final Semaphore lane, final HttpMethod method, String url,
+            Object contentObject, final Class<T> result) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
         try {
             if (logger.isTraceEnabled()) {
                 logger.trace("{} request:  {}", method, url);
@@ -378,49 +465,81 @@ public class GardenaSmartImpl implements GardenaSmart {
                 request.header("X-Session", session.getToken());
             }
 
-            ContentResponse contentResponse = request.send();
-            int status = contentResponse.getStatus();
-            if (logger.isTraceEnabled()) {
-                logger.trace("Status  : {}", status);
-                logger.trace("Response: {}", contentResponse.getContentAsString());
+            lane.acquire();
+            try {
+                request.send(new BufferingResponseListener() {
+                    @Override
+                    public void onComplete(Result requestResult) {
+                        lane.release();
+                        try {
+                            future.complete(parseResponse(method, requestResult, getContentAsString(), result));
+                        } catch (GardenaException ex) {
+                            future.completeExceptionally(ex);
+                        } catch (RuntimeException ex) {
+                            future.completeExceptionally(new GardenaException(ex.getMessage(), ex));
+                        }
+                    }
+                });
+            } catch (RuntimeException ex) {
+                lane.release();
+                throw ex;
             }
+        } catch (GardenaException ex) {
+            future.completeExceptionally(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new GardenaException(ex.getMessage(), ex));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(new GardenaException(ex.getMessage(), ex));
+        }
+        return future;
+    }
 
-            if (status == 500) {
-                throw new GardenaException(
-                        gson.fromJson(contentResponse.getContentAsString(), Errors.class).toString());
-            } else if (status != 200 && status != 204) {
-                throw new GardenaException(String.format("Error %s %s", status, contentResponse.getReason()));
+    /**
+     * Checks the response status and parses the result.
+     */
+    private <T> T parseResponse(HttpMethod method, Result requestResult, String content, Class<T> result)
+            throws GardenaException {
+        if (requestResult.isFailed()) {
+            Throwable failure = requestResult.getFailure();
+            if (failure instanceof HttpResponseException
+                    && ((HttpResponseException) failure).getResponse().getStatus() == 401) {
+                throw new GardenaUnauthorizedException(failure);
             }
+            throw new GardenaException(failure.getMessage(), failure);
+        }
 
-            if (result == NoResult.class) {
-                return null;
-            }
+        Response response = requestResult.getResponse();
+        int status = response.getStatus();
+        if (logger.isTraceEnabled()) {
+            logger.trace("{} status  : {}", method, status);
+            logger.trace("{} response: {}", method, content);
+        }
 
-            return gson.fromJson(contentResponse.getContentAsString(), result);
-        } catch (ExecutionException ex) {
-            Throwable cause = ex.getCause();
-            if (cause instanceof HttpResponseException) {
-                HttpResponseException responseException = (HttpResponseException) ex.getCause();
-                int status = responseException.getResponse().getStatus();
-                if (status == 401) {
-                    throw new GardenaUnauthorizedException(ex.getCause());
-                }
-            }
-            throw new GardenaException(ex.getMessage(), ex);
-        } catch (Exception ex) {
-            throw new GardenaException(ex.getMessage(), ex);
+        if (status == 500) {
+            throw new GardenaException(gson.fromJson(content, Errors.class).toString());
+        } else if (status != 200 && status != 204) {
+            throw new GardenaException(String.format("Error %s %s", status, response.getReason()));
         }
+
+        if (result == NoResult.class) {
+            return null;
+        }
+
+        return gson.fromJson(content, result);
     }
 
     /**
      * Verifies the Gardena Smart Home session and reconnects if necessary.
      */
     private void verifySession() throws GardenaException {
-        if (session == null
-                || session.getCreated() + (config.getSessionTimeout() * 60000) <= System.currentTimeMillis()) {
-            logger.trace("(Re)logging in to Gardena Smart Home");
-            session = executeRequest(HttpMethod.POST, URL_LOGIN, new GardenaConfigWrapper(config), SessionWrapper.class)
-                    .getSession();
+        synchronized (sessionLock) {
+            if (session == null
+                    || session.getCreated() + (config.getSessionTimeout() * 60000) <= System.currentTimeMillis()) {
+                logger.trace("(Re)logging in to Gardena Smart Home");
+                session = executeRequest(commandLane, HttpMethod.POST, URL_LOGIN, new GardenaConfigWrapper(config),
+                        SessionWrapper.class).getSession();
+            }
         }
     }
 
@@ -434,20 +553,12 @@ public class GardenaSmartImpl implements GardenaSmart {
          * {@inheritDoc}
          */
         @Override
-        public void run() {
+        public synchronized void run() {
             try {
                 logger.debug("Refreshing gardena device data");
-                Map<String, Device> newDevicesById = new HashMap<String, Device>();
-
-                for (Location location : allLocations) {
-                    Devices devices = loadDevices(location);
-                    for (Device device : devices.getDevices()) {
-                        if (DEVICE_CATEGORY_GATEWAY.equals(device.getCategory())) {
-                            location.getDeviceIds().remove(device.getId());
-                        } else {
-                            newDevicesById.put(device.getId(), device);
-                        }
-                    }
+                Map<String, Device> newDevicesById = new LinkedHashMap<String, Device>();
+                for (Device device : loadDevicesOfAllLocations()) {
+                    newDevicesById.put(device.getId(), device);
                 }
 
                 if (connectionLost) {
@@ -457,24 +568,31 @@ public class GardenaSmartImpl implements GardenaSmart {
                 }
 
                 // determine deleted devices
-                @SuppressWarnings("unchecked")
-                Collection<Device> deletedDevices = CollectionUtils.subtract(allDevicesById.values(),
-                        newDevicesById.values());
-
-                // determine new devices
-                @SuppressWarnings("unchecked")
-                Collection<Device> newDevices = CollectionUtils.subtract(newDevicesById.values(),
-                        allDevicesById.values());
-
-                // determine updated devices
-                @SuppressWarnings("unchecked")
-                Collection<Device> updatedDevices = CollectionUtils.intersection(allDevicesById.values(),
-                        newDevicesById.values());
+                List<Device> deletedDevices = new ArrayList<Device>();
+                for (Device device : allDevicesById.values()) {
+                    if (!newDevicesById.containsKey(device.getId())) {
+                        deletedDevices.add(device);
+                    }
+                }
 
-                allDevicesById = newDevicesById;
-                newDevicesById = null;
+                // determine new and updated devices, unchanged devices are kept
+                List<Device> newDevices = new ArrayList<Device>();
+                List<Device> updatedDevices = new ArrayList<Device>();
+                for (Device device : newDevicesById.values()) {
+                    byte[] hash = getPayloadHash(device);
+                    byte[] previousHash = devicePayloadHashes.put(device.getId(), hash);
+                    if (!allDevicesById.containsKey(device.getId())) {
+                        newDevices.add(device);
+                        allDevicesById.put(device.getId(), device);
+                    } else if (previousHash == null || !MessageDigest.isEqual(previousHash, hash)) {
+                        updatedDevices.add(device);
+                        allDevicesById.put(device.getId(), device);
+                    }
+                }
 
                 for (Device deletedDevice : deletedDevices) {
+                    allDevicesById.remove(deletedDevice.getId());
+                    devicePayloadHashes.remove(deletedDevice.getId());
                     eventListener.onDeviceDeleted(deletedDevice);
                 }
 
@@ -482,6 +600,7 @@ public class GardenaSmartImpl implements GardenaSmart {
                     eventListener.onNewDevice(newDevice);
                 }
 
+                logger.debug("{} of {} gardena devices changed", updatedDevices.size(), newDevicesById.size());
                 for (Device updatedDevice : updatedDevices) {
                     eventListener.onDeviceUpdated(updatedDevice);
                 }
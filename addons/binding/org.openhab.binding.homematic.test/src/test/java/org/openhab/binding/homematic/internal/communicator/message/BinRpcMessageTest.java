@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.message;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Golden tests for the encoding and decoding of {@link BinRpcMessage} and the decoded {@link BinRpcStruct}.
+ *
+ * @author agent - Initial contribution
+ */
+public class BinRpcMessageTest {
+    private static final String ENCODING = "ISO-8859-1";
+
+    // setValue("ABC:1", "LEVEL", 0.5, true, 7)
+    private static final byte[] SET_VALUE_REQUEST = hex("42696E00 00000043" // header, request
+            + "00000008 73657456616C7565" // method name
+            + "00000005" // argument count
+            + "00000003 00000005 4142433A31" // string
+            + "00000003 00000005 4C4556454C" // string
+            + "00000004 20000000 00000000" // double 0.5
+            + "00000002 01" // boolean
+            + "00000001 00000007"); // integer
+
+    // [{VALUE: -4.5, ADDRESS: "LEQ:1"}, 21.5, 2017-10-18T16:00:00Z]
+    private static final byte[] ARRAY_RESPONSE = hex("42696E01 00000051" // header, response
+            + "00000100 00000003" // array
+            + "00000101 00000002" // struct, the members are not sorted
+            + "00000005 56414C5545 00000004 DC000000 00000003" // VALUE: double -4.5
+            + "00000007 41444452455353 00000003 00000005 4C45513A31" // ADDRESS: string
+            + "00000004 2B000000 00000005" // double 21.5
+            + "00000005 59E77A80"); // date
+
+    private static final Date DATE = new Date(1508342400000L);
+
+    private static byte[] hex(String hex) {
+        String digits = hex.replace(" ", "");
+        byte[] data = new byte[digits.length() / 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) Integer.parseInt(digits.substring(i * 2, i * 2 + 2), 16);
+        }
+        return data;
+    }
+
+    @Test
+    public void encodeRequestTest() {
+        BinRpcMessage message = new BinRpcMessage("setValue", ENCODING);
+        message.addArg("ABC:1");
+        message.addArg("LEVEL");
+        message.addArg(0.5);
+        message.addArg(true);
+        message.addArg(7);
+
+        assertEquals(5, message.getArgCount());
+        assertArrayEquals(SET_VALUE_REQUEST, message.createMessage());
+    }
+
+    @Test
+    public void decodeRequestTest() throws Exception {
+        BinRpcMessage message = new BinRpcMessage(SET_VALUE_REQUEST, true, ENCODING);
+
+        assertEquals("setValue", message.getMethodName());
+        assertArrayEquals(new Object[] { "ABC:1", "LEVEL", 0.5, Boolean.TRUE, 7 }, message.getResponseData());
+
+        message = new BinRpcMessage(new ByteArrayInputStream(SET_VALUE_REQUEST), true, ENCODING);
+        assertEquals("setValue", message.getMethodName());
+        assertArrayEquals(new Object[] { "ABC:1", "LEVEL", 0.5, Boolean.TRUE, 7 }, message.getResponseData());
+    }
+
+    @Test
+    public void decodeResponseTest() throws Exception {
+        BinRpcMessage message = new BinRpcMessage(ARRAY_RESPONSE, false, ENCODING);
+
+        assertNull(message.getMethodName());
+        Object[] values = (Object[]) message.getResponseData()[0];
+        assertEquals(3, values.length);
+
+        Map<?, ?> struct = (Map<?, ?>) values[0];
+        assertEquals(2, struct.size());
+        assertEquals(-4.5, struct.get("VALUE"));
+        assertEquals("LEQ:1", struct.get("ADDRESS"));
+        assertEquals(Arrays.asList("ADDRESS", "VALUE"), new ArrayList<Object>(struct.keySet()));
+
+        assertEquals(21.5, values[1]);
+        assertEquals(DATE, values[2]);
+    }
+
+    @Test
+    public void stringLengthTest() throws Exception {
+        // the length is the number of encoded bytes, not the number of characters
+        BinRpcMessage message = new BinRpcMessage(null, BinRpcMessage.TYPE.RESPONSE, "UTF-8");
+        message.addArg("Küche €");
+
+        byte[] expected = hex("42696E01 00000012 00000003 0000000A 4BC3BC63686520E282AC");
+        assertArrayEquals(expected, message.createMessage());
+        assertArrayEquals(new Object[] { "Küche €" },
+                new BinRpcMessage(expected, false, "UTF-8").getResponseData());
+    }
+
+    @Test
+    public void dateTest() throws Exception {
+        // the seconds since the epoch don't fit into an int as milliseconds
+        BinRpcMessage message = new BinRpcMessage(null, BinRpcMessage.TYPE.RESPONSE, ENCODING);
+        message.addArg(DATE);
+
+        byte[] expected = hex("42696E01 00000008 00000005 59E77A80");
+        assertArrayEquals(expected, message.createMessage());
+        assertArrayEquals(new Object[] { DATE }, new BinRpcMessage(expected, false, ENCODING).getResponseData());
+    }
+
+    @Test
+    public void encodeDecodedMessageTest() throws Exception {
+        BinRpcMessage request = new BinRpcMessage(SET_VALUE_REQUEST, true, ENCODING);
+        assertArrayEquals(SET_VALUE_REQUEST, request.createMessage());
+        assertEquals(Arrays.toString(SET_VALUE_REQUEST), request.toBinString());
+
+        // the struct members are encoded sorted by name
+        byte[] sorted = hex("42696E01 00000051 00000100 00000003 00000101 00000002"
+                + "00000007 41444452455353 00000003 00000005 4C45513A31"
+                + "00000005 56414C5545 00000004 DC000000 00000003"
+                + "00000004 2B000000 00000005 00000005 59E77A80");
+        assertArrayEquals(sorted, new BinRpcMessage(ARRAY_RESPONSE, false, ENCODING).createMessage());
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedMessageTest() throws Exception {
+        new BinRpcMessage(Arrays.copyOf(ARRAY_RESPONSE, ARRAY_RESPONSE.length - 1), false, ENCODING);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedStreamTest() throws Exception {
+        new BinRpcMessage(new ByteArrayInputStream(Arrays.copyOf(SET_VALUE_REQUEST, 20)), true, ENCODING);
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownTypeTest() throws Exception {
+        new BinRpcMessage(hex("42696E01 00000008 00000006 00000000"), false, ENCODING);
+    }
+
+    @Test
+    public void structTest() {
+        BinRpcStruct struct = new BinRpcStruct(new String[] { "b", "c", "a" }, new Object[] { 2, 3, 1 });
+
+        assertEquals(3, struct.size());
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<Object>(struct.keySet()));
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<Object>(struct.values()));
+        assertEquals(2, struct.get("b"));
+        assertTrue(struct.containsKey("c"));
+        assertFalse(struct.containsKey("d"));
+        assertNull(struct.get("d"));
+        assertNull(struct.get(1));
+
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("a", 1);
+        expected.put("b", 2);
+        expected.put("c", 3);
+        assertEquals(expected, struct);
+        assertEquals(expected.hashCode(), struct.hashCode());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void structReadOnlyTest() {
+        new BinRpcStruct(new String[] { "a" }, new Object[] { 1 }).put("b", 2);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.message;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * Golden file tests for {@link XmlRpcResponse}. Every sample message is decoded by the {@link XmlRpcReader} and by
+ * the previous SAX decoder, both results must be equal.
+ *
+ * @author agent - Initial contribution
+ */
+public class XmlRpcResponseTest {
+    private static final String ENCODING = "ISO-8859-1";
+
+    private byte[] load(String name) throws IOException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream("xmlrpc/" + name);
+        assertNotNull("Missing sample " + name, is);
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) >= 0) {
+                bos.write(buffer, 0, read);
+            }
+            return bos.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Decodes the sample from a stream and from a byte array and compares both results with the SAX decoder.
+     */
+    private XmlRpcResponse assertParity(String name) throws Exception {
+        byte[] message = load(name);
+        SaxXmlRpcDecoder expected = new SaxXmlRpcDecoder(new ByteArrayInputStream(message), ENCODING);
+
+        XmlRpcResponse fromStream = new XmlRpcResponse(new ByteArrayInputStream(message), ENCODING);
+        assertEquals(expected.getMethodName(), fromStream.getMethodName());
+        assertDeepEquals(name, expected.getResponseData(), fromStream.getResponseData());
+
+        XmlRpcResponse fromBytes = new XmlRpcResponse(message, ENCODING);
+        assertEquals(expected.getMethodName(), fromBytes.getMethodName());
+        assertDeepEquals(name, expected.getResponseData(), fromBytes.getResponseData());
+        return fromBytes;
+    }
+
+    private static void assertDeepEquals(String path, Object expected, Object actual) {
+        if (expected instanceof Object[]) {
+            assertTrue(path + " is no array", actual instanceof Object[]);
+            Object[] expectedArray = (Object[]) expected;
+            Object[] actualArray = (Object[]) actual;
+            assertEquals(path + " length", expectedArray.length, actualArray.length);
+            for (int i = 0; i < expectedArray.length; i++) {
+                assertDeepEquals(path + "[" + i + "]", expectedArray[i], actualArray[i]);
+            }
+        } else if (expected instanceof Map) {
+            assertTrue(path + " is no struct", actual instanceof Map);
+            Map<?, ?> expectedMap = (Map<?, ?>) expected;
+            Map<?, ?> actualMap = (Map<?, ?>) actual;
+            assertEquals(path + " keys", expectedMap.keySet(), actualMap.keySet());
+            for (Map.Entry<?, ?> entry : expectedMap.entrySet()) {
+                assertDeepEquals(path + "." + entry.getKey(), entry.getValue(), actualMap.get(entry.getKey()));
+            }
+        } else if (expected instanceof byte[]) {
+            assertTrue(path + " is no base64", actual instanceof byte[]);
+            assertTrue(path, Arrays.equals((byte[]) expected, (byte[]) actual));
+        } else {
+            assertEquals(path, expected, actual);
+            if (expected != null) {
+                assertEquals(path + " type", expected.getClass(), actual.getClass());
+            }
+        }
+    }
+
+    @Test
+    public void listDevicesTest() throws Exception {
+        Object[] data = assertParity("listDevices.xml").getResponseData();
+
+        Object[] devices = (Object[]) data[0];
+        assertEquals(2, devices.length);
+        Map<?, ?> device = (Map<?, ?>) devices[0];
+        assertEquals("HM-LC-Sw1-FM", device.get("TYPE"));
+        assertEquals(7, device.get("VERSION"));
+        assertEquals("", device.get("PARENT"));
+        assertArrayEquals(new Object[] { "LEQ0123456:0", "LEQ0123456:1" }, (Object[]) device.get("CHILDREN"));
+    }
+
+    @Test
+    public void getParamsetTest() throws Exception {
+        Map<?, ?> paramset = (Map<?, ?>) assertParity("getParamset.xml").getResponseData()[0];
+
+        assertEquals(21.3, paramset.get("ACTUAL_TEMPERATURE"));
+        assertEquals(-4.5, paramset.get("SET_TEMPERATURE"));
+        assertEquals(Boolean.FALSE, paramset.get("LOWBAT"));
+        assertEquals(Boolean.TRUE, paramset.get("PARTY_MODE"));
+        assertEquals(37, paramset.get("VALVE_STATE"));
+        assertEquals("K\u00fcche & Bad <EG> \"Nord\" \u20ac", paramset.get("ROOM"));
+    }
+
+    @Test
+    public void multicallTest() throws Exception {
+        XmlRpcResponse response = assertParity("multicall.xml");
+
+        assertEquals("system.multicall", response.getMethodName());
+        Object[] calls = (Object[]) response.getResponseData()[0];
+        assertEquals(2, calls.length);
+        Map<?, ?> call = (Map<?, ?>) calls[1];
+        assertEquals("event", call.get("methodName"));
+        assertArrayEquals(new Object[] { "openhab-1", "LEQ0123456:0", "RSSI_DEVICE", -65 },
+                (Object[]) call.get("params"));
+    }
+
+    @Test
+    public void base64AndDateTest() throws Exception {
+        Object[] values = (Object[]) assertParity("base64.xml").getResponseData()[0];
+
+        assertEquals("Homematic CCU2", new String((byte[]) values[0], StandardCharsets.ISO_8859_1));
+        assertTrue(values[1] instanceof Date);
+        assertEquals("<script> & data", values[2]);
+        assertEquals("", values[3]);
+        assertEquals(0, ((Object[]) values[4]).length);
+        assertTrue(((Map<?, ?>) values[5]).isEmpty());
+    }
+
+    @Test
+    public void faultTest() throws Exception {
+        Map<?, ?> fault = (Map<?, ?>) assertParity("fault.xml").getResponseData()[0];
+
+        assertEquals(-1, fault.get("faultCode"));
+        assertEquals("Unknown instance", fault.get("faultString"));
+    }
+
+    @Test
+    public void nestedFaultTest() throws Exception {
+        Object[] results = (Object[]) assertParity("multicallFault.xml").getResponseData()[0];
+
+        assertEquals(3, results.length);
+        Map<?, ?> fault = (Map<?, ?>) results[1];
+        assertEquals(-2, fault.get("faultCode"));
+        Map<?, ?> details = (Map<?, ?>) fault.get("details");
+        assertEquals(-5, details.get("faultCode"));
+        assertArrayEquals(new Object[] { Boolean.TRUE }, (Object[]) results[2]);
+    }
+
+    @Test
+    public void nilTest() throws Exception {
+        byte[] message = load("nil.xml");
+        try {
+            new SaxXmlRpcDecoder(new ByteArrayInputStream(message), ENCODING);
+            fail("SAX decoder accepted nil");
+        } catch (SAXException ex) {
+            assertEquals("Unknown XML-RPC tag: nil", ex.getMessage());
+        }
+        try {
+            new XmlRpcResponse(message, ENCODING);
+            fail("XmlRpcReader accepted nil");
+        } catch (IOException ex) {
+            assertEquals("Unknown XML-RPC tag: nil", ex.getMessage());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedMessageTest() throws Exception {
+        byte[] message = load("listDevices.xml");
+        new XmlRpcResponse(Arrays.copyOf(message, message.length / 2), ENCODING);
+    }
+}
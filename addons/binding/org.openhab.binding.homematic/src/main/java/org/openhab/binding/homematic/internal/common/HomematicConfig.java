@@ -48,6 +48,8 @@ public class HomematicConfig {
 
     private Integer aliveInterval = 300;
     private int socketMaxAlive = 900;
+    private int socketPoolSize = 4;
+    private int metadataLoadParallelism = 3;
     private int timeout = 15;
     private int reconnectInterval = 0;
 
@@ -171,6 +173,34 @@ public class HomematicConfig {
         this.socketMaxAlive = socketMaxAlive;
     }
 
+    /**
+     * Returns the maximum number of concurrent socket connections per port to a Homematic gateway.
+     */
+    public int getSocketPoolSize() {
+        return socketPoolSize;
+    }
+
+    /**
+     * Sets the maximum number of concurrent socket connections per port to a Homematic gateway.
+     */
+    public void setSocketPoolSize(int socketPoolSize) {
+        this.socketPoolSize = socketPoolSize;
+    }
+
+    /**
+     * Returns the number of channel types whose metadata is loaded concurrently from a Homematic gateway.
+     */
+    public int getMetadataLoadParallelism() {
+        return metadataLoadParallelism;
+    }
+
+    /**
+     * Sets the number of channel types whose metadata is loaded concurrently from a Homematic gateway.
+     */
+    public void setMetadataLoadParallelism(int metadataLoadParallelism) {
+        this.metadataLoadParallelism = metadataLoadParallelism;
+    }
+
     /**
      * Returns the timeout for the communication to a Homematic gateway in seconds.
      */
@@ -343,7 +373,8 @@ public class HomematicConfig {
                 .append("gatewayType", gatewayType).append("rfPort", getRfPort()).append("wiredPort", getWiredPort())
                 .append("hmIpPort", getHmIpPort()).append("cuxdPort", getCuxdPort()).append("groupPort", getGroupPort())
                 .append("aliveInterval", aliveInterval).append("reconnectInterval", reconnectInterval)
-                .append("timeout", timeout).append("socketMaxAlive", socketMaxAlive);
+                .append("timeout", timeout).append("socketMaxAlive", socketMaxAlive)
+                .append("socketPoolSize", socketPoolSize).append("metadataLoadParallelism", metadataLoadParallelism);
         return tsb.toString();
     }
 }
@@ -16,11 +16,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -34,6 +38,7 @@ import org.openhab.binding.homematic.internal.communicator.client.TransferMode;
 import org.openhab.binding.homematic.internal.communicator.client.UnknownParameterSetException;
 import org.openhab.binding.homematic.internal.communicator.client.XmlRpcClient;
 import org.openhab.binding.homematic.internal.communicator.server.BinRpcServer;
+import org.openhab.binding.homematic.internal.communicator.server.RpcEvent;
 import org.openhab.binding.homematic.internal.communicator.server.RpcEventListener;
 import org.openhab.binding.homematic.internal.communicator.server.RpcServer;
 import org.openhab.binding.homematic.internal.communicator.server.XmlRpcServer;
@@ -55,10 +60,12 @@ import org.openhab.binding.homematic.internal.communicator.virtual.SignalStrengt
 import org.openhab.binding.homematic.internal.communicator.virtual.StateContactVirtualDatapointHandler;
 import org.openhab.binding.homematic.internal.communicator.virtual.VirtualDatapointHandler;
 import org.openhab.binding.homematic.internal.communicator.virtual.VirtualGateway;
+import org.openhab.binding.homematic.internal.misc.DatapointMetadataCache;
 import org.openhab.binding.homematic.internal.misc.DelayedExecuter;
 import org.openhab.binding.homematic.internal.misc.DelayedExecuter.DelayedExecuterCallback;
 import org.openhab.binding.homematic.internal.misc.HomematicClientException;
 import org.openhab.binding.homematic.internal.misc.MiscUtils;
+import org.openhab.binding.homematic.internal.misc.OrderedExecuter;
 import org.openhab.binding.homematic.internal.model.HmChannel;
 import org.openhab.binding.homematic.internal.model.HmDatapoint;
 import org.openhab.binding.homematic.internal.model.HmDatapointConfig;
@@ -82,6 +89,8 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     public static final double DEFAULT_DISABLE_DELAY = 2.0;
     private static final long CONNECTION_TRACKER_INTERVAL_SECONDS = 15;
     private static final String GATEWAY_POOL_NAME = "homematicGateway";
+    private static final String EVENT_POOL_NAME = "homematicEvents";
+    private static final String METADATA_POOL_NAME = "homematicMetadata";
 
     private Map<TransferMode, RpcClient<?>> rpcClients = new HashMap<TransferMode, RpcClient<?>>();
     private Map<TransferMode, RpcServer> rpcServers = new HashMap<TransferMode, RpcServer>();
@@ -91,6 +100,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     private HomematicGatewayListener eventListener;
     private long lastEventTime = System.currentTimeMillis();
     private DelayedExecuter delayedExecutor = new DelayedExecuter();
+    private OrderedExecuter eventExecuter = new OrderedExecuter(EVENT_POOL_NAME);
     private Set<HmDatapointInfo> echoEvents = Collections.synchronizedSet(new HashSet<HmDatapointInfo>());
     private ScheduledFuture<?> eventTrackerThread;
     private ScheduledFuture<?> connectionTrackerThread;
@@ -98,7 +108,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     private Map<String, HmDevice> devices = Collections.synchronizedMap(new HashMap<String, HmDevice>());
     private Map<HmInterface, TransferMode> availableInterfaces = new TreeMap<HmInterface, TransferMode>();
     private static List<VirtualDatapointHandler> virtualDatapointHandlers = new ArrayList<VirtualDatapointHandler>();
-    private boolean cancelLoadAllMetadata;
+    private volatile boolean cancelLoadAllMetadata;
     private boolean initialized;
 
     static {
@@ -186,6 +196,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         stopWatchdogs();
         delayedExecutor.stop();
         stopServers();
+        eventExecuter.clear();
         stopClients();
         devices.clear();
         echoEvents.clear();
@@ -375,9 +386,13 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         // load all device descriptions
         List<HmDevice> deviceDescriptions = getDeviceDescriptions();
 
+        // load the metadata of unknown channel types in parallel, known types are read from the cache
+        DatapointMetadataCache metadataCache = new DatapointMetadataCache(id, config.getGatewayInfo().getFirmware());
+        metadataCache.load();
+        loadUnknownChannelMetadata(deviceDescriptions, metadataCache);
+
         // loading datapoints for all channels
         Set<String> loadedDevices = new HashSet<String>();
-        Map<String, Collection<HmDatapoint>> datapointsByChannelIdCache = new HashMap<String, Collection<HmDatapoint>>();
         for (HmDevice device : deviceDescriptions) {
             if (!cancelLoadAllMetadata) {
                 try {
@@ -390,14 +405,11 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
                         for (HmChannel channel : device.getChannels()) {
                             logger.trace("  Loading channel {}", channel);
                             // speed up metadata generation a little bit for equal channels in the gateway devices
-                            if ((DEVICE_TYPE_VIRTUAL.equals(device.getType())
-                                    || DEVICE_TYPE_VIRTUAL_WIRED.equals(device.getType())) && channel.getNumber() > 1) {
+                            if (isClonedVirtualChannel(channel)) {
                                 HmChannel previousChannel = device.getChannel(channel.getNumber() - 1);
                                 cloneAllDatapointsIntoChannel(channel, previousChannel.getDatapoints().values());
-                            } else {
-                                String channelId = String.format("%s:%s:%s", channel.getDevice().getType(),
-                                        channel.getDevice().getFirmware(), channel.getNumber());
-                                Collection<HmDatapoint> cachedDatapoints = datapointsByChannelIdCache.get(channelId);
+                            } else if (channel.getDatapoints().isEmpty()) {
+                                Collection<HmDatapoint> cachedDatapoints = metadataCache.get(channel);
                                 if (cachedDatapoints != null) {
                                     // clone all datapoints
                                     cloneAllDatapointsIntoChannel(channel, cachedDatapoints);
@@ -405,7 +417,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
                                     logger.trace("    Loading datapoints into channel {}", channel);
                                     addChannelDatapoints(channel, HmParamsetType.MASTER);
                                     addChannelDatapoints(channel, HmParamsetType.VALUES);
-                                    datapointsByChannelIdCache.put(channelId, channel.getDatapoints().values());
+                                    metadataCache.put(channel);
                                 }
                             }
                         }
@@ -419,12 +431,85 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
                 }
             }
         }
+        metadataCache.save();
         if (!cancelLoadAllMetadata) {
             devices.keySet().retainAll(loadedDevices);
         }
         initialized = true;
     }
 
+    /**
+     * Returns true, if the channel of a virtual gateway device is cloned from its previous channel.
+     */
+    private boolean isClonedVirtualChannel(HmChannel channel) {
+        String deviceType = channel.getDevice().getType();
+        return (DEVICE_TYPE_VIRTUAL.equals(deviceType) || DEVICE_TYPE_VIRTUAL_WIRED.equals(deviceType))
+                && channel.getNumber() > 1;
+    }
+
+    /**
+     * Loads the metadata of all channel types which are not in the cache concurrently. The metadata is loaded into
+     * the first channel of each type and added to the cache. The datapoints of failed channels are removed, so they
+     * are loaded again one by one afterwards.
+     */
+    private void loadUnknownChannelMetadata(List<HmDevice> deviceDescriptions,
+            final DatapointMetadataCache metadataCache) {
+        Map<String, HmChannel> unknownChannels = new LinkedHashMap<String, HmChannel>();
+        for (HmDevice device : deviceDescriptions) {
+            if (!device.isGatewayExtras()) {
+                for (HmChannel channel : device.getChannels()) {
+                    String channelId = DatapointMetadataCache.getChannelId(channel);
+                    if (!isClonedVirtualChannel(channel) && !unknownChannels.containsKey(channelId)
+                            && metadataCache.get(channel) == null) {
+                        unknownChannels.put(channelId, channel);
+                    }
+                }
+            }
+        }
+        if (unknownChannels.isEmpty()) {
+            return;
+        }
+
+        int parallelism = Math.max(1, Math.min(config.getMetadataLoadParallelism(), unknownChannels.size()));
+        logger.debug("Loading metadata of {} unknown channel types from gateway '{}' with {} threads",
+                unknownChannels.size(), id, parallelism);
+
+        final Queue<HmChannel> channelQueue = new ConcurrentLinkedQueue<HmChannel>(unknownChannels.values());
+        final CountDownLatch finished = new CountDownLatch(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            ThreadPoolManager.getPool(METADATA_POOL_NAME).execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        HmChannel channel;
+                        while (!cancelLoadAllMetadata && (channel = channelQueue.poll()) != null) {
+                            try {
+                                addChannelDatapoints(channel, HmParamsetType.MASTER);
+                                addChannelDatapoints(channel, HmParamsetType.VALUES);
+                                metadataCache.put(channel);
+                            } catch (IOException ex) {
+                                logger.debug("Can't load metadata of channel {} of device '{}' from gateway '{}': {}",
+                                        channel.getNumber(), channel.getDevice().getAddress(), id, ex.getMessage());
+                                // drop partially loaded paramsets, so the channel is loaded again completely
+                                channel.getDatapoints().clear();
+                            }
+                        }
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            });
+        }
+
+        try {
+            finished.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            cancelLoadAllMetadata = true;
+        }
+    }
+
     /**
      * Loads all datapoints from the gateway.
      */
@@ -641,12 +726,68 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
      */
     @Override
     public void eventReceived(HmDatapointInfo dpInfo, Object newValue) {
+        eventsReceived(Collections.singletonList(new RpcEvent(dpInfo, newValue)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void eventsReceived(List<RpcEvent> events) {
+        lastEventTime = System.currentTimeMillis();
+
+        // group the events by device and keep only the latest value of each datapoint, except for key presses
+        Map<String, List<RpcEvent>> eventsByDevice = new LinkedHashMap<String, List<RpcEvent>>();
+        Map<HmDatapointInfo, Integer> eventIndex = new HashMap<HmDatapointInfo, Integer>();
+        for (RpcEvent event : events) {
+            HmDatapointInfo dpInfo = event.getDpInfo();
+            List<RpcEvent> deviceEvents = eventsByDevice.get(dpInfo.getAddress());
+            if (deviceEvents == null) {
+                deviceEvents = new ArrayList<RpcEvent>();
+                eventsByDevice.put(dpInfo.getAddress(), deviceEvents);
+            }
+            if (!StringUtils.startsWith(dpInfo.getName(), "PRESS_")) {
+                Integer previousIndex = eventIndex.put(dpInfo, deviceEvents.size());
+                if (previousIndex != null) {
+                    deviceEvents.set(previousIndex, null);
+                    event.setCoalesced(true);
+                }
+            }
+            deviceEvents.add(event);
+        }
+        if (events.size() > 1) {
+            logger.debug("Received {} events for {} devices from gateway with id '{}'", events.size(),
+                    eventsByDevice.size(), id);
+        }
+
+        for (Entry<String, List<RpcEvent>> entry : eventsByDevice.entrySet()) {
+            final List<RpcEvent> deviceEvents = entry.getValue();
+            eventExecuter.execute(entry.getKey(), new Runnable() {
+
+                @Override
+                public void run() {
+                    for (RpcEvent event : deviceEvents) {
+                        if (event != null) {
+                            handleEvent(event);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Updates the datapoint of the event and notifies the listener.
+     */
+    private void handleEvent(RpcEvent event) {
+        HmDatapointInfo dpInfo = event.getDpInfo();
+        Object newValue = event.getValue();
         String className = newValue == null ? "Unknown" : newValue.getClass().getSimpleName();
         logger.debug("Received new ({}) value '{}' for '{}' from gateway with id '{}'", className, newValue, dpInfo,
                 id);
-        lastEventTime = System.currentTimeMillis();
 
-        if (echoEvents.remove(dpInfo)) {
+        // a coalesced event also contains the value received after the echo
+        if (echoEvents.remove(dpInfo) && !event.isCoalesced()) {
             logger.debug("Echo event detected, ignoring '{}'", dpInfo);
         } else {
             try {
@@ -71,22 +71,32 @@ public class BinRpcClient extends RpcClient<byte[]> {
      * Sends a BIN-RPC message and parses the response to see if there was an error.
      */
     @Override
-    protected synchronized Object[] sendMessage(int port, RpcRequest<byte[]> request) throws IOException {
+    protected Object[] sendMessage(int port, RpcRequest<byte[]> request) throws IOException {
         if (logger.isTraceEnabled()) {
             logger.trace("Client BinRpcRequest:\n{}", request);
         }
-        return sendMessage(port, request, 0);
+        return sendMessage(port, request, false, 0);
+    }
+
+    /**
+     * Sends a BIN-RPC message on a socket reserved for priority requests.
+     */
+    @Override
+    protected Object[] sendPriorityMessage(int port, RpcRequest<byte[]> request) throws IOException {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Client BinRpcRequest (priority):\n{}", request);
+        }
+        return sendMessage(port, request, true, 0);
     }
 
     /**
      * Sends the message, retries if there was an error.
      */
-    private Object[] sendMessage(int port, RpcRequest<byte[]> request, int rpcRetryCounter) throws IOException {
+    private Object[] sendMessage(int port, RpcRequest<byte[]> request, boolean priority, int rpcRetryCounter)
+            throws IOException {
         BinRpcMessage resp = null;
         try {
-            Socket socket = socketHandler.getSocket(port);
-            socket.getOutputStream().write(request.createMessage());
-            resp = new BinRpcMessage(socket.getInputStream(), false, config.getEncoding());
+            resp = sendAndReceive(port, request, priority);
             return new RpcResponseParser(request).parse(resp.getResponseData());
         } catch (UnknownRpcFailureException | UnknownParameterSetException rpcEx) {
             // throw immediately, don't retry the message
@@ -98,8 +108,9 @@ public class BinRpcClient extends RpcClient<byte[]> {
                 rpcRetryCounter++;
                 logger.debug("BinRpcMessage socket failure, sending message again {}/{}", rpcRetryCounter,
                         MAX_RPC_RETRY);
+                // the other pooled sockets are most likely broken as well, e.g. after a restart of the gateway
                 socketHandler.removeSocket(port);
-                return sendMessage(port, request, rpcRetryCounter);
+                return sendMessage(port, request, priority, rpcRetryCounter);
             }
         } finally {
             if (logger.isTraceEnabled()) {
@@ -108,4 +119,25 @@ public class BinRpcClient extends RpcClient<byte[]> {
         }
     }
 
+    /**
+     * Writes the request to a pooled socket and reads the response, the socket is closed if anything fails.
+     */
+    private BinRpcMessage sendAndReceive(int port, RpcRequest<byte[]> request, boolean priority) throws IOException {
+        SocketInfo socketInfo = socketHandler.getSocket(port, priority);
+        boolean success = false;
+        try {
+            Socket socket = socketInfo.getSocket();
+            socket.getOutputStream().write(request.createMessage());
+            BinRpcMessage resp = new BinRpcMessage(socket.getInputStream(), false, config.getEncoding());
+            success = true;
+            return resp;
+        } finally {
+            if (success) {
+                socketHandler.releaseSocket(socketInfo);
+            } else {
+                socketHandler.invalidateSocket(socketInfo);
+            }
+        }
+    }
+
 }
@@ -72,6 +72,13 @@ public abstract class RpcClient<T> {
      */
     protected abstract Object[] sendMessage(int port, RpcRequest<T> request) throws IOException;
 
+    /**
+     * Sends a RPC message which should not wait behind bulk requests, e.g. a command from the user.
+     */
+    protected Object[] sendPriorityMessage(int port, RpcRequest<T> request) throws IOException {
+        return sendMessage(port, request);
+    }
+
     /**
      * Register a callback for the specified interface where the Homematic gateway can send its events.
      */
@@ -278,7 +285,7 @@ public abstract class RpcClient<T> {
             paramSet.put(dp.getName(), value);
             request.addArg(paramSet);
         }
-        sendMessage(config.getRpcPort(dp.getChannel()), request);
+        sendPriorityMessage(config.getRpcPort(dp.getChannel()), request);
     }
 
     /**
@@ -288,7 +295,7 @@ public abstract class RpcClient<T> {
         RpcRequest<T> request = createRpcRequest("setSystemVariable");
         request.addArg(dp.getInfo());
         request.addArg(value);
-        sendMessage(config.getRpcPort(dp.getChannel()), request);
+        sendPriorityMessage(config.getRpcPort(dp.getChannel()), request);
     }
 
     /**
@@ -297,7 +304,7 @@ public abstract class RpcClient<T> {
     public void executeScript(HmDatapoint dp) throws IOException {
         RpcRequest<T> request = createRpcRequest("runScript");
         request.addArg(dp.getInfo());
-        sendMessage(config.getRpcPort(dp.getChannel()), request);
+        sendPriorityMessage(config.getRpcPort(dp.getChannel()), request);
     }
 
     /**
@@ -9,24 +9,18 @@
 package org.openhab.binding.homematic.internal.communicator.client;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
- * Simple socket cache class.
+ * Thread safe socket cache with a bounded pool of sockets per port.
  *
  * @author Gerhard Riegler - Initial contribution
  */
 public class SocketHandler {
-    private final Logger logger = LoggerFactory.getLogger(SocketHandler.class);
-
-    private Map<Integer, SocketInfo> socketsPerPort = new HashMap<Integer, SocketInfo>();
+    private final ConcurrentMap<Integer, SocketPool> socketPoolsPerPort = new ConcurrentHashMap<Integer, SocketPool>();
     private HomematicConfig config;
 
     public SocketHandler(HomematicConfig config) {
@@ -34,40 +28,35 @@ public class SocketHandler {
     }
 
     /**
-     * Returns a socket for the given port, (re)creates it if required.
+     * Borrows a socket for the given port, (re)creates it if required. The socket must be given back with
+     * {@link #releaseSocket(SocketInfo)} or {@link #invalidateSocket(SocketInfo)}.
      */
-    public Socket getSocket(int port) throws IOException {
-        SocketInfo socketInfo = socketsPerPort.get(port);
-        if (socketInfo == null) {
-            logger.trace("Creating new socket for port {}", port);
-            Socket socket = new Socket();
-            socket.setSoTimeout(config.getTimeout() * 1000);
-            socket.connect(new InetSocketAddress(config.getGatewayAddress(), port), socket.getSoTimeout());
-            socketInfo = new SocketInfo(socket);
-            socketsPerPort.put(port, socketInfo);
-        } else {
-            boolean isMaxAliveReached = System.currentTimeMillis()
-                    - socketInfo.getCreated() > (config.getSocketMaxAlive() * 1000);
+    public SocketInfo getSocket(int port, boolean priority) throws IOException {
+        return getSocketPool(port).borrow(priority);
+    }
 
-            if (isMaxAliveReached) {
-                logger.debug("Max alive time reached for socket on port {}", port);
-                removeSocket(port);
-                return getSocket(port);
-            }
-            logger.trace("Returning socket for port {}", port);
-        }
-        return socketInfo.getSocket();
+    /**
+     * Returns the socket to the pool for reuse.
+     */
+    public void releaseSocket(SocketInfo socketInfo) {
+        getSocketPool(socketInfo.getPort()).release(socketInfo);
+    }
+
+    /**
+     * Closes the socket, it is not used anymore.
+     */
+    public void invalidateSocket(SocketInfo socketInfo) {
+        getSocketPool(socketInfo.getPort()).invalidate(socketInfo);
     }
 
     /**
-     * Removes the socket for the given port from the cache.
+     * Removes all sockets for the given port from the cache. Idle sockets are closed immediately, sockets currently in
+     * use are closed when they are returned.
      */
     public void removeSocket(int port) {
-        SocketInfo socketInfo = socketsPerPort.get(port);
-        if (socketInfo != null) {
-            logger.trace("Closing Socket on port {}", port);
-            socketsPerPort.remove(port);
-            closeSilent(socketInfo.getSocket());
+        SocketPool socketPool = socketPoolsPerPort.get(port);
+        if (socketPool != null) {
+            socketPool.clear();
         }
     }
 
@@ -75,22 +64,20 @@ public class SocketHandler {
      * Removes all cached sockets.
      */
     public void flush() {
-        synchronized (SocketHandler.class) {
-            Integer[] portsToRemove = socketsPerPort.keySet().toArray(new Integer[0]);
-            for (Integer key : portsToRemove) {
-                removeSocket(key);
-            }
+        for (SocketPool socketPool : socketPoolsPerPort.values()) {
+            socketPool.clear();
         }
     }
 
-    /**
-     * Silently closes the given socket.
-     */
-    private void closeSilent(Socket socket) {
-        try {
-            socket.close();
-        } catch (IOException e) {
-            // ignore
+    private SocketPool getSocketPool(int port) {
+        SocketPool socketPool = socketPoolsPerPort.get(port);
+        if (socketPool == null) {
+            SocketPool newSocketPool = new SocketPool(config, port);
+            socketPool = socketPoolsPerPort.putIfAbsent(port, newSocketPool);
+            if (socketPool == null) {
+                socketPool = newSocketPool;
+            }
         }
+        return socketPool;
     }
 }
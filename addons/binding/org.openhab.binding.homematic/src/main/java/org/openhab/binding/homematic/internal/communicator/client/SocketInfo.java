@@ -17,10 +17,14 @@ import java.net.Socket;
  */
 public class SocketInfo {
     private Socket socket;
+    private int port;
     private long created;
+    private int generation;
 
-    public SocketInfo(Socket socket) {
+    public SocketInfo(Socket socket, int port, int generation) {
         this.socket = socket;
+        this.port = port;
+        this.generation = generation;
         this.created = System.currentTimeMillis();
     }
 
@@ -31,10 +35,24 @@ public class SocketInfo {
         return socket;
     }
 
+    /**
+     * Returns the port of the socket.
+     */
+    public int getPort() {
+        return port;
+    }
+
     /**
      * Returns the timestamp when the socket has been created.
      */
     public long getCreated() {
         return created;
     }
+
+    /**
+     * Returns the pool generation the socket has been created in.
+     */
+    public int getGeneration() {
+        return generation;
+    }
 }
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.binding.homematic.internal.common.HomematicConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of sockets to one port of a Homematic gateway. Priority requests may use all sockets of the pool and
+ * are served first when a socket is returned, normal requests leave one socket free for them.
+ *
+ * @author agent - Initial contribution
+ */
+class SocketPool {
+    private final Logger logger = LoggerFactory.getLogger(SocketPool.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition socketReleased = lock.newCondition();
+    private final Deque<SocketInfo> idleSockets = new ArrayDeque<SocketInfo>();
+
+    private final HomematicConfig config;
+    private final int port;
+    private final int maxSize;
+
+    private int borrowed;
+    private int waitingPriority;
+    private int generation;
+
+    SocketPool(HomematicConfig config, int port) {
+        this.config = config;
+        this.port = port;
+        this.maxSize = Math.max(1, config.getSocketPoolSize());
+    }
+
+    /**
+     * Borrows a healthy socket from the pool, waits at most the configured timeout for a free slot and connects a new
+     * socket if no idle one is available.
+     */
+    SocketInfo borrow(boolean priority) throws IOException {
+        int socketGeneration;
+        lock.lock();
+        try {
+            waitForSlot(priority);
+            borrowed++;
+            socketGeneration = generation;
+
+            SocketInfo socketInfo;
+            while ((socketInfo = idleSockets.pollFirst()) != null) {
+                if (isHealthy(socketInfo)) {
+                    logger.trace("Returning socket for port {}", port);
+                    return socketInfo;
+                }
+                closeSilent(socketInfo);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            return connect(socketGeneration);
+        } catch (IOException ex) {
+            release(null);
+            throw ex;
+        }
+    }
+
+    private void waitForSlot(boolean priority) throws IOException {
+        long remaining = TimeUnit.SECONDS.toNanos(config.getTimeout());
+        if (priority) {
+            waitingPriority++;
+        }
+        try {
+            while (!hasFreeSlot(priority)) {
+                if (remaining <= 0) {
+                    throw new IOException("Timeout waiting for a free socket on port " + port);
+                }
+                remaining = socketReleased.awaitNanos(remaining);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a free socket on port " + port);
+        } finally {
+            if (priority) {
+                waitingPriority--;
+            }
+        }
+    }
+
+    private boolean hasFreeSlot(boolean priority) {
+        if (priority) {
+            return borrowed < maxSize;
+        }
+        int maxNormal = maxSize > 1 ? maxSize - 1 : maxSize;
+        return waitingPriority == 0 && borrowed < maxNormal;
+    }
+
+    private SocketInfo connect(int socketGeneration) throws IOException {
+        logger.trace("Creating new socket for port {}", port);
+        Socket socket = new Socket();
+        try {
+            socket.setSoTimeout(config.getTimeout() * 1000);
+            socket.connect(new InetSocketAddress(config.getGatewayAddress(), port), socket.getSoTimeout());
+        } catch (IOException ex) {
+            closeSilent(socket);
+            throw ex;
+        }
+        return new SocketInfo(socket, port, socketGeneration);
+    }
+
+    /**
+     * Returns a socket to the pool after a successful request. Sockets from an older generation or which reached
+     * their max alive time are closed.
+     */
+    void release(SocketInfo socketInfo) {
+        lock.lock();
+        try {
+            borrowed--;
+            if (socketInfo != null) {
+                if (socketInfo.getGeneration() == generation && isHealthy(socketInfo)) {
+                    idleSockets.addFirst(socketInfo);
+                } else {
+                    closeSilent(socketInfo);
+                }
+            }
+            socketReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes a socket after a failed request.
+     */
+    void invalidate(SocketInfo socketInfo) {
+        closeSilent(socketInfo);
+        release(null);
+    }
+
+    /**
+     * Closes all idle sockets, sockets currently in use are closed when they are returned.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            generation++;
+            SocketInfo socketInfo;
+            while ((socketInfo = idleSockets.pollFirst()) != null) {
+                logger.trace("Closing Socket on port {}", port);
+                closeSilent(socketInfo);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true, if the socket is still connected, has not reached its max alive time and has no unexpected data
+     * pending.
+     */
+    private boolean isHealthy(SocketInfo socketInfo) {
+        Socket socket = socketInfo.getSocket();
+        if (socket.isClosed() || !socket.isConnected() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - socketInfo.getCreated() > (config.getSocketMaxAlive() * 1000L)) {
+            logger.debug("Max alive time reached for socket on port {}", port);
+            return false;
+        }
+        try {
+            return socket.getInputStream().available() == 0;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Silently closes the given socket.
+     */
+    private void closeSilent(SocketInfo socketInfo) {
+        closeSilent(socketInfo.getSocket());
+    }
+
+    private void closeSilent(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
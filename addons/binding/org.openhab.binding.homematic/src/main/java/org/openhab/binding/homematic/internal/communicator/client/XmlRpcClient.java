@@ -8,7 +8,6 @@
  */
 package org.openhab.binding.homematic.internal.communicator.client;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
@@ -37,6 +36,7 @@ public class XmlRpcClient extends RpcClient<String> {
         super(config);
         httpClient = new HttpClient();
         httpClient.setConnectTimeout(config.getTimeout() * 1000L);
+        httpClient.setMaxConnectionsPerDestination(Math.max(1, config.getSocketPoolSize()));
 
         try {
             httpClient.start();
@@ -75,7 +75,7 @@ public class XmlRpcClient extends RpcClient<String> {
      * {@inheritDoc}
      */
     @Override
-    protected synchronized Object[] sendMessage(int port, RpcRequest<String> request) throws IOException {
+    protected Object[] sendMessage(int port, RpcRequest<String> request) throws IOException {
         if (logger.isTraceEnabled()) {
             logger.trace("Client XmlRpcRequest (port {}):\n{}", port, request);
         }
@@ -85,8 +85,7 @@ public class XmlRpcClient extends RpcClient<String> {
     /**
      * Sends the message, retries if there was an error.
      */
-    private synchronized Object[] sendMessage(int port, RpcRequest<String> request, int rpcRetryCounter)
-            throws IOException {
+    private Object[] sendMessage(int port, RpcRequest<String> request, int rpcRetryCounter) throws IOException {
         try {
             BytesContentProvider content = new BytesContentProvider(
                     request.createMessage().getBytes(config.getEncoding()));
@@ -98,13 +97,12 @@ public class XmlRpcClient extends RpcClient<String> {
                     .timeout(config.getTimeout(), TimeUnit.SECONDS)
                     .header(HttpHeader.CONTENT_TYPE, "text/xml;charset=" + config.getEncoding()).send();
 
-            String result = new String(response.getContent(), config.getEncoding());
+            byte[] result = response.getContent();
             if (logger.isTraceEnabled()) {
-                logger.trace("Client XmlRpcResponse (port {}):\n{}", port, result);
+                logger.trace("Client XmlRpcResponse (port {}):\n{}", port, new String(result, config.getEncoding()));
             }
 
-            Object[] data = new XmlRpcResponse(new ByteArrayInputStream(result.getBytes(config.getEncoding())),
-                    config.getEncoding()).getResponseData();
+            Object[] data = new XmlRpcResponse(result, config.getEncoding()).getResponseData();
             return new RpcResponseParser(request).parse(data);
         } catch (UnknownRpcFailureException | UnknownParameterSetException ex) {
             throw ex;
@@ -15,42 +15,54 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.text.ParseException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Handles BIN-RPC request and response messages to communicate with a Homematic gateway.
+ * <p>
+ * Frames are decoded straight from a {@link ByteBuffer} without intermediate copies. When reading from a stream, the
+ * frame is received into a buffer which is reused by the reading thread, so only the decoded values are allocated.
  *
  * @author Gerhard Riegler - Initial contribution
  */
 public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     private final Logger logger = LoggerFactory.getLogger(BinRpcMessage.class);
 
+    private static final int HEADER_LENGTH = 8;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> READ_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[INITIAL_BUFFER_SIZE];
+        }
+    };
+
     public enum TYPE {
         REQUEST,
         RESPONSE;
     }
 
     private Object[] messageData;
-    private byte binRpcData[];
-    private int offset;
+    private ByteBuffer binRpcData;
 
     private String methodName;
     private TYPE type;
     private int args;
-    private String encoding;
+    private int argCountPosition = -1;
+    private Charset charset;
 
     public BinRpcMessage(String methodName, String encoding) {
         this(methodName, TYPE.REQUEST, encoding);
@@ -62,7 +74,7 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     public BinRpcMessage(String methodName, TYPE type, String encoding) {
         this.methodName = methodName;
         this.type = type;
-        this.encoding = encoding;
+        this.charset = toCharset(encoding);
         createHeader();
     }
 
@@ -70,77 +82,141 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
      * Decodes a BIN-RPC message from the given InputStream.
      */
     public BinRpcMessage(InputStream is, boolean methodHeader, String encoding) throws IOException {
-        this.encoding = encoding;
-        byte sig[] = new byte[8];
-        int length = is.read(sig, 0, 4);
-        if (length != 4) {
-            throw new EOFException("Only " + length + " bytes received reading signature");
+        this.charset = toCharset(encoding);
+        byte[] buffer = READ_BUFFER.get();
+        readFully(is, buffer, 0, 4, "signature");
+        validateBinXSignature(buffer);
+        readFully(is, buffer, 4, 4, "message length");
+        int datasize = getInt(buffer, 4);
+        if (datasize < 0) {
+            throw new IOException("Invalid BIN-RPC message length " + datasize);
         }
-        validateBinXSignature(sig);
-        length = is.read(sig, 4, 4);
-        if (length != 4) {
-            throw new EOFException("Only " + length + " bytes received reading message length");
-        }
-        int datasize = (new BigInteger(ArrayUtils.subarray(sig, 4, 8))).intValue();
-        byte[] message = ArrayUtils.addAll(sig, IOUtils.toByteArray(is, datasize));
-        decodeMessage(message, methodHeader);
-    }
 
-    private void validateBinXSignature(byte[] sig) throws UnsupportedEncodingException {
-        if (sig[0] != 'B' || sig[1] != 'i' || sig[2] != 'n') {
-            throw new UnsupportedEncodingException("No BinX signature");
+        int length = HEADER_LENGTH + datasize;
+        if (length > buffer.length) {
+            byte[] grown = new byte[length];
+            System.arraycopy(buffer, 0, grown, 0, HEADER_LENGTH);
+            buffer = grown;
+            if (length <= MAX_REUSED_BUFFER_SIZE) {
+                READ_BUFFER.set(buffer);
+            }
         }
+        readFully(is, buffer, HEADER_LENGTH, datasize, "message data");
+        decodeMessage(ByteBuffer.wrap(buffer, 0, length), methodHeader);
     }
 
     /**
      * Decodes a BIN-RPC message from the given byte array.
      */
     public BinRpcMessage(byte[] message, boolean methodHeader, String encoding) throws IOException, ParseException {
-        this.encoding = encoding;
-        if (message.length < 8) {
-            throw new EOFException("Only " + message.length + " bytes received");
+        this(ByteBuffer.wrap(message), methodHeader, encoding);
+    }
+
+    /**
+     * Decodes a complete BIN-RPC message from the remaining bytes of the given buffer. The buffer is only read while
+     * decoding and may be reused by the caller afterwards.
+     */
+    public BinRpcMessage(ByteBuffer message, boolean methodHeader, String encoding) throws IOException {
+        this.charset = toCharset(encoding);
+        if (message.remaining() < HEADER_LENGTH) {
+            throw new EOFException("Only " + message.remaining() + " bytes received");
+        }
+        ByteBuffer frame = message.slice();
+        validateBinXSignature(frame);
+        decodeMessage(frame, methodHeader);
+    }
+
+    private static void readFully(InputStream is, byte[] buffer, int offset, int length, String part)
+            throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = is.read(buffer, offset + read, length - read);
+            if (count < 0) {
+                throw new EOFException("Only " + read + " bytes received reading " + part);
+            }
+            read += count;
+        }
+    }
+
+    private static int getInt(byte[] data, int position) {
+        return ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+                | ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+    }
+
+    private static Charset toCharset(String encoding) {
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalArgumentException ex) {
+            return Charset.defaultCharset();
         }
-        validateBinXSignature(message);
-        decodeMessage(message, methodHeader);
     }
 
-    private void decodeMessage(byte[] message, boolean methodHeader) throws IOException {
-        binRpcData = message;
+    private void validateBinXSignature(byte[] sig) throws UnsupportedEncodingException {
+        if (sig[0] != 'B' || sig[1] != 'i' || sig[2] != 'n') {
+            throw new UnsupportedEncodingException("No BinX signature");
+        }
+    }
 
-        offset = 8;
+    private void validateBinXSignature(ByteBuffer frame) throws UnsupportedEncodingException {
+        if (frame.get(0) != 'B' || frame.get(1) != 'i' || frame.get(2) != 'n') {
+            throw new UnsupportedEncodingException("No BinX signature");
+        }
+    }
 
-        if (methodHeader) {
-            methodName = readString();
-            readInt();
+    private void decodeMessage(ByteBuffer frame, boolean methodHeader) throws IOException {
+        type = frame.get(3) == 1 ? TYPE.RESPONSE : TYPE.REQUEST;
+        frame.position(HEADER_LENGTH);
+        try {
+            if (methodHeader) {
+                methodName = readString(frame);
+                frame.getInt();
+            }
+            messageData = readRpcValues(frame);
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException("Incomplete BIN-RPC message, " + frame.limit() + " bytes received");
         }
-        generateResponseData();
     }
 
     public void setType(TYPE type) {
-        binRpcData[3] = type == TYPE.RESPONSE ? (byte) 1 : (byte) 0;
+        this.type = type;
+        if (binRpcData != null) {
+            binRpcData.put(3, type == TYPE.RESPONSE ? (byte) 1 : (byte) 0);
+        }
     }
 
-    private void generateResponseData() throws IOException {
-        offset = 8 + (methodName != null ? methodName.length() + 8 : 0);
-        List<Object> values = new ArrayList<Object>();
-        while (offset < binRpcData.length) {
-            values.add(readRpcValue());
+    private Object[] readRpcValues(ByteBuffer frame) throws IOException {
+        Object[] values = new Object[4];
+        int count = 0;
+        while (frame.hasRemaining()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = readRpcValue(frame);
         }
-        messageData = values.toArray();
-        values.clear();
+        return count == values.length ? values : Arrays.copyOf(values, count);
     }
 
     private void createHeader() {
-        binRpcData = new byte[256];
-        addString("Bin ");
+        binRpcData = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        binRpcData.put((byte) 'B').put((byte) 'i').put((byte) 'n').put((byte) 0);
         setType(type);
-        addInt(0); // placeholder content length
+        binRpcData.putInt(0); // placeholder content length
         if (methodName != null) {
-            addInt(methodName.length());
             addString(methodName);
-            addInt(0); // placeholder arguments
+            argCountPosition = binRpcData.position();
+            binRpcData.putInt(0); // placeholder arguments
+        }
+        binRpcData.putInt(4, binRpcData.position() - HEADER_LENGTH);
+    }
+
+    /**
+     * Encodes the data of a decoded message, which is only needed if the message is sent again or dumped.
+     */
+    private void encodeMessageData() {
+        createHeader();
+        for (Object value : messageData) {
+            addArg(value);
         }
-        setInt(4, offset - 8);
     }
 
     /**
@@ -149,10 +225,10 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     @Override
     public void addArg(Object argument) {
         addObject(argument);
-        setInt(4, offset - 8);
+        binRpcData.putInt(4, binRpcData.position() - HEADER_LENGTH);
 
-        if (methodName != null) {
-            setInt(12 + methodName.length(), ++args);
+        if (argCountPosition >= 0) {
+            binRpcData.putInt(argCountPosition, ++args);
         }
     }
 
@@ -170,14 +246,10 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
      */
     @Override
     public byte[] createMessage() {
-        trimBinRpcData();
-        return binRpcData;
-    }
-
-    private void trimBinRpcData() {
-        byte[] trimmed = new byte[offset];
-        System.arraycopy(binRpcData, 0, trimmed, 0, offset);
-        binRpcData = trimmed;
+        if (binRpcData == null) {
+            encodeMessageData();
+        }
+        return Arrays.copyOf(binRpcData.array(), binRpcData.position());
     }
 
     /**
@@ -189,82 +261,122 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     }
 
     // read rpc values
-    private int readInt() {
-        byte bi[] = new byte[4];
-        System.arraycopy(binRpcData, offset, bi, 0, 4);
-        offset += 4;
-        return (new BigInteger(bi)).intValue();
-    }
-
-    private String readString() throws UnsupportedEncodingException {
-        int len = readInt();
-        offset += len;
-        return new String(binRpcData, offset - len, len, encoding);
+    private String readString(ByteBuffer frame) {
+        int len = frame.getInt();
+        if (len < 0 || len > frame.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (frame.hasArray()) {
+            value = new String(frame.array(), frame.arrayOffset() + frame.position(), len, charset);
+            frame.position(frame.position() + len);
+        } else {
+            byte[] data = new byte[len];
+            frame.get(data);
+            value = new String(data, charset);
+        }
+        return value;
     }
 
-    private Object readRpcValue() throws IOException {
-        int type = readInt();
+    private Object readRpcValue(ByteBuffer frame) throws IOException {
+        int type = frame.getInt();
         switch (type) {
             case 1:
-                return new Integer(readInt());
+                return Integer.valueOf(frame.getInt());
             case 2:
-                return binRpcData[offset++] != 0 ? Boolean.TRUE : Boolean.FALSE;
+                return frame.get() != 0 ? Boolean.TRUE : Boolean.FALSE;
             case 3:
-                return readString();
+                return readString(frame);
             case 4:
-                int mantissa = readInt();
-                int exponent = readInt();
-                BigDecimal bd = new BigDecimal((double) mantissa / (double) (1 << 30) * Math.pow(2, exponent));
-                return bd.setScale(6, RoundingMode.HALF_DOWN).doubleValue();
+                int mantissa = frame.getInt();
+                int exponent = frame.getInt();
+                return readDouble(mantissa, exponent);
             case 5:
-                return new Date(readInt() * 1000);
+                return new Date(frame.getInt() * 1000L);
             case 0x100:
                 // Array
-                int numElements = readInt();
-                Collection<Object> array = new ArrayList<Object>();
-                while (numElements-- > 0) {
-                    array.add(readRpcValue());
+                int numElements = frame.getInt();
+                Object[] array = new Object[checkElementCount(numElements, frame)];
+                for (int i = 0; i < numElements; i++) {
+                    array[i] = readRpcValue(frame);
                 }
-                return array.toArray();
+                return array;
             case 0x101:
                 // Struct
-                numElements = readInt();
-                Map<String, Object> struct = new TreeMap<String, Object>();
-                while (numElements-- > 0) {
-                    String name = readString();
-                    struct.put(name, readRpcValue());
+                numElements = frame.getInt();
+                String[] names = new String[checkElementCount(numElements, frame)];
+                Object[] values = new Object[numElements];
+                for (int i = 0; i < numElements; i++) {
+                    names[i] = readString(frame);
+                    values[i] = readRpcValue(frame);
                 }
-                return struct;
+                return new BinRpcStruct(names, values);
 
             default:
-                for (int i = 0; i < binRpcData.length; i++) {
-                    logger.info("{} {}", Integer.toHexString(binRpcData[i]), (char) binRpcData[i]);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Unknown data type {} at offset {} in BIN-RPC message: {}", type,
+                            frame.position() - 4, dumpFrame(frame));
                 }
                 throw new IOException("Unknown data type " + type);
         }
     }
 
-    private void setInt(int position, int value) {
-        int temp = offset;
-        offset = position;
-        addInt(value);
-        offset = temp;
+    /**
+     * Every array element or struct member needs at least 4 bytes, so a count that can not fit into the remaining
+     * data is rejected before allocating anything.
+     */
+    private int checkElementCount(int numElements, ByteBuffer frame) {
+        if (numElements < 0 || numElements > frame.remaining() / 4) {
+            throw new BufferUnderflowException();
+        }
+        return numElements;
     }
 
-    private void addByte(byte b) {
-        if (offset == binRpcData.length) {
-            byte newdata[] = new byte[binRpcData.length * 2];
-            System.arraycopy(binRpcData, 0, newdata, 0, binRpcData.length);
-            binRpcData = newdata;
+    /**
+     * Converts the BIN-RPC mantissa/exponent representation to a double rounded to six decimal places.
+     */
+    private static double readDouble(int mantissa, int exponent) {
+        double value = Math.scalb((double) mantissa, exponent - 30);
+        double scaled = value * 64;
+        if (scaled == Math.rint(scaled)) {
+            // a multiple of 1/64 has at most six decimal places, rounding would not change it
+            return value;
         }
-        binRpcData[offset++] = b;
+        return new BigDecimal(value).setScale(6, RoundingMode.HALF_DOWN).doubleValue();
+    }
+
+    private static String dumpFrame(ByteBuffer frame) {
+        StringBuilder sb = new StringBuilder(frame.limit() * 3);
+        for (int i = 0; i < frame.limit(); i++) {
+            byte b = frame.get(i);
+            sb.append(Integer.toHexString(b & 0xFF));
+            if (b >= 0x20 && b < 0x7F) {
+                sb.append('(').append((char) b).append(')');
+            }
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+    // write rpc values
+    private void ensureCapacity(int additional) {
+        if (binRpcData.remaining() < additional) {
+            int newCapacity = Math.max(binRpcData.capacity() * 2, binRpcData.position() + additional);
+            ByteBuffer newData = ByteBuffer.allocate(newCapacity);
+            binRpcData.flip();
+            newData.put(binRpcData);
+            binRpcData = newData;
+        }
+    }
+
+    private void addByte(byte b) {
+        ensureCapacity(1);
+        binRpcData.put(b);
     }
 
     private void addInt(int value) {
-        addByte((byte) (value >> 24));
-        addByte((byte) (value >> 16));
-        addByte((byte) (value >> 8));
-        addByte((byte) (value));
+        ensureCapacity(4);
+        binRpcData.putInt(value);
     }
 
     private void addDouble(double value) {
@@ -285,20 +397,19 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
             tmp *= -1;
         }
         int mantissa = (int) Math.round(tmp * 0x40000000);
-        addInt(mantissa);
-        addInt(exp);
+        ensureCapacity(8);
+        binRpcData.putInt(mantissa);
+        binRpcData.putInt(exp);
     }
 
+    /**
+     * Adds the length of the encoded string followed by the encoded bytes.
+     */
     private void addString(String string) {
-        byte sd[];
-        try {
-            sd = string.getBytes(encoding);
-        } catch (UnsupportedEncodingException use) {
-            sd = string.getBytes();
-        }
-        for (byte ch : sd) {
-            addByte(ch);
-        }
+        byte sd[] = string.getBytes(charset);
+        ensureCapacity(4 + sd.length);
+        binRpcData.putInt(sd.length);
+        binRpcData.put(sd);
     }
 
     private void addList(Collection<?> collection) {
@@ -310,9 +421,7 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     private void addObject(Object object) {
         if (object.getClass() == String.class) {
             addInt(3);
-            String string = (String) object;
-            addInt(string.length());
-            addString(string);
+            addString((String) object);
         } else if (object.getClass() == Boolean.class) {
             addInt(2);
             addByte(((Boolean) object).booleanValue() ? (byte) 1 : (byte) 0);
@@ -334,21 +443,26 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
             addDouble(((BigInteger) object).doubleValue());
         } else if (object.getClass() == Date.class) {
             addInt(5);
-            addInt((int) ((Date) object).getTime() / 1000);
+            addInt((int) (((Date) object).getTime() / 1000));
         } else if (object instanceof List<?>) {
             Collection<?> list = (Collection<?>) object;
             addInt(0x100);
             addInt(list.size());
             addList(list);
+        } else if (object instanceof Object[]) {
+            Object[] array = (Object[]) object;
+            addInt(0x100);
+            addInt(array.length);
+            for (Object element : array) {
+                addObject(element);
+            }
         } else if (object instanceof Map<?, ?>) {
             Map<?, ?> map = (Map<?, ?>) object;
             addInt(0x101);
             addInt(map.size());
             for (Map.Entry<?, ?> entry : map.entrySet()) {
-                String key = (String) entry.getKey();
-                addInt(key.length());
-                addString(key);
-                addList(Collections.singleton(entry.getValue()));
+                addString((String) entry.getKey());
+                addObject(entry.getValue());
             }
         }
     }
@@ -360,9 +474,16 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     @Override
     public String toString() {
         try {
-            trimBinRpcData();
-            generateResponseData();
-            return RpcUtils.dumpRpcMessage(methodName, messageData);
+            Object[] data = messageData;
+            if (data == null) {
+                ByteBuffer frame = ByteBuffer.wrap(createMessage());
+                frame.position(HEADER_LENGTH);
+                if (argCountPosition >= 0) {
+                    frame.position(argCountPosition + 4);
+                }
+                data = readRpcValues(frame);
+            }
+            return RpcUtils.dumpRpcMessage(methodName, data);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
         }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.message;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only map for a decoded BIN-RPC struct. The members are kept in two arrays sorted by name, so iteration order
+ * is the same as with a TreeMap while lookups are a binary search without any per-entry objects.
+ *
+ * @author agent - Initial contribution
+ */
+class BinRpcStruct extends AbstractMap<String, Object> {
+    private final String[] names;
+    private final Object[] values;
+    private Set<Entry<String, Object>> entrySet;
+
+    /**
+     * Creates the struct from the decoded members, the arrays are sorted in place.
+     */
+    BinRpcStruct(String[] names, Object[] values) {
+        this.names = names;
+        this.values = values;
+        sort();
+    }
+
+    /**
+     * Insertion sort, structs are small and the gateway usually sends the members already sorted.
+     */
+    private void sort() {
+        for (int i = 1; i < names.length; i++) {
+            String name = names[i];
+            Object value = values[i];
+            int j = i - 1;
+            while (j >= 0 && names[j].compareTo(name) > 0) {
+                names[j + 1] = names[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            names[j + 1] = name;
+            values[j + 1] = value;
+        }
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(names, key);
+        return index < 0 ? -1 : index;
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return names.length;
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < names.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (index >= names.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(names[index],
+                                    values[index]);
+                            index++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+        return entrySet;
+    }
+}
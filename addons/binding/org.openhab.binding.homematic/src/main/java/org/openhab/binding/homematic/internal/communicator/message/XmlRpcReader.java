@@ -0,0 +1,437 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull parser specialised for the XML-RPC value grammar. It scans the message for tags, text and entities without a
+ * generic XML parser and builds the same values as a SAX based decoder would. The parser keeps its buffers between
+ * messages, one instance is reused per thread.
+ *
+ * @author agent - Initial contribution
+ */
+class XmlRpcReader {
+    private static final int MAX_RETAINED_CHARS = 256 * 1024;
+    private static final int MAX_RETAINED_LIST_SIZE = 1024;
+
+    private static final ThreadLocal<XmlRpcReader> READER = new ThreadLocal<XmlRpcReader>() {
+        @Override
+        protected XmlRpcReader initialValue() {
+            return new XmlRpcReader();
+        }
+    };
+
+    private static final int TAG_UNKNOWN = -1;
+    private static final int TAG_BOOLEAN = 0;
+    private static final int TAG_INT = 1;
+    private static final int TAG_I4 = 2;
+    private static final int TAG_DOUBLE = 3;
+    private static final int TAG_STRING = 4;
+    private static final int TAG_NAME = 5;
+    private static final int TAG_VALUE = 6;
+    private static final int TAG_ARRAY = 7;
+    private static final int TAG_STRUCT = 8;
+    private static final int TAG_BASE64 = 9;
+    private static final int TAG_DATETIME = 10;
+    private static final int TAG_METHODNAME = 11;
+    private static final String[] TAG_NAMES = { "boolean", "int", "i4", "double", "string", "name", "value", "array",
+            "struct", "base64", "datetime.iso8601", "methodname", "params", "param", "methodcall", "methodresponse",
+            "member", "data", "fault" };
+
+    private char[] xml = new char[4096];
+    private int length;
+    private int pos;
+
+    private byte[] bytes = new byte[4096];
+    private CharsetDecoder decoder;
+
+    private final StringBuilder text = new StringBuilder(256);
+    private final List<List<Object>> dataObjects = new ArrayList<List<Object>>();
+    private int depth;
+    private int openElements;
+    private boolean isValueTag;
+    private String methodName;
+    private String unknownTag;
+
+    /**
+     * Returns the reader of the current thread.
+     */
+    static XmlRpcReader get() {
+        return READER.get();
+    }
+
+    /**
+     * Returns the method name of the last decoded message.
+     */
+    String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Reads the complete stream and decodes the XML-RPC message.
+     */
+    Object[] read(InputStream is, Charset charset) throws IOException {
+        int count = 0;
+        int read;
+        while ((read = is.read(bytes, count, bytes.length - count)) >= 0) {
+            count += read;
+            if (count == bytes.length) {
+                byte[] grown = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, grown, 0, count);
+                bytes = grown;
+            }
+        }
+        try {
+            return read(bytes, 0, count, charset);
+        } finally {
+            if (bytes.length > MAX_RETAINED_CHARS) {
+                bytes = new byte[4096];
+            }
+        }
+    }
+
+    /**
+     * Decodes the XML-RPC message from the given bytes.
+     */
+    Object[] read(byte[] data, int offset, int count, Charset charset) throws IOException {
+        decode(data, offset, count, charset);
+        try {
+            return parse();
+        } catch (ParseException | IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IOException("Invalid XML-RPC message: " + ex.getMessage(), ex);
+        } finally {
+            reset();
+        }
+    }
+
+    private void decode(byte[] data, int offset, int count, Charset charset) throws CharacterCodingException {
+        if (xml.length < count) {
+            xml = new char[Math.max(count, xml.length * 2)];
+        }
+        if (StandardCharsets.ISO_8859_1.equals(charset)) {
+            for (int i = 0; i < count; i++) {
+                xml[i] = (char) (data[offset + i] & 0xFF);
+            }
+            length = count;
+        } else {
+            if (decoder == null || !decoder.charset().equals(charset)) {
+                decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+            CharBuffer out = CharBuffer.wrap(xml);
+            decoder.reset();
+            CoderResult result = decoder.decode(ByteBuffer.wrap(data, offset, count), out, true);
+            if (!result.isUnderflow()) {
+                result.throwException();
+            }
+            decoder.flush(out);
+            length = out.position();
+        }
+        pos = 0;
+    }
+
+    private void reset() {
+        for (int i = 0; i < dataObjects.size(); i++) {
+            dataObjects.get(i).clear();
+        }
+        depth = 0;
+        text.setLength(0);
+        if (text.capacity() > MAX_RETAINED_CHARS) {
+            text.setLength(256);
+            text.trimToSize();
+            text.setLength(0);
+        }
+        if (xml.length > MAX_RETAINED_CHARS) {
+            xml = new char[4096];
+        }
+    }
+
+    private Object[] parse() throws IOException, ParseException {
+        methodName = null;
+        isValueTag = false;
+        depth = 0;
+        openElements = 0;
+        pushDataObject();
+
+        while (pos < length) {
+            char c = xml[pos];
+            if (c == '<') {
+                readMarkup();
+            } else if (c == '&') {
+                readEntity();
+            } else {
+                int start = pos;
+                while (pos < length && xml[pos] != '<' && xml[pos] != '&') {
+                    pos++;
+                }
+                text.append(xml, start, pos - start);
+            }
+        }
+
+        if (depth != 1 || openElements != 0) {
+            throw new IOException("Incomplete XML-RPC message");
+        }
+        return popDataObject().toArray();
+    }
+
+    private void readMarkup() throws IOException, ParseException {
+        if (startsWith("<?")) {
+            skipPast("?>");
+        } else if (startsWith("<!--")) {
+            skipPast("-->");
+        } else if (startsWith("<![CDATA[")) {
+            int start = pos + 9;
+            skipPast("]]>");
+            text.append(xml, start, pos - 3 - start);
+        } else if (startsWith("<!")) {
+            skipPast(">");
+        } else if (pos + 1 < length && xml[pos + 1] == '/') {
+            pos += 2;
+            int tag = readTagName();
+            skipPast(">");
+            endElement(tag);
+        } else {
+            pos++;
+            int tag = readTagName();
+            boolean emptyElement = skipAttributes();
+            startElement(tag);
+            if (emptyElement) {
+                endElement(tag);
+            }
+        }
+    }
+
+    private int readTagName() {
+        int start = pos;
+        while (pos < length && !isTagNameEnd(xml[pos])) {
+            pos++;
+        }
+        int nameLength = pos - start;
+        for (int tag = 0; tag < TAG_NAMES.length; tag++) {
+            if (isTagName(TAG_NAMES[tag], start, nameLength)) {
+                return tag;
+            }
+        }
+        unknownTag = new String(xml, start, nameLength);
+        return TAG_UNKNOWN;
+    }
+
+    private boolean isTagName(String name, int start, int nameLength) {
+        if (name.length() != nameLength) {
+            return false;
+        }
+        for (int i = 0; i < nameLength; i++) {
+            if (Character.toLowerCase(xml[start + i]) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTagNameEnd(char c) {
+        return c == '>' || c == '/' || c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * Skips the attributes of a start tag and returns true, if it is an empty element tag.
+     */
+    private boolean skipAttributes() throws IOException {
+        char quote = 0;
+        while (pos < length) {
+            char c = xml[pos++];
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return xml[pos - 2] == '/';
+            }
+        }
+        throw new IOException("Incomplete XML-RPC message");
+    }
+
+    private boolean startsWith(String prefix) {
+        if (pos + prefix.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (xml[pos + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipPast(String end) throws IOException {
+        while (pos < length) {
+            if (startsWith(end)) {
+                pos += end.length();
+                return;
+            }
+            pos++;
+        }
+        throw new IOException("Incomplete XML-RPC message");
+    }
+
+    private void readEntity() throws IOException {
+        int end = pos + 1;
+        while (end < length && xml[end] != ';') {
+            end++;
+        }
+        if (end == length) {
+            throw new IOException("Incomplete XML entity");
+        }
+        String entity = new String(xml, pos + 1, end - pos - 1);
+        pos = end + 1;
+        switch (entity) {
+            case "lt":
+                text.append('<');
+                break;
+            case "gt":
+                text.append('>');
+                break;
+            case "amp":
+                text.append('&');
+                break;
+            case "quot":
+                text.append('"');
+                break;
+            case "apos":
+                text.append('\'');
+                break;
+            default:
+                if (entity.startsWith("#x") || entity.startsWith("#X")) {
+                    text.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+                } else if (entity.startsWith("#")) {
+                    text.appendCodePoint(Integer.parseInt(entity.substring(1)));
+                } else {
+                    throw new IOException("Unknown XML entity: &" + entity + ";");
+                }
+        }
+    }
+
+    private void startElement(int tag) {
+        openElements++;
+        if (tag == TAG_ARRAY || tag == TAG_STRUCT) {
+            pushDataObject();
+        }
+        isValueTag = tag == TAG_VALUE;
+        text.setLength(0);
+    }
+
+    private void endElement(int tag) throws IOException, ParseException {
+        if (--openElements < 0) {
+            throw new IOException("Unexpected end tag in XML-RPC message");
+        }
+        List<Object> data = dataObjects.get(depth - 1);
+
+        switch (tag) {
+            case TAG_BOOLEAN:
+                data.add(isTextEqual("1") ? Boolean.TRUE : Boolean.FALSE);
+                break;
+            case TAG_INT:
+            case TAG_I4:
+                data.add(Integer.valueOf(text.toString()));
+                break;
+            case TAG_DOUBLE:
+                data.add(Double.valueOf(text.toString()));
+                break;
+            case TAG_STRING:
+            case TAG_NAME:
+                data.add(text.toString());
+                break;
+            case TAG_VALUE:
+                if (isValueTag) {
+                    data.add(text.toString());
+                    isValueTag = false;
+                }
+                break;
+            case TAG_ARRAY:
+                List<Object> arrayData = popDataObject();
+                Object[] array = arrayData.toArray();
+                arrayData.clear();
+                dataObjects.get(depth - 1).add(array);
+                break;
+            case TAG_STRUCT:
+                List<Object> mapData = popDataObject();
+                Map<Object, Object> resultMap = new HashMap<Object, Object>(mapData.size());
+                for (int i = 0; i < mapData.size(); i += 2) {
+                    resultMap.put(mapData.get(i), mapData.get(i + 1));
+                }
+                mapData.clear();
+                dataObjects.get(depth - 1).add(resultMap);
+                break;
+            case TAG_BASE64:
+                data.add(Base64.getDecoder().decode(text.toString()));
+                break;
+            case TAG_DATETIME:
+                data.add(XmlRpcRequest.getDateFormat().parse(text.toString()));
+                break;
+            case TAG_METHODNAME:
+                methodName = text.toString();
+                break;
+            case TAG_UNKNOWN:
+                throw new IOException("Unknown XML-RPC tag: " + unknownTag.toLowerCase());
+            default:
+                // params, param, methodcall, methodresponse, member, data, fault
+                break;
+        }
+    }
+
+    private boolean isTextEqual(String value) {
+        if (text.length() != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void pushDataObject() {
+        if (depth == dataObjects.size()) {
+            dataObjects.add(new ArrayList<Object>());
+        }
+        depth++;
+    }
+
+    private List<Object> popDataObject() throws IOException {
+        if (depth <= 1 && pos < length) {
+            throw new IOException("Unexpected end tag in XML-RPC message");
+        }
+        depth--;
+        List<Object> data = dataObjects.get(depth);
+        if (data.size() > MAX_RETAINED_LIST_SIZE) {
+            List<Object> copy = new ArrayList<Object>(data);
+            dataObjects.set(depth, new ArrayList<Object>());
+            return copy;
+        }
+        return data;
+    }
+}
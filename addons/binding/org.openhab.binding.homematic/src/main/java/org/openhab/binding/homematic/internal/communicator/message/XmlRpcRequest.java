@@ -19,8 +19,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.apache.commons.lang.StringEscapeUtils;
-
 /**
  * A XML-RPC request for sending data to the Homematic server.
  *
@@ -37,7 +35,12 @@ public class XmlRpcRequest implements RpcRequest<String> {
     private List<Object> parms;
     private StringBuilder sb;
     private TYPE type;
-    public static SimpleDateFormat xmlRpcDateFormat = new SimpleDateFormat("yyyyMMdd'T'HH:mm:ss");
+    private static final ThreadLocal<SimpleDateFormat> XML_RPC_DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyyMMdd'T'HH:mm:ss");
+        }
+    };
 
     public XmlRpcRequest(String methodName) {
         this(methodName, TYPE.REQUEST);
@@ -49,6 +52,13 @@ public class XmlRpcRequest implements RpcRequest<String> {
         parms = new ArrayList<Object>();
     }
 
+    /**
+     * Returns the XML-RPC date format for the current thread.
+     */
+    public static SimpleDateFormat getDateFormat() {
+        return XML_RPC_DATE_FORMAT.get();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -78,7 +88,7 @@ public class XmlRpcRequest implements RpcRequest<String> {
      */
     @Override
     public String toString() {
-        sb = new StringBuilder();
+        sb = new StringBuilder(256 + parms.size() * 64);
 
         sb.append("<?xml");
         attr("version", "1.0");
@@ -123,6 +133,38 @@ public class XmlRpcRequest implements RpcRequest<String> {
         sb.append("<").append(name).append(">").append(value).append("</").append(name).append(">");
     }
 
+    /**
+     * Appends the XML escaped value, characters outside of ASCII are written as numeric character references.
+     */
+    private void escapeXml(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '\'':
+                    sb.append("&apos;");
+                    break;
+                default:
+                    if (c > 0x7F) {
+                        sb.append("&#").append((int) c).append(';');
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+
     /**
      * Generates a value tag based on the type of the value.
      */
@@ -132,7 +174,7 @@ public class XmlRpcRequest implements RpcRequest<String> {
         } else {
             Class<?> clazz = value.getClass();
             if (clazz == String.class || clazz == Character.class) {
-                sb.append(StringEscapeUtils.escapeXml(value.toString()));
+                escapeXml(value.toString());
             } else if (clazz == Long.class || clazz == Integer.class || clazz == Short.class || clazz == Byte.class) {
                 tag("int", value.toString());
             } else if (clazz == Double.class) {
@@ -145,7 +187,7 @@ public class XmlRpcRequest implements RpcRequest<String> {
             } else if (clazz == Boolean.class) {
                 tag("boolean", ((Boolean) value).booleanValue() ? "1" : "0");
             } else if (clazz == Date.class) {
-                tag("dateTime.iso8601", xmlRpcDateFormat.format(((Date) value)));
+                tag("dateTime.iso8601", getDateFormat().format(((Date) value)));
             } else if (value instanceof Calendar) {
                 generateValue(((Calendar) value).getTime());
             } else if (value instanceof byte[]) {
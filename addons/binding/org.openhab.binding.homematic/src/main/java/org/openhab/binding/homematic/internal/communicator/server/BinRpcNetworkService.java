@@ -10,40 +10,81 @@ package org.openhab.binding.homematic.internal.communicator.server;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
 import org.openhab.binding.homematic.internal.communicator.message.BinRpcMessage;
 import org.openhab.binding.homematic.internal.communicator.message.RpcRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Waits for a message from the Homematic gateway and starts the RpcCallbackHandler to handle the message.
+ * Waits for messages from the Homematic gateway on a selector and hands complete messages over to the
+ * RpcResponseHandler. Messages are read incrementally into buffers which are reused for later connections, so no
+ * thread is blocked by an open connection.
  *
  * @author Gerhard Riegler - Initial contribution
  */
 public class BinRpcNetworkService implements Runnable {
+    private final Logger logger = LoggerFactory.getLogger(BinRpcNetworkService.class);
+
     private static final byte BIN_EMPTY_STRING[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 0, 3, 0, 0, 0, 0 };
     private static final byte BIN_EMPTY_ARRAY[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 1, 0, 0, 0, 0, 0 };
     private static final byte BIN_EMPTY_EVENT_LIST[] = { 'B', 'i', 'n', 1, 0, 0, 0, 21, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0,
             3, 0, 0, 0, 5, 'e', 'v', 'e', 'n', 't' };
 
     private static final String RPC_POOL_NAME = "homematicRpc";
-    private ServerSocket serverSocket;
-    private boolean accept = true;
+    private static final int HEADER_LENGTH = 8;
+    private static final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean accept = true;
     private HomematicConfig config;
     private RpcResponseHandler<byte[]> rpcResponseHandler;
 
+    private final Queue<Connection> pendingResponses = new ConcurrentLinkedQueue<Connection>();
+    private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<ByteBuffer>();
+
+    private final AtomicLong receivedMessages = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong handlerTime = new AtomicLong();
+    private final AtomicLong maxHandlerTime = new AtomicLong();
+
     /**
      * Creates the socket for listening to events from the Homematic gateway.
      */
     public BinRpcNetworkService(RpcEventListener listener, HomematicConfig config) throws IOException {
         this.config = config;
 
-        serverSocket = new ServerSocket();
-        serverSocket.setReuseAddress(true);
-        serverSocket.bind(new InetSocketAddress(config.getBinCallbackPort()));
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.bind(new InetSocketAddress(config.getBinCallbackPort()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            closeSilent();
+            throw ex;
+        }
 
         this.rpcResponseHandler = new RpcResponseHandler<byte[]>(listener) {
 
@@ -82,31 +123,280 @@ public class BinRpcNetworkService implements Runnable {
     }
 
     /**
-     * Listening for events and starts the callbackHandler if a event received.
+     * Listening for events and starts the callbackHandler if a complete message has been received.
      */
     @Override
     public void run() {
-        while (accept) {
+        try {
+            while (accept) {
+                selector.select();
+                registerPendingResponses();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            acceptConnection();
+                        } else if (key.isReadable()) {
+                            readMessage(key);
+                        } else if (key.isWritable()) {
+                            writeResponse(key);
+                        }
+                    } catch (IOException ex) {
+                        logger.debug("BIN-RPC connection failure: {}", ex.getMessage());
+                        if (key.attachment() instanceof Connection) {
+                            close((Connection) key.attachment());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException ex) {
+            if (accept) {
+                logger.error("BIN-RPC server failure: {}", ex.getMessage(), ex);
+            }
+        } finally {
+            closeSilent();
+        }
+    }
+
+    private void acceptConnection() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            Connection connection = new Connection(channel, borrowBuffer());
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /**
+     * Reads the available bytes of the message, the message is handled as soon as it is complete.
+     */
+    private void readMessage(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        int count = connection.channel.read(connection.buffer);
+        if (count < 0) {
+            close(connection);
+            return;
+        }
+        receivedBytes.addAndGet(count);
+
+        ByteBuffer buffer = connection.buffer;
+        if (buffer.position() < HEADER_LENGTH) {
+            return;
+        }
+        if (buffer.get(0) != 'B' || buffer.get(1) != 'i' || buffer.get(2) != 'n') {
+            throw new IOException("No BinX signature");
+        }
+        int length = buffer.getInt(4);
+        if (length < 0 || length > MAX_MESSAGE_LENGTH) {
+            throw new IOException("Invalid BIN-RPC message length " + length);
+        }
+        int messageLength = HEADER_LENGTH + length;
+        if (buffer.capacity() < messageLength) {
+            connection.buffer = grow(buffer, messageLength);
+            return;
+        }
+        if (buffer.position() >= messageLength) {
+            key.interestOps(0);
+            buffer.flip();
+            buffer.limit(messageLength);
+            receivedMessages.incrementAndGet();
+            handleMessage(connection);
+        }
+    }
+
+    /**
+     * Decodes the message and calls the RpcResponseHandler on the thread pool, the response is sent by the selector
+     * thread.
+     */
+    private void handleMessage(final Connection connection) throws IOException {
+        final BinRpcMessage message = new BinRpcMessage(connection.buffer, true, config.getEncoding());
+        ThreadPoolManager.getPool(RPC_POOL_NAME).execute(new Runnable() {
+
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                try {
+                    logger.trace("Event BinRpcMessage: {}", message);
+                    connection.response = rpcResponseHandler.handleMethodCall(message.getMethodName(),
+                            message.getResponseData());
+                } catch (Exception e) {
+                    logger.error("{}", e.getMessage(), e);
+                } finally {
+                    updateHandlerTime(System.nanoTime() - start);
+                    pendingResponses.add(connection);
+                    selector.wakeup();
+                }
+            }
+        });
+    }
+
+    private void updateHandlerTime(long time) {
+        handlerTime.addAndGet(time);
+        long max;
+        do {
+            max = maxHandlerTime.get();
+        } while (time > max && !maxHandlerTime.compareAndSet(max, time));
+    }
+
+    /**
+     * Copies the responses of handled messages into the buffer of the connection and waits until it can be written.
+     */
+    private void registerPendingResponses() {
+        Connection connection;
+        while ((connection = pendingResponses.poll()) != null) {
+            if (connection.response == null || !connection.key.isValid()) {
+                close(connection);
+            } else {
+                ByteBuffer buffer = connection.buffer;
+                buffer.clear();
+                if (buffer.capacity() < connection.response.length) {
+                    buffer = ByteBuffer.allocate(connection.response.length);
+                    connection.buffer = buffer;
+                }
+                buffer.put(connection.response).flip();
+                connection.response = null;
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Writes the response, the connection is closed afterwards.
+     */
+    private void writeResponse(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        sentBytes.addAndGet(connection.channel.write(connection.buffer));
+        if (!connection.buffer.hasRemaining()) {
+            close(connection);
+        }
+    }
+
+    private ByteBuffer borrowBuffer() {
+        ByteBuffer buffer = freeBuffers.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    }
+
+    private ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        releaseBuffer(buffer);
+        return newBuffer;
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE && freeBuffers.size() < MAX_POOLED_BUFFERS) {
+            buffer.clear();
+            freeBuffers.addFirst(buffer);
+        }
+    }
+
+    /**
+     * Closes the connection and reuses its buffer.
+     */
+    private void close(Connection connection) {
+        if (connection.buffer != null) {
+            connection.key.cancel();
             try {
-                Socket cs = serverSocket.accept();
-                BinRpcResponseHandler rpcHandler = new BinRpcResponseHandler(cs, rpcResponseHandler, config);
-                ThreadPoolManager.getPool(RPC_POOL_NAME).execute(rpcHandler);
+                connection.channel.close();
             } catch (IOException ex) {
                 // ignore
             }
+            releaseBuffer(connection.buffer);
+            connection.buffer = null;
         }
     }
 
     /**
-     * Stops the listening.
+     * Returns the number of messages received from the Homematic gateway.
+     */
+    public long getReceivedMessages() {
+        return receivedMessages.get();
+    }
+
+    /**
+     * Returns the number of bytes received from the Homematic gateway.
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * Returns the number of bytes sent to the Homematic gateway.
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * Returns the average time in milliseconds the RpcResponseHandler needed to handle a message.
+     */
+    public double getAverageHandlerTime() {
+        long messages = receivedMessages.get();
+        return messages == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(handlerTime.get()) / messages / 1000;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds the RpcResponseHandler needed to handle a message.
+     */
+    public double getMaxHandlerTime() {
+        return (double) TimeUnit.NANOSECONDS.toMicros(maxHandlerTime.get()) / 1000;
+    }
+
+    /**
+     * Stops the listening, the connections are closed by the selector thread.
      */
     public void shutdown() {
         accept = false;
+        logger.debug("BIN-RPC server statistics: {} messages, {} bytes received, {} bytes sent, handler time {} ms avg, "
+                + "{} ms max", getReceivedMessages(), getReceivedBytes(), getSentBytes(), getAverageHandlerTime(),
+                getMaxHandlerTime());
+        // the selector thread closes the connections, as it may still be registering or cancelling keys
+        selector.wakeup();
+    }
+
+    /**
+     * Closes all connections and the selector. Called on the selector thread or if the selector thread is not
+     * started.
+     */
+    private void closeSilent() {
         try {
-            serverSocket.close();
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        } catch (IOException | ClosedSelectorException ex) {
+            // ignore
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException ioe) {
+            // ignore
+        }
+        try {
+            selector.close();
         } catch (IOException ioe) {
             // ignore
         }
     }
 
+    /**
+     * State of a connection from the Homematic gateway.
+     */
+    private static class Connection {
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer buffer;
+        private volatile byte[] response;
+
+        private Connection(SocketChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
 }
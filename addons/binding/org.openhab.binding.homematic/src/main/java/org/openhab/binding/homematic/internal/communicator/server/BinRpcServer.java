@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
  */
 public class BinRpcServer implements RpcServer {
     private final Logger logger = LoggerFactory.getLogger(BinRpcServer.class);
+    private static final long SHUTDOWN_TIMEOUT = 5000;
 
     private Thread networkServiceThread;
     private BinRpcNetworkService networkService;
@@ -61,6 +62,12 @@ public class BinRpcServer implements RpcServer {
             }
             networkService.shutdown();
             networkService = null;
+            try {
+                // the port is released, when the network service thread has closed its channels
+                networkServiceThread.join(SHUTDOWN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 }
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.server;
+
+import org.openhab.binding.homematic.internal.model.HmDatapointInfo;
+
+/**
+ * A datapoint event received from a Homematic gateway.
+ *
+ * @author agent - Initial contribution
+ */
+public class RpcEvent {
+    private HmDatapointInfo dpInfo;
+    private Object value;
+    private boolean coalesced;
+
+    public RpcEvent(HmDatapointInfo dpInfo, Object value) {
+        this.dpInfo = dpInfo;
+        this.value = value;
+    }
+
+    /**
+     * Returns the info of the updated datapoint.
+     */
+    public HmDatapointInfo getDpInfo() {
+        return dpInfo;
+    }
+
+    /**
+     * Returns the new value of the datapoint.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns true, if this event replaces earlier events of the same datapoint.
+     */
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Marks this event as replacement of earlier events of the same datapoint.
+     */
+    public void setCoalesced(boolean coalesced) {
+        this.coalesced = coalesced;
+    }
+}
@@ -24,6 +24,11 @@ public interface RpcEventListener {
      */
     public void eventReceived(HmDatapointInfo dpInfo, Object newValue);
 
+    /**
+     * Called when multiple events are received at once from a Homeamtic gateway, e.g. with a system.multicall.
+     */
+    public void eventsReceived(List<RpcEvent> events);
+
     /**
      * Called when new devices has been detected on the Homeamtic gateway.
      */
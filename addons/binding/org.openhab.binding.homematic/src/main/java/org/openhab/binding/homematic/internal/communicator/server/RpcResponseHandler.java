@@ -55,13 +55,7 @@ public abstract class RpcResponseHandler<T> {
             msg.addArg(getListMethods());
             return msg.createMessage();
         } else if (RPC_METHODNAME_SYSTEM_MULTICALL.equals(methodName)) {
-            for (Object o : (Object[]) responseData[0]) {
-                Map<?, ?> call = (Map<?, ?>) o;
-                String method = call.get("methodName").toString();
-                Object[] data = (Object[]) call.get("params");
-                handleMethodCall(method, data);
-            }
-            return getEmptyEventListResult();
+            return handleMulticall((Object[]) responseData[0]);
         } else if (RPC_METHODNAME_SET_CONFIG_READY.equals(methodName)) {
             return getEmptyEventListResult();
         } else {
@@ -82,6 +76,35 @@ public abstract class RpcResponseHandler<T> {
         return events;
     }
 
+    /**
+     * Populates all events of the multicall as one batch to the listener, other methods are handled in between.
+     */
+    private T handleMulticall(Object[] calls) throws IOException {
+        EventParser eventParser = new EventParser();
+        List<RpcEvent> events = new ArrayList<RpcEvent>(calls.length);
+        for (Object o : calls) {
+            Map<?, ?> call = (Map<?, ?>) o;
+            String method = call.get("methodName").toString();
+            Object[] data = (Object[]) call.get("params");
+            if (RPC_METHODNAME_EVENT.equals(method)) {
+                HmDatapointInfo dpInfo = eventParser.parse(data);
+                events.add(new RpcEvent(dpInfo, eventParser.getValue()));
+            } else {
+                flushEvents(events);
+                handleMethodCall(method, data);
+            }
+        }
+        flushEvents(events);
+        return getEmptyEventListResult();
+    }
+
+    private void flushEvents(List<RpcEvent> events) {
+        if (!events.isEmpty()) {
+            listener.eventsReceived(new ArrayList<RpcEvent>(events));
+            events.clear();
+        }
+    }
+
     /**
      * Populates the extracted event to the listener.
      */
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.misc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.openhab.binding.homematic.internal.model.HmChannel;
+import org.openhab.binding.homematic.internal.model.HmDatapoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk backed cache of the datapoint metadata of a channel, keyed by device type, firmware and channel number. The
+ * cache is stored per gateway and dropped when the firmware of the gateway changes.
+ *
+ * @author agent - Initial contribution
+ */
+public class DatapointMetadataCache {
+    private final Logger logger = LoggerFactory.getLogger(DatapointMetadataCache.class);
+    private static final String CACHE_FOLDER = ConfigConstants.getUserDataFolder() + File.separator + "homematic";
+
+    private final File cacheFile;
+    private final String gatewayFirmware;
+    private final Map<String, List<HmDatapoint>> datapointsByChannelId = new ConcurrentHashMap<>();
+    private boolean modified;
+
+    public DatapointMetadataCache(String gatewayId, String gatewayFirmware) {
+        String fileName = MiscUtils.validateCharacters(gatewayId, "Gateway id", "_") + ".metadata";
+        this.cacheFile = new File(CACHE_FOLDER, fileName);
+        this.gatewayFirmware = gatewayFirmware;
+    }
+
+    /**
+     * Returns the cache key for the given channel.
+     */
+    public static String getChannelId(HmChannel channel) {
+        return channel.getDevice().getType() + ":" + channel.getDevice().getFirmware() + ":" + channel.getNumber();
+    }
+
+    /**
+     * Returns the cached datapoints for the channel or null, if the channel type is unknown.
+     */
+    public Collection<HmDatapoint> get(HmChannel channel) {
+        return datapointsByChannelId.get(getChannelId(channel));
+    }
+
+    /**
+     * Stores a copy of all non virtual datapoints of the loaded channel.
+     */
+    public void put(HmChannel channel) {
+        List<HmDatapoint> datapoints = new ArrayList<HmDatapoint>();
+        for (HmDatapoint dp : channel.getDatapoints().values()) {
+            if (!dp.isVirtual()) {
+                HmDatapoint clonedDp = dp.clone();
+                clonedDp.setChannel(null);
+                clonedDp.setValue(null);
+                datapoints.add(clonedDp);
+            }
+        }
+        datapointsByChannelId.put(getChannelId(channel), datapoints);
+        modified = true;
+    }
+
+    /**
+     * Loads the cache from disk, a missing, unreadable or outdated cache file is ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public void load() {
+        datapointsByChannelId.clear();
+        modified = false;
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            String firmware = (String) ois.readObject();
+            if (!ObjectUtils.equals(firmware, gatewayFirmware)) {
+                logger.debug("Gateway firmware changed from '{}' to '{}', ignoring metadata cache", firmware,
+                        gatewayFirmware);
+                return;
+            }
+            datapointsByChannelId.putAll((Map<String, List<HmDatapoint>>) ois.readObject());
+            logger.debug("Loaded metadata of {} channel types from {}", datapointsByChannelId.size(), cacheFile);
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            logger.info("Can't read metadata cache {}, loading all metadata from the gateway: {}", cacheFile,
+                    ex.getMessage());
+            datapointsByChannelId.clear();
+        }
+    }
+
+    /**
+     * Writes the cache to disk, if new channel types have been added.
+     */
+    public void save() {
+        if (!modified) {
+            return;
+        }
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        cacheFile.getParentFile().mkdirs();
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            oos.writeObject(gatewayFirmware);
+            oos.writeObject(new HashMap<String, List<HmDatapoint>>(datapointsByChannelId));
+        } catch (IOException ex) {
+            logger.warn("Can't write metadata cache {}: {}", cacheFile, ex.getMessage());
+            tempFile.delete();
+            return;
+        }
+        if (cacheFile.exists() && !cacheFile.delete() || !tempFile.renameTo(cacheFile)) {
+            logger.warn("Can't replace metadata cache {}", cacheFile);
+            tempFile.delete();
+            return;
+        }
+        modified = false;
+        logger.debug("Saved metadata of {} channel types to {}", datapointsByChannelId.size(), cacheFile);
+    }
+}
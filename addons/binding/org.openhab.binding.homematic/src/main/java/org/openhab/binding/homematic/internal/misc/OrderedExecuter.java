@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.misc;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes tasks on a shared thread pool, tasks with the same key are executed one after another in the order they
+ * have been added.
+ *
+ * @author agent - Initial contribution
+ */
+public class OrderedExecuter {
+    private final Logger logger = LoggerFactory.getLogger(OrderedExecuter.class);
+
+    private final String poolName;
+    private final Map<String, Deque<Runnable>> pendingTasks = new HashMap<String, Deque<Runnable>>();
+
+    public OrderedExecuter(String poolName) {
+        this.poolName = poolName;
+    }
+
+    /**
+     * Executes the task after all previously added tasks with the same key.
+     */
+    public void execute(String key, Runnable task) {
+        synchronized (pendingTasks) {
+            Deque<Runnable> queue = pendingTasks.get(key);
+            if (queue != null) {
+                queue.add(task);
+                return;
+            }
+            pendingTasks.put(key, new ArrayDeque<Runnable>());
+        }
+        submit(key, task);
+    }
+
+    private void submit(final String key, final Runnable task) {
+        ThreadPoolManager.getPool(poolName).execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    logger.error("{}", ex.getMessage(), ex);
+                } finally {
+                    Runnable nextTask;
+                    synchronized (pendingTasks) {
+                        Deque<Runnable> queue = pendingTasks.get(key);
+                        nextTask = queue == null ? null : queue.poll();
+                        if (nextTask == null) {
+                            pendingTasks.remove(key);
+                        }
+                    }
+                    if (nextTask != null) {
+                        submit(key, nextTask);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes all tasks which are not yet running.
+     */
+    public void clear() {
+        synchronized (pendingTasks) {
+            for (Deque<Runnable> queue : pendingTasks.values()) {
+                queue.clear();
+            }
+        }
+    }
+}
@@ -8,12 +8,23 @@
  */
 package org.openhab.binding.kodi.internal.protocol;
 
+import java.io.IOException;
 import java.net.URI;
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
@@ -24,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -32,6 +44,9 @@ import com.google.gson.JsonParser;
  * KodiClientSocket implements the low level communication to kodi through
  * websocket. Usually this communication is done through port 9090
  *
+ * Several JSON-RPC calls may be outstanding at the same time. The responses are matched to the calls by their id,
+ * and calls can be combined into a single batch frame.
+ *
  * @author Paul Frank
  *
  */
@@ -42,16 +57,15 @@ public class KodiClientSocket {
     private final ScheduledExecutorService scheduler;
     private static final int REQUEST_TIMEOUT_MS = 60000;
 
-    private CountDownLatch commandLatch = null;
-    private JsonObject commandResponse = null;
-    private int nextMessageId = 1;
+    private final AtomicInteger nextMessageId = new AtomicInteger(1);
+    private final Map<Integer, CompletableFuture<JsonElement>> pendingRequests = new ConcurrentHashMap<>();
 
-    private boolean connected = false;
+    private volatile boolean connected = false;
 
     private final JsonParser parser = new JsonParser();
     private final Gson mapper = new Gson();
     private URI uri;
-    private Session session;
+    private volatile Session session;
     private WebSocketClient client;
 
     private final KodiClientSocketEventListener eventHandler;
@@ -95,6 +109,7 @@ public class KodiClientSocket {
             }
             session = null;
         }
+        failPendingRequests();
         try {
             client.stop();
         } catch (Exception e) {
@@ -138,36 +153,16 @@ public class KodiClientSocket {
         @OnWebSocketMessage
         public void onMessage(String message) {
             logger.debug("Message received from server: {}", message);
-            final JsonObject json = parser.parse(message).getAsJsonObject();
-            if (json.has("id")) {
-                logger.debug("Response received from server: {}", json);
-                int messageId = json.get("id").getAsInt();
-                if (messageId == nextMessageId - 1) {
-                    commandResponse = json;
-                    commandLatch.countDown();
-                }
-            } else {
-                logger.debug("Event received from server: {}", json);
-                try {
-                    if (eventHandler != null) {
-                        scheduler.submit(new Runnable() {
-
-                            @Override
-                            public void run() {
-                                try {
-                                    eventHandler.handleEvent(json);
-                                } catch (Exception e) {
-                                    logger.error("Error handling event {} player state change message: {}", json,
-                                            e.getMessage(), e);
-                                }
-
-                            }
-                        });
-
+            final JsonElement json = parser.parse(message);
+            if (json.isJsonArray()) {
+                // response to a batch call
+                for (JsonElement element : json.getAsJsonArray()) {
+                    if (element.isJsonObject()) {
+                        handleMessage(element.getAsJsonObject());
                     }
-                } catch (Exception e) {
-                    logger.error("Error handling player state change message", e);
                 }
+            } else if (json.isJsonObject()) {
+                handleMessage(json.getAsJsonObject());
             }
         }
 
@@ -176,6 +171,7 @@ public class KodiClientSocket {
             session = null;
             connected = false;
             logger.debug("Closing a WebSocket due to {}", reason);
+            failPendingRequests();
             scheduler.submit(new Runnable() {
 
                 @Override
@@ -190,46 +186,187 @@ public class KodiClientSocket {
         }
     }
 
-    private void sendMessage(String str) throws Exception {
-        if (isConnected()) {
+    private void handleMessage(final JsonObject json) {
+        if (json.has("id") && !json.get("id").isJsonNull()) {
+            logger.debug("Response received from server: {}", json);
+            CompletableFuture<JsonElement> future = pendingRequests.remove(json.get("id").getAsInt());
+            if (future == null) {
+                logger.debug("Ignoring response without pending request: {}", json);
+                return;
+            }
+            if (json.has("error")) {
+                logger.debug("Error response received from server: {}", json.get("error"));
+            }
+            // responses to calls are not blocked by the handling of events
+            future.complete(json.get("result"));
+        } else {
+            logger.debug("Event received from server: {}", json);
+            try {
+                if (eventHandler != null) {
+                    scheduler.submit(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            try {
+                                eventHandler.handleEvent(json);
+                            } catch (Exception e) {
+                                logger.error("Error handling event {} player state change message: {}", json,
+                                        e.getMessage(), e);
+                            }
+
+                        }
+                    });
+
+                }
+            } catch (Exception e) {
+                logger.error("Error handling player state change message", e);
+            }
+        }
+    }
+
+    private void failPendingRequests() {
+        for (Integer id : new ArrayList<>(pendingRequests.keySet())) {
+            CompletableFuture<JsonElement> future = pendingRequests.remove(id);
+            if (future != null) {
+                future.completeExceptionally(new IOException("connection closed"));
+            }
+        }
+    }
+
+    private void failRequests(List<Integer> messageIds, Throwable error) {
+        for (Integer messageId : messageIds) {
+            CompletableFuture<JsonElement> future = pendingRequests.remove(messageId);
+            if (future != null) {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    private void sendMessage(String str, WriteCallback callback) throws Exception {
+        Session session = this.session;
+        if (isConnected() && session != null) {
             logger.debug("send message: {}", str);
-            session.getRemote().sendString(str);
+            session.getRemote().sendString(str, callback);
         } else {
             throw new Exception("socket not initialized");
         }
     }
 
-    public JsonElement callMethod(String methodName) {
-        return callMethod(methodName, null);
+    /**
+     * A single call of a batch, see {@link KodiClientSocket#callMethodsAsync(List)}.
+     */
+    public static class MethodCall {
+        private final String methodName;
+        private final JsonObject params;
+
+        public MethodCall(String methodName, JsonObject params) {
+            this.methodName = methodName;
+            this.params = params;
+        }
     }
 
-    public synchronized JsonElement callMethod(String methodName, JsonObject params) {
-        try {
-            JsonObject payloadObject = new JsonObject();
-            payloadObject.addProperty("jsonrpc", "2.0");
-            payloadObject.addProperty("id", nextMessageId);
-            payloadObject.addProperty("method", methodName);
+    private JsonObject createRequest(final MethodCall call, final int messageId,
+            final CompletableFuture<JsonElement> future) {
+        JsonObject payloadObject = new JsonObject();
+        payloadObject.addProperty("jsonrpc", "2.0");
+        payloadObject.addProperty("id", messageId);
+        payloadObject.addProperty("method", call.methodName);
+
+        if (call.params != null) {
+            payloadObject.add("params", call.params);
+        }
+
+        pendingRequests.put(messageId, future);
 
-            if (params != null) {
-                payloadObject.add("params", params);
+        final ScheduledFuture<?> timeout = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingRequests.remove(messageId, future)) {
+                    logger.error("Timeout during callMethod({}, {})", call.methodName,
+                            call.params != null ? call.params.toString() : "");
+                    future.completeExceptionally(new TimeoutException("no response for " + call.methodName));
+                }
             }
+        }, REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> timeout.cancel(false));
 
-            String message = mapper.toJson(payloadObject);
+        return payloadObject;
+    }
 
-            commandLatch = new CountDownLatch(1);
-            commandResponse = null;
-            nextMessageId++;
+    /**
+     * Sends a call without waiting for its response.
+     *
+     * @param methodName the JSON-RPC method
+     * @param params the parameters or null
+     * @return the future result of the call, it is completed on the thread of the web socket
+     */
+    public CompletableFuture<JsonElement> callMethodAsync(String methodName, JsonObject params) {
+        return callMethodsAsync(Collections.singletonList(new MethodCall(methodName, params))).get(0);
+    }
 
-            sendMessage(message);
-            if (commandLatch.await(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
-                logger.debug("callMethod returns {}", commandResponse.toString());
-                return commandResponse.get("result");
-            } else {
-                logger.error("Timeout during callMethod({}, {})", methodName, params != null ? params.toString() : "");
-                return null;
-            }
+    /**
+     * Sends several calls in a single JSON-RPC batch without waiting for their responses.
+     *
+     * @param calls the calls
+     * @return the future results of the calls in the same order, they are completed on the thread of the web socket
+     */
+    public List<CompletableFuture<JsonElement>> callMethodsAsync(List<MethodCall> calls) {
+        List<Integer> messageIds = new ArrayList<>(calls.size());
+        List<CompletableFuture<JsonElement>> futures = new ArrayList<>(calls.size());
+        JsonArray batch = new JsonArray();
+        for (MethodCall call : calls) {
+            int messageId = nextMessageId.getAndIncrement();
+            CompletableFuture<JsonElement> future = new CompletableFuture<>();
+            batch.add(createRequest(call, messageId, future));
+            messageIds.add(messageId);
+            futures.add(future);
+        }
+
+        try {
+            // a failed write must not surface only as the request timeout
+            sendMessage(mapper.toJson(batch.size() == 1 ? batch.get(0) : batch), new WriteCallback() {
+                @Override
+                public void writeSuccess() {
+                }
+
+                @Override
+                public void writeFailed(Throwable error) {
+                    logger.debug("Sending the message failed: {}", error.getMessage());
+                    failRequests(messageIds, error);
+                }
+            });
         } catch (Exception e) {
-            logger.error("Error during callMethod", e);
+            failRequests(messageIds, e);
+        }
+        return futures;
+    }
+
+    public JsonElement callMethod(String methodName) {
+        return callMethod(methodName, null);
+    }
+
+    public JsonElement callMethod(String methodName, JsonObject params) {
+        return getResult(callMethodAsync(methodName, params));
+    }
+
+    /**
+     * Waits for the result of a call.
+     *
+     * @param future the future result of the call
+     * @return the result or null, if the call failed
+     */
+    public JsonElement getResult(CompletableFuture<JsonElement> future) {
+        try {
+            JsonElement result = future.get();
+            logger.debug("callMethod returns {}", result);
+            return result;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TimeoutException)) {
+                logger.error("Error during callMethod", e.getCause());
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return null;
         }
     }
@@ -9,11 +9,17 @@
 package org.openhab.binding.kodi.internal.protocol;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.kodi.internal.KodiEventListener;
 import org.openhab.binding.kodi.internal.KodiEventListener.KodiState;
+import org.openhab.binding.kodi.internal.protocol.KodiClientSocket.MethodCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,12 +41,19 @@ public class KodiConnection implements KodiClientSocketEventListener {
 
     private static final int VOLUMESTEP = 10;
 
+    private static final String[] PLAYER_PROPERTIES = { "speed", "position" };
+    private static final String[] ITEM_PROPERTIES = { "title", "album", "artist", "director", "thumbnail", "file",
+            "fanart", "showtitle", "streamdetails", "channel", "channeltype" };
+
     private URI wsUri;
     private KodiClientSocket socket;
 
     private int volume = 0;
     private KodiState currentState = KodiState.Stop;
 
+    /** the player of the last status update, used to request its state together with the active players */
+    private int lastActivePlayer = -1;
+
     private final KodiEventListener listener;
 
     public KodiConnection(KodiEventListener listener) {
@@ -68,7 +81,10 @@ public class KodiConnection implements KodiClientSocketEventListener {
     }
 
     private int getActivePlayer() {
-        JsonElement response = socket.callMethod("Player.GetActivePlayers");
+        return getActivePlayer(socket.callMethod("Player.GetActivePlayers"));
+    }
+
+    private int getActivePlayer(JsonElement response) {
         if (response != null) {
             boolean playing = response.isJsonArray() && response.getAsJsonArray().size() > 0;
             if (playing) {
@@ -137,25 +153,38 @@ public class KodiConnection implements KodiClientSocketEventListener {
         updatePlayerStatus();
     }
 
+    /**
+     * Sends a call without waiting for its response, a failure of the call is only logged.
+     */
+    private void callMethodAsync(String methodName, JsonObject params) {
+        socket.callMethodAsync(methodName, params).exceptionally(error -> {
+            // timeouts are already logged by the socket
+            if (!(error instanceof TimeoutException)) {
+                logger.warn("Error during callMethod({}): {}", methodName, error.getMessage());
+            }
+            return null;
+        });
+    }
+
     public synchronized void increaseVolume() {
         this.volume += VOLUMESTEP;
         JsonObject params = new JsonObject();
         params.addProperty("volume", volume);
-        socket.callMethod("Application.SetVolume", params);
+        callMethodAsync("Application.SetVolume", params);
     }
 
     public synchronized void decreaseVolume() {
         this.volume -= VOLUMESTEP;
         JsonObject params = new JsonObject();
         params.addProperty("volume", volume);
-        socket.callMethod("Application.SetVolume", params);
+        callMethodAsync("Application.SetVolume", params);
     }
 
     public synchronized void setVolume(int volume) {
         this.volume = volume;
         JsonObject params = new JsonObject();
         params.addProperty("volume", volume);
-        socket.callMethod("Application.SetVolume", params);
+        callMethodAsync("Application.SetVolume", params);
     }
 
     public int getVolume() {
@@ -165,36 +194,60 @@ public class KodiConnection implements KodiClientSocketEventListener {
     public synchronized void setMute(boolean mute) {
         JsonObject params = new JsonObject();
         params.addProperty("mute", mute);
-        socket.callMethod("Application.SetMute", params);
+        callMethodAsync("Application.SetMute", params);
     }
 
-    private int getSpeed(int activePlayer) {
-        final String[] properties = { "speed", "position" };
-
+    private JsonObject createPlayerParams(int activePlayer, String[] properties) {
         JsonObject params = new JsonObject();
         params.addProperty("playerid", activePlayer);
         params.add("properties", getJsonArray(properties));
-        JsonElement response = socket.callMethod("Player.GetProperties", params);
-
-        JsonObject result = response.getAsJsonObject();
-        return result.get("speed").getAsInt();
+        return params;
     }
 
     public synchronized void updatePlayerStatus() {
         if (socket.isConnected()) {
-            int activePlayer = getActivePlayer();
+            // request the active players together with the state of the last one in a single batch
+            int expectedPlayer = lastActivePlayer;
+            List<MethodCall> calls = new ArrayList<>();
+            calls.add(new MethodCall("Player.GetActivePlayers", null));
+            if (expectedPlayer >= 0) {
+                calls.add(new MethodCall("Player.GetProperties",
+                        createPlayerParams(expectedPlayer, PLAYER_PROPERTIES)));
+                calls.add(new MethodCall("Player.GetItem", createPlayerParams(expectedPlayer, ITEM_PROPERTIES)));
+            }
+            List<CompletableFuture<JsonElement>> responses = socket.callMethodsAsync(calls);
+
+            int activePlayer = getActivePlayer(socket.getResult(responses.get(0)));
+            lastActivePlayer = activePlayer;
             if (activePlayer >= 0) {
-                int speed = getSpeed(activePlayer);
-                if (speed == 0) {
-                    updateState(KodiState.Stop);
-                } else if (speed == 1) {
-                    updateState(KodiState.Play);
-                } else if (speed < 0) {
-                    updateState(KodiState.Rewind);
+                JsonElement properties;
+                JsonElement item;
+                if (activePlayer == expectedPlayer) {
+                    properties = socket.getResult(responses.get(1));
+                    item = socket.getResult(responses.get(2));
                 } else {
-                    updateState(KodiState.FastForward);
+                    responses = socket.callMethodsAsync(Arrays.asList(
+                            new MethodCall("Player.GetProperties", createPlayerParams(activePlayer, PLAYER_PROPERTIES)),
+                            new MethodCall("Player.GetItem", createPlayerParams(activePlayer, ITEM_PROPERTIES))));
+                    properties = socket.getResult(responses.get(0));
+                    item = socket.getResult(responses.get(1));
+                }
+
+                if (properties instanceof JsonObject) {
+                    int speed = ((JsonObject) properties).get("speed").getAsInt();
+                    if (speed == 0) {
+                        updateState(KodiState.Stop);
+                    } else if (speed == 1) {
+                        updateState(KodiState.Play);
+                    } else if (speed < 0) {
+                        updateState(KodiState.Rewind);
+                    } else {
+                        updateState(KodiState.FastForward);
+                    }
+                }
+                if (item instanceof JsonObject) {
+                    updatePlayerItem((JsonObject) item);
                 }
-                requestPlayerUpdate(activePlayer);
             } else {
                 updateState(KodiState.Stop);
             }
@@ -223,15 +276,14 @@ public class KodiConnection implements KodiClientSocketEventListener {
     }
 
     private void requestPlayerUpdate(int activePlayer) {
-        final String[] properties = { "title", "album", "artist", "director", "thumbnail", "file", "fanart",
-                "showtitle", "streamdetails", "channel", "channeltype" };
-
-        JsonObject params = new JsonObject();
-        params.addProperty("playerid", activePlayer);
-        params.add("properties", getJsonArray(properties));
-        JsonElement response = socket.callMethod("Player.GetItem", params);
+        JsonElement response = socket.callMethod("Player.GetItem", createPlayerParams(activePlayer, ITEM_PROPERTIES));
+        if (response instanceof JsonObject) {
+            updatePlayerItem((JsonObject) response);
+        }
+    }
 
-        JsonObject item = ((JsonObject) response).get("item").getAsJsonObject();
+    private void updatePlayerItem(JsonObject response) {
+        JsonObject item = response.get("item").getAsJsonObject();
 
         String title = "";
         if (item.has("title")) {
@@ -567,7 +619,7 @@ public class KodiConnection implements KodiClientSocketEventListener {
         JsonObject params = new JsonObject();
         params.addProperty("title", "openHAB");
         params.addProperty("message", message);
-        socket.callMethod("GUI.ShowNotification", params);
+        callMethodAsync("GUI.ShowNotification", params);
     }
 
     public boolean checkConnection() {
@@ -618,13 +670,13 @@ public class KodiConnection implements KodiClientSocketEventListener {
     }
 
     public void input(String key) {
-        socket.callMethod("Input." + key);
+        callMethodAsync("Input." + key, null);
     }
 
     public void inputText(String text) {
         JsonObject params = new JsonObject();
         params.addProperty("text", text);
-        socket.callMethod("Input.SendText", params);
+        callMethodAsync("Input.SendText", params);
     }
 
     public void playNotificationSoundURI(String uri) {
@@ -633,7 +685,7 @@ public class KodiConnection implements KodiClientSocketEventListener {
 
     public void sendSystemCommand(String command) {
         String method = "System." + command;
-        socket.callMethod(method);
+        callMethodAsync(method, null);
     }
 
 }
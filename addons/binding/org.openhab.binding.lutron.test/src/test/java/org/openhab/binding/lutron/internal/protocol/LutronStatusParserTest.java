@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.lutron.internal.protocol;
+
+import static org.junit.Assert.*;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LutronStatusParser}. Every line is also matched by the regular expression and split, which were
+ * used by the IPBridgeHandler before, and both results must be equal.
+ *
+ * @author agent - Initial contribution
+ */
+public class LutronStatusParserTest {
+    private static final Pattern STATUS_REGEX = Pattern.compile("~(OUTPUT|DEVICE|SYSTEM),([^,]+),(.*)");
+
+    private final LutronStatusParser parser = new LutronStatusParser();
+
+    /**
+     * Parses the line and compares the result with the regular expression and split.
+     */
+    private void assertParity(String line) {
+        Matcher matcher = STATUS_REGEX.matcher(line);
+        boolean found = matcher.find();
+
+        assertEquals(line, found, parser.parse(line));
+        if (!found) {
+            return;
+        }
+        assertEquals(line, LutronCommandType.valueOf(matcher.group(1)), parser.getType());
+        assertEquals(line, matcher.group(2), parser.getIdField());
+        assertEquals(line, matcher.group(3), parser.getParameterString());
+        assertArrayEquals(line, matcher.group(3).split(","), parser.getParameters());
+    }
+
+    @Test
+    public void outputTest() {
+        String line = "~OUTPUT,12,1,75.00";
+        assertParity(line);
+
+        assertTrue(parser.parse(line));
+        assertEquals(LutronCommandType.OUTPUT, parser.getType());
+        assertEquals(12, parser.getIntegrationId());
+        assertArrayEquals(new String[] { "1", "75.00" }, parser.getParameters());
+    }
+
+    @Test
+    public void deviceAndSystemTest() {
+        assertParity("~DEVICE,4,3,4");
+        assertParity("~SYSTEM,10/17/2017,16:22:41");
+
+        assertTrue(parser.parse("~SYSTEM,10/17/2017,16:22:41"));
+        assertEquals(LutronCommandType.SYSTEM, parser.getType());
+        assertEquals("10/17/2017", parser.getIdField());
+        assertEquals("16:22:41", parser.getParameterString());
+    }
+
+    @Test
+    public void promptPrefixTest() {
+        assertParity("GNET> ~OUTPUT,12,1,0.00");
+        assertParity("QNET> ~DEVICE,21,2,3");
+        assertParity("GNET> GNET> ~OUTPUT,7,1,100.00");
+        assertParity("~ERROR,6 ~OUTPUT,7,1,100.00");
+
+        assertTrue(parser.parse("GNET> ~DEVICE,21,2,3"));
+        assertEquals(LutronCommandType.DEVICE, parser.getType());
+        assertEquals(21, parser.getIntegrationId());
+        assertArrayEquals(new String[] { "2", "3" }, parser.getParameters());
+    }
+
+    @Test
+    public void emptyParametersTest() {
+        assertParity("~OUTPUT,12,");
+        assertParity("~OUTPUT,12,1,,75.00");
+        assertParity("~OUTPUT,12,,1");
+
+        assertTrue(parser.parse("~OUTPUT,12,"));
+        assertEquals("", parser.getParameterString());
+        assertArrayEquals(new String[] { "" }, parser.getParameters());
+
+        assertTrue(parser.parse("~OUTPUT,12,1,,75.00"));
+        assertArrayEquals(new String[] { "1", "", "75.00" }, parser.getParameters());
+    }
+
+    @Test
+    public void trailingParametersTest() {
+        assertParity("~OUTPUT,12,1,75.00,");
+        assertParity("~OUTPUT,12,1,75.00,,");
+        assertParity("~OUTPUT,12,,,");
+
+        assertTrue(parser.parse("~OUTPUT,12,1,75.00,,"));
+        assertArrayEquals(new String[] { "1", "75.00" }, parser.getParameters());
+
+        assertTrue(parser.parse("~OUTPUT,12,,,"));
+        assertEquals(0, parser.getParameters().length);
+    }
+
+    @Test
+    public void nonNumericIntegrationIdTest() {
+        assertParity("~OUTPUT,abc,1,0.00");
+        assertParity("~OUTPUT,12a,1,0.00");
+        assertParity("~DEVICE,-5,1,0.00");
+        assertParity("~DEVICE,12345678901,1,0.00");
+
+        assertTrue(parser.parse("~OUTPUT,abc,1,0.00"));
+        assertEquals(-1, parser.getIntegrationId());
+        assertTrue(parser.parse("~OUTPUT,12a,1,0.00"));
+        assertEquals(-1, parser.getIntegrationId());
+        assertTrue(parser.parse("~DEVICE,-5,1,0.00"));
+        assertEquals(-1, parser.getIntegrationId());
+        assertTrue(parser.parse("~DEVICE,12345678901,1,0.00"));
+        assertEquals(-1, parser.getIntegrationId());
+    }
+
+    @Test
+    public void noStatusMessageTest() {
+        String[] lines = { "", "GNET> ", "~ERROR,1", "~OUTPUT", "~OUTPUT,", "~OUTPUT,12", "~OUTPUTS,12,1",
+                "~OUTPUT,,1", "OUTPUT,12,1", "~output,12,1" };
+
+        for (String line : lines) {
+            assertParity(line);
+            assertFalse(line, parser.parse(line));
+        }
+    }
+}
@@ -12,13 +12,14 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.smarthome.config.discovery.DiscoveryService;
@@ -28,6 +29,7 @@ import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.binding.BaseBridgeHandler;
+import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.openhab.binding.lutron.config.IPBridgeConfig;
 import org.openhab.binding.lutron.internal.discovery.LutronDeviceDiscoveryService;
@@ -36,6 +38,7 @@ import org.openhab.binding.lutron.internal.net.TelnetSessionListener;
 import org.openhab.binding.lutron.internal.protocol.LutronCommand;
 import org.openhab.binding.lutron.internal.protocol.LutronCommandType;
 import org.openhab.binding.lutron.internal.protocol.LutronOperation;
+import org.openhab.binding.lutron.internal.protocol.LutronStatusParser;
 import org.osgi.framework.ServiceRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,8 +49,6 @@ import org.slf4j.LoggerFactory;
  * @author Allan Tong - Initial contribution
  */
 public class IPBridgeHandler extends BaseBridgeHandler {
-    private static final Pattern STATUS_REGEX = Pattern.compile("~(OUTPUT|DEVICE|SYSTEM),([^,]+),(.*)");
-
     private static final String DB_UPDATE_DATE_FORMAT = "MM/dd/yyyy HH:mm:ss";
 
     private static final Integer MONITOR_PROMPT = 12;
@@ -71,7 +72,11 @@ public class IPBridgeHandler extends BaseBridgeHandler {
     private ScheduledFuture<?> keepAlive;
     private ScheduledFuture<?> keepAliveReconnect;
 
-    private Date lastDbUpdateDate;
+    // Child handlers by integration ID, so updates don't have to search all things.
+    private final Map<Integer, LutronHandler> handlers = new ConcurrentHashMap<>();
+    private final LutronStatusParser statusParser = new LutronStatusParser();
+
+    private volatile Date lastDbUpdateDate;
     private ServiceRegistration<DiscoveryService> discoveryServiceRegistration;
 
     public IPBridgeHandler(Bridge bridge) {
@@ -95,6 +100,13 @@ public class IPBridgeHandler extends BaseBridgeHandler {
         return this.config;
     }
 
+    /**
+     * @return the time the device database was last updated, as reported by the bridge, or null if not known yet
+     */
+    public Date getLastDbUpdateDate() {
+        return this.lastDbUpdateDate;
+    }
+
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
     }
@@ -271,12 +283,59 @@ public class IPBridgeHandler extends BaseBridgeHandler {
         this.sendQueue.add(command);
     }
 
+    @Override
+    public void childHandlerInitialized(ThingHandler childHandler, Thing childThing) {
+        if (childHandler instanceof LutronHandler) {
+            LutronHandler handler = (LutronHandler) childHandler;
+            int integrationId = getIntegrationId(handler);
+
+            removeThingHandler(handler);
+
+            if (integrationId > 0) {
+                this.handlers.put(integrationId, handler);
+            }
+        }
+    }
+
+    @Override
+    public void childHandlerDisposed(ThingHandler childHandler, Thing childThing) {
+        if (childHandler instanceof LutronHandler) {
+            removeThingHandler((LutronHandler) childHandler);
+        }
+    }
+
+    private void removeThingHandler(LutronHandler handler) {
+        for (Iterator<LutronHandler> iterator = this.handlers.values().iterator(); iterator.hasNext();) {
+            if (iterator.next() == handler) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private int getIntegrationId(LutronHandler handler) {
+        try {
+            return handler.getIntegrationId();
+        } catch (IllegalStateException e) {
+            // handler not initialized
+            return -1;
+        }
+    }
+
     private LutronHandler findThingHandler(int integrationId) {
+        LutronHandler handler = this.handlers.get(integrationId);
+
+        if (handler != null) {
+            return handler;
+        }
+
+        // Things initialized before this bridge handler are not in the index yet
         for (Thing thing : getThing().getThings()) {
             if (thing.getHandler() instanceof LutronHandler) {
-                LutronHandler handler = (LutronHandler) thing.getHandler();
+                handler = (LutronHandler) thing.getHandler();
+
+                if (getIntegrationId(handler) == integrationId) {
+                    this.handlers.put(integrationId, handler);
 
-                if (handler.getIntegrationId() == integrationId) {
                     return handler;
                 }
             }
@@ -299,27 +358,32 @@ public class IPBridgeHandler extends BaseBridgeHandler {
                 this.keepAliveReconnect.cancel(true);
             }
 
-            Matcher matcher = STATUS_REGEX.matcher(line);
+            LutronStatusParser parser = this.statusParser;
 
-            if (matcher.find()) {
-                LutronCommandType type = LutronCommandType.valueOf(matcher.group(1));
+            if (parser.parse(line)) {
+                LutronCommandType type = parser.getType();
 
                 if (type == LutronCommandType.SYSTEM) {
                     // SYSTEM messages are assumed to be a response to the SYSTEM_DBEXPORTDATETIME
                     // query. The response returns the last time the device database was updated.
-                    setDbUpdateDate(matcher.group(2), matcher.group(3));
+                    setDbUpdateDate(parser.getIdField(), parser.getParameterString());
+
+                    continue;
+                }
+
+                int integrationId = parser.getIntegrationId();
+
+                if (integrationId < 0) {
+                    this.logger.info("Ignoring message {}", line);
 
                     continue;
                 }
 
-                Integer integrationId = new Integer(matcher.group(2));
                 LutronHandler handler = findThingHandler(integrationId);
 
                 if (handler != null) {
-                    String paramString = matcher.group(3);
-
                     try {
-                        handler.handleUpdate(type, paramString.split(","));
+                        handler.handleUpdate(type, parser.getParameters());
                     } catch (Exception e) {
                         this.logger.error("Error processing update", e);
                     }
@@ -349,9 +413,10 @@ public class IPBridgeHandler extends BaseBridgeHandler {
             Date date = new SimpleDateFormat(DB_UPDATE_DATE_FORMAT).parse(dateString + " " + timeString);
 
             if (this.lastDbUpdateDate == null || date.after(this.lastDbUpdateDate)) {
-                scanForDevices();
-
+                // set the date first, the scan uses it to find a cached project file
                 this.lastDbUpdateDate = date;
+
+                scanForDevices();
             }
         } catch (ParseException e) {
             logger.error("Failed to parse DB update date {} {}", dateString, timeString);
@@ -10,14 +10,24 @@ package org.openhab.binding.lutron.internal.discovery;
 
 import static org.openhab.binding.lutron.LutronBindingConstants.*;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import javax.xml.stream.XMLStreamException;
+
+import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.config.discovery.AbstractDiscoveryService;
 import org.eclipse.smarthome.config.discovery.DiscoveryResult;
 import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
@@ -25,14 +35,11 @@ import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.openhab.binding.lutron.handler.IPBridgeHandler;
 import org.openhab.binding.lutron.internal.LutronHandlerFactory;
-import org.openhab.binding.lutron.internal.discovery.project.Area;
 import org.openhab.binding.lutron.internal.discovery.project.Device;
-import org.openhab.binding.lutron.internal.discovery.project.DeviceGroup;
-import org.openhab.binding.lutron.internal.discovery.project.DeviceNode;
 import org.openhab.binding.lutron.internal.discovery.project.DeviceType;
 import org.openhab.binding.lutron.internal.discovery.project.Output;
 import org.openhab.binding.lutron.internal.discovery.project.OutputType;
-import org.openhab.binding.lutron.internal.discovery.project.Project;
+import org.openhab.binding.lutron.internal.xml.DbXmlInfoListener;
 import org.openhab.binding.lutron.internal.xml.DbXmlInfoReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,10 +47,17 @@ import org.slf4j.LoggerFactory;
 /**
  * The {@link LutronDeviceDiscoveryService} finds all devices paired with a Lutron bridge.
  *
+ * The project file of the bridge is cached on disk together with the time the device database was last updated, so
+ * it is only downloaded again after the devices have changed.
+ *
  * @author Allan Tong - Initial contribution
  */
 public class LutronDeviceDiscoveryService extends AbstractDiscoveryService {
 
+    private static final String CACHE_FOLDER = ConfigConstants.getUserDataFolder() + File.separator + "lutron";
+
+    private static final String CACHE_DATE_FORMAT = "yyyyMMddHHmmss";
+
     private final Logger logger = LoggerFactory.getLogger(LutronDeviceDiscoveryService.class);
 
     private IPBridgeHandler bridgeHandler;
@@ -79,54 +93,94 @@ public class LutronDeviceDiscoveryService extends AbstractDiscoveryService {
 
     private void readDeviceDatabase() throws IOException {
         String address = "http://" + this.bridgeHandler.getIPBridgeConfig().getIpAddress() + "/DbXmlInfo.xml";
-        URL dbXmlInfoUrl = new URL(address);
+        Date dbUpdateDate = this.bridgeHandler.getLastDbUpdateDate();
+        File cacheFile = dbUpdateDate == null ? null : getCacheFile(dbUpdateDate);
 
-        Project project = this.dbXmlInfoReader.readFromXML(dbXmlInfoUrl);
+        try {
+            if (cacheFile != null && !cacheFile.isFile()) {
+                downloadDeviceDatabase(new URL(address), cacheFile);
+            }
+
+            if (cacheFile != null && cacheFile.isFile()) {
+                logger.debug("Reading project file from {}", cacheFile);
 
-        if (project != null) {
-            Stack<String> locationContext = new Stack<>();
+                try (InputStream input = new FileInputStream(cacheFile)) {
+                    readDeviceDatabase(input);
+                } catch (XMLStreamException e) {
+                    // don't use a broken file again
+                    cacheFile.delete();
 
-            for (Area area : project.getAreas()) {
-                processArea(area, locationContext);
+                    throw e;
+                }
+            } else {
+                try (InputStream input = new URL(address).openStream()) {
+                    readDeviceDatabase(input);
+                }
             }
-        } else {
-            logger.info("Could not read project file at {}", address);
+        } catch (XMLStreamException e) {
+            logger.info("Could not read project file at {}: {}", address, e.getMessage());
         }
     }
 
-    private void processArea(Area area, Stack<String> context) {
-        context.push(area.getName());
-
-        for (DeviceNode deviceNode : area.getDeviceNodes()) {
-            if (deviceNode instanceof DeviceGroup) {
-                processDeviceGroup((DeviceGroup) deviceNode, context);
-            } else if (deviceNode instanceof Device) {
-                processDevice((Device) deviceNode, context);
+    private void readDeviceDatabase(InputStream input) throws XMLStreamException {
+        this.dbXmlInfoReader.read(input, new DbXmlInfoListener() {
+            @Override
+            public void deviceFound(List<String> location, Device device) {
+                processDevice(device, location);
             }
-        }
 
-        for (Output output : area.getOutputs()) {
-            processOutput(output, context);
-        }
+            @Override
+            public void outputFound(List<String> location, Output output) {
+                processOutput(output, location);
+            }
+        });
+    }
 
-        for (Area subarea : area.getAreas()) {
-            processArea(subarea, context);
-        }
+    private File getCacheFile(Date dbUpdateDate) {
+        return new File(CACHE_FOLDER,
+                getCacheFilePrefix() + new SimpleDateFormat(CACHE_DATE_FORMAT).format(dbUpdateDate) + ".xml");
+    }
 
-        context.pop();
+    private String getCacheFilePrefix() {
+        return "DbXmlInfo_" + this.bridgeHandler.getThing().getUID().getAsString().replace(':', '_') + "_";
     }
 
-    private void processDeviceGroup(DeviceGroup deviceGroup, Stack<String> context) {
-        context.push(deviceGroup.getName());
+    /**
+     * Downloads the project file to the cache and removes the project files of older device databases. If the file
+     * can't be stored, the project file is read from the bridge directly.
+     */
+    private void downloadDeviceDatabase(URL url, File cacheFile) {
+        File folder = cacheFile.getParentFile();
+        File tempFile = new File(folder, cacheFile.getName() + ".tmp");
+
+        try {
+            if (!folder.isDirectory() && !folder.mkdirs()) {
+                throw new IOException("Cannot create folder " + folder);
+            }
 
-        for (Device device : deviceGroup.getDevices()) {
-            processDevice(device, context);
-        }
+            try (InputStream input = url.openStream()) {
+                Files.copy(input, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
 
-        context.pop();
+            File[] oldFiles = folder.listFiles();
+            if (oldFiles != null) {
+                String prefix = getCacheFilePrefix();
+
+                for (File oldFile : oldFiles) {
+                    if (oldFile.getName().startsWith(prefix) && oldFile.getName().endsWith(".xml")) {
+                        oldFile.delete();
+                    }
+                }
+            }
+
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.debug("Could not cache project file in {}: {}", folder, e.getMessage());
+            tempFile.delete();
+        }
     }
 
-    private void processDevice(Device device, Stack<String> context) {
+    private void processDevice(Device device, List<String> context) {
         DeviceType type = device.getDeviceType();
 
         if (type != null) {
@@ -151,7 +205,7 @@ public class LutronDeviceDiscoveryService extends AbstractDiscoveryService {
         }
     }
 
-    private void processOutput(Output output, Stack<String> context) {
+    private void processOutput(Output output, List<String> context) {
         OutputType type = output.getOutputType();
 
         if (type != null) {
@@ -194,7 +248,7 @@ public class LutronDeviceDiscoveryService extends AbstractDiscoveryService {
         logger.debug("Discovered {}", uid);
     }
 
-    private String generateLabel(Stack<String> context, String deviceName) {
+    private String generateLabel(List<String> context, String deviceName) {
         return String.join(" ", context) + " " + deviceName;
     }
 }
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.lutron.internal.protocol;
+
+/**
+ * Parser for the status messages of a Lutron integration access point, e.g. <code>~OUTPUT,12,1,75.00</code>.
+ *
+ * The parser scans the line by hand instead of using a regular expression and split, so only the parameter strings
+ * are allocated. An instance keeps the fields of the last parsed line and is not thread safe.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+public class LutronStatusParser {
+    private static final String[] NO_PARAMETERS = new String[0];
+
+    private String line;
+    private LutronCommandType type;
+    private int idStart;
+    private int idEnd;
+    private int parametersStart;
+    private int end;
+
+    /**
+     * Parses a line of the form <code>~TYPE,id,parameters</code>, where TYPE is OUTPUT, DEVICE or SYSTEM. The message
+     * may be preceded by other text, e.g. a prompt.
+     *
+     * @param line the received line
+     * @return true, if the line contains a status message
+     */
+    public boolean parse(String line) {
+        this.line = line;
+        this.type = null;
+
+        int length = line.length();
+        for (int start = line.indexOf('~'); start >= 0; start = line.indexOf('~', start + 1)) {
+            LutronCommandType type = typeAt(line, start + 1);
+
+            if (type == null) {
+                continue;
+            }
+
+            // skip "~TYPE,", all three types have six characters
+            int idStart = start + 8;
+            int idEnd = idStart;
+
+            while (idEnd < length && line.charAt(idEnd) != ',' && !isLineEnd(line.charAt(idEnd))) {
+                idEnd++;
+            }
+
+            if (idEnd == idStart || idEnd == length || line.charAt(idEnd) != ',') {
+                continue;
+            }
+
+            int end = idEnd + 1;
+
+            while (end < length && !isLineEnd(line.charAt(end))) {
+                end++;
+            }
+
+            this.type = type;
+            this.idStart = idStart;
+            this.idEnd = idEnd;
+            this.parametersStart = idEnd + 1;
+            this.end = end;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the type of the last parsed message
+     */
+    public LutronCommandType getType() {
+        return this.type;
+    }
+
+    /**
+     * @return the second field of the last parsed message as it was received
+     */
+    public String getIdField() {
+        return this.line.substring(this.idStart, this.idEnd);
+    }
+
+    /**
+     * @return the integration id of the last parsed message or -1, if it is not a number
+     */
+    public int getIntegrationId() {
+        int id = 0;
+
+        // integration ids have at most a few digits, longer numbers are invalid
+        if (this.idEnd - this.idStart > 9) {
+            return -1;
+        }
+
+        for (int i = this.idStart; i < this.idEnd; i++) {
+            char c = this.line.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            id = id * 10 + (c - '0');
+        }
+
+        return id;
+    }
+
+    /**
+     * @return the parameters of the last parsed message as a single string
+     */
+    public String getParameterString() {
+        return this.line.substring(this.parametersStart, this.end);
+    }
+
+    /**
+     * Splits the parameters of the last parsed message at the commas. Trailing empty parameters are removed, like
+     * {@link String#split(String)} does.
+     *
+     * @return the parameters of the last parsed message
+     */
+    public String[] getParameters() {
+        int start = this.parametersStart;
+        int end = this.end;
+
+        if (start == end) {
+            return new String[] { "" };
+        }
+
+        // drop trailing empty parameters
+        while (end > start && this.line.charAt(end - 1) == ',') {
+            end--;
+        }
+
+        if (end == start) {
+            return NO_PARAMETERS;
+        }
+
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (this.line.charAt(i) == ',') {
+                count++;
+            }
+        }
+
+        String[] parameters = new String[count];
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            if (this.line.charAt(i) == ',') {
+                parameters[index++] = this.line.substring(start, i);
+                start = i + 1;
+            }
+        }
+        parameters[index] = this.line.substring(start, end);
+
+        return parameters;
+    }
+
+    private static LutronCommandType typeAt(String line, int offset) {
+        if (line.length() < offset + 7 || line.charAt(offset + 6) != ',') {
+            return null;
+        }
+
+        if (line.startsWith("OUTPUT", offset)) {
+            return LutronCommandType.OUTPUT;
+        } else if (line.startsWith("DEVICE", offset)) {
+            return LutronCommandType.DEVICE;
+        } else if (line.startsWith("SYSTEM", offset)) {
+            return LutronCommandType.SYSTEM;
+        }
+
+        return null;
+    }
+
+    private static boolean isLineEnd(char c) {
+        return c == '\n' || c == '\r';
+    }
+}
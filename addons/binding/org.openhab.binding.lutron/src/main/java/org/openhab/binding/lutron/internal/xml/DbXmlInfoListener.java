@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.lutron.internal.xml;
+
+import java.util.List;
+
+import org.openhab.binding.lutron.internal.discovery.project.Device;
+import org.openhab.binding.lutron.internal.discovery.project.Output;
+
+/**
+ * Receives the device things of a Lutron XML project file while it is read by the {@link DbXmlInfoReader}.
+ *
+ * @author agent - Initial contribution
+ */
+public interface DbXmlInfoListener {
+
+    /**
+     * @param location the names of the areas and the device group containing the device, outermost first
+     * @param device an input device such as a keypad or occupancy sensor
+     */
+    void deviceFound(List<String> location, Device device);
+
+    /**
+     * @param location the names of the areas containing the output, outermost first
+     * @param output an output device such as a switch or dimmer
+     */
+    void outputFound(List<String> location, Output output);
+}
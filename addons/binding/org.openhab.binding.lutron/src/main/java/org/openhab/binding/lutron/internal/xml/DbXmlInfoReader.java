@@ -8,77 +8,118 @@
  */
 package org.openhab.binding.lutron.internal.xml;
 
-import org.eclipse.smarthome.config.xml.util.XmlDocumentReader;
-import org.openhab.binding.lutron.internal.discovery.project.Area;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.openhab.binding.lutron.internal.discovery.project.Component;
 import org.openhab.binding.lutron.internal.discovery.project.Device;
-import org.openhab.binding.lutron.internal.discovery.project.DeviceGroup;
 import org.openhab.binding.lutron.internal.discovery.project.Output;
-import org.openhab.binding.lutron.internal.discovery.project.Project;
-
-import com.thoughtworks.xstream.XStream;
 
 /**
- * The {@link DbXmlInfoReader} reads Lutron XML project files and converts them to {@link Project}
- * objects describing the device things contained within the Lutron system.
+ * The {@link DbXmlInfoReader} reads Lutron XML project files and reports the device things contained within the
+ * Lutron system to a {@link DbXmlInfoListener}.
+ *
+ * The file is read as a stream, so the devices are reported area by area while the file is parsed and the project is
+ * never held in memory as a whole.
  *
  * @author Allan Tong - Initial contribution
  */
-public class DbXmlInfoReader extends XmlDocumentReader<Project> {
+public class DbXmlInfoReader {
+
+    private final XMLInputFactory factory;
 
     public DbXmlInfoReader() {
-        super.setClassLoader(Project.class.getClassLoader());
+        this.factory = XMLInputFactory.newInstance();
+        this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
     }
 
-    @Override
-    public void registerConverters(XStream xstream) {
+    /**
+     * Reads a project file and reports its devices and outputs in document order.
+     *
+     * @param input the project file
+     * @param listener receives the devices and outputs
+     * @throws XMLStreamException if the project file cannot be parsed
+     */
+    public void read(InputStream input, DbXmlInfoListener listener) throws XMLStreamException {
+        XMLStreamReader reader = this.factory.createXMLStreamReader(input);
+
+        try {
+            // element names of the current path, to find the elements only where they describe device things
+            Deque<String> path = new ArrayDeque<>();
+            // names of the enclosing areas and device groups
+            List<String> location = new ArrayList<>();
+            List<String> unmodifiableLocation = Collections.unmodifiableList(location);
+
+            String deviceName = null;
+            Integer deviceIntegrationId = null;
+            String deviceType = null;
+            List<Component> components = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String element = reader.getLocalName();
+                    String parent = path.peek();
+
+                    if ("Area".equals(element) && "Areas".equals(parent)) {
+                        location.add(reader.getAttributeValue(null, "Name"));
+                    } else if ("DeviceGroup".equals(element) && "DeviceGroups".equals(parent)) {
+                        location.add(reader.getAttributeValue(null, "Name"));
+                    } else if ("Device".equals(element) && ("Devices".equals(parent) || "DeviceGroups".equals(parent))) {
+                        deviceName = reader.getAttributeValue(null, "Name");
+                        deviceIntegrationId = parseInteger(reader.getAttributeValue(null, "IntegrationID"));
+                        deviceType = reader.getAttributeValue(null, "DeviceType");
+                        components = new ArrayList<>();
+                    } else if ("Component".equals(element) && "Components".equals(parent) && components != null) {
+                        components.add(new Component(parseInteger(reader.getAttributeValue(null, "ComponentNumber")),
+                                reader.getAttributeValue(null, "ComponentType")));
+                    } else if ("Output".equals(element) && "Outputs".equals(parent)) {
+                        listener.outputFound(unmodifiableLocation,
+                                new Output(reader.getAttributeValue(null, "Name"),
+                                        parseInteger(reader.getAttributeValue(null, "IntegrationID")),
+                                        reader.getAttributeValue(null, "OutputType")));
+                    }
+
+                    path.push(element);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String element = path.pop();
+                    String parent = path.peek();
+
+                    if (("Area".equals(element) && "Areas".equals(parent))
+                            || ("DeviceGroup".equals(element) && "DeviceGroups".equals(parent))) {
+                        location.remove(location.size() - 1);
+                    } else if ("Device".equals(element) && components != null) {
+                        listener.deviceFound(unmodifiableLocation,
+                                new Device(deviceName, deviceIntegrationId, deviceType, components));
+                        components = null;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
     }
 
-    @Override
-    public void registerAliases(XStream xstream) {
-        xstream.alias("Project", Project.class);
-        xstream.aliasField("AppVer", Project.class, "appVersion");
-        xstream.aliasField("XMLVer", Project.class, "xmlVersion");
-        xstream.aliasField("Areas", Project.class, "areas");
-
-        xstream.alias("Area", Area.class);
-        xstream.aliasField("Name", Area.class, "name");
-        xstream.useAttributeFor(Area.class, "name");
-        xstream.aliasField("DeviceGroups", Area.class, "deviceNodes");
-        xstream.aliasField("Outputs", Area.class, "outputs");
-        xstream.aliasField("Areas", Area.class, "areas");
-
-        xstream.alias("DeviceGroup", DeviceGroup.class);
-        xstream.aliasField("Name", DeviceGroup.class, "name");
-        xstream.useAttributeFor(DeviceGroup.class, "name");
-        xstream.aliasField("Devices", DeviceGroup.class, "devices");
-
-        xstream.alias("Device", Device.class);
-        xstream.aliasField("Name", Device.class, "name");
-        xstream.useAttributeFor(Device.class, "name");
-        xstream.aliasField("IntegrationID", Device.class, "integrationId");
-        xstream.useAttributeFor(Device.class, "integrationId");
-        xstream.aliasField("DeviceType", Device.class, "type");
-        xstream.useAttributeFor(Device.class, "type");
-        xstream.aliasField("Components", Device.class, "components");
-
-        xstream.alias("Component", Component.class);
-        xstream.aliasField("ComponentNumber", Component.class, "componentNumber");
-        xstream.useAttributeFor(Component.class, "componentNumber");
-        xstream.aliasField("ComponentType", Component.class, "type");
-        xstream.useAttributeFor(Component.class, "type");
-
-        xstream.alias("Output", Output.class);
-        xstream.aliasField("Name", Output.class, "name");
-        xstream.useAttributeFor(Output.class, "name");
-        xstream.aliasField("IntegrationID", Output.class, "integrationId");
-        xstream.useAttributeFor(Output.class, "integrationId");
-        xstream.aliasField("OutputType", Output.class, "type");
-        xstream.useAttributeFor(Output.class, "type");
-
-        // This reader is only interested in device thing information and does not read
-        // everything contained in DbXmlInfo. Ignoring unknown elements also makes the
-        // binding more tolerant of potential future changes to the XML schema.
-        xstream.ignoreUnknownElements();
+    private static Integer parseInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.max.internal.handler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.max.internal.command.M_Command;
+import org.openhab.binding.max.internal.command.Q_Command;
+import org.openhab.binding.max.internal.command.S_Command;
+import org.openhab.binding.max.internal.command.S_ConfigCommand;
+import org.openhab.binding.max.internal.command.S_ConfigCommand.ConfigCommandType;
+import org.openhab.binding.max.internal.command.T_Command;
+import org.openhab.binding.max.internal.command.Z_Command;
+import org.openhab.binding.max.internal.device.Device;
+import org.openhab.binding.max.internal.device.RoomInformation;
+import org.openhab.binding.max.internal.device.ThermostatModeType;
+
+/**
+ * Tests cases for {@link SendCommandQueue}.
+ *
+ * @author agent - Initial version
+ */
+public class SendCommandQueueTest {
+
+    private SendCommandQueue queue;
+
+    @Before
+    public void before() {
+        queue = new SendCommandQueue();
+    }
+
+    private SendCommand temperature(String serialNumber, double temperature) {
+        return new SendCommand(serialNumber, new S_Command("0b0da3", 1, ThermostatModeType.MANUAL, temperature),
+                "Temperature " + temperature);
+    }
+
+    @Test
+    public void coalesceTest() {
+        SendCommand first = temperature("KEQ0000001", 20.0);
+        SendCommand other = temperature("KEQ0000002", 20.0);
+        SendCommand second = temperature("KEQ0000001", 21.0);
+
+        assertNull(queue.offer(first));
+        assertNull(queue.offer(other));
+        assertSame(first, queue.offer(second));
+        assertEquals(2, queue.size());
+
+        // the newer command takes the position of the replaced one
+        assertSame(second, queue.poll());
+        assertSame(other, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    private SendCommand reload(String serialNumber) {
+        return new SendCommand(serialNumber, new Q_Command(), "Reload Data");
+    }
+
+    private SendCommand roomUpdate() {
+        return new SendCommand("Cube(cube)", new M_Command(new ArrayList<Device>(), new ArrayList<RoomInformation>()),
+                "Room update");
+    }
+
+    @Test
+    public void exhaustedDutyCycleTest() {
+        SendCommand radio = temperature("KEQ0000001", 20.0);
+        SendCommand reload = reload("KEQ0000002");
+        queue.offer(radio);
+        queue.offer(reload);
+
+        queue.updateCubeState(SendCommandQueue.DUTY_CYCLE_LIMIT, 10);
+        assertTrue(queue.isExhausted());
+        assertSame(reload, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(1, queue.size());
+
+        queue.updateCubeState(0, 10);
+        assertFalse(queue.isExhausted());
+        assertSame(radio, queue.poll());
+    }
+
+    @Test
+    public void noFreeMemorySlotsTest() {
+        queue.offer(temperature("KEQ0000001", 20.0));
+
+        queue.updateCubeState(0, 0);
+        assertNull(queue.poll());
+
+        queue.updateCubeState(0, 1);
+        assertNotNull(queue.poll());
+    }
+
+    @Test
+    public void requeueTest() {
+        SendCommand discarded = temperature("KEQ0000001", 20.0);
+        SendCommand queued = temperature("KEQ0000002", 20.0);
+        queue.offer(queued);
+
+        assertTrue(queue.requeue(discarded));
+        assertTrue(queue.isExhausted());
+        assertNull(queue.poll());
+
+        queue.updateCubeState(0, 10);
+        assertSame(discarded, queue.poll());
+        assertSame(queued, queue.poll());
+    }
+
+    @Test
+    public void requeueSupersededTest() {
+        SendCommand discarded = temperature("KEQ0000001", 20.0);
+        SendCommand newer = temperature("KEQ0000001", 21.0);
+        queue.offer(newer);
+
+        assertFalse(queue.requeue(discarded));
+        queue.updateCubeState(0, 10);
+        assertSame(newer, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void radioCommandTest() {
+        assertTrue(SendCommandQueue.isRadioCommand(temperature("KEQ0000001", 20.0)));
+        assertTrue(SendCommandQueue.isRadioCommand(new SendCommand("KEQ0000001",
+                new S_ConfigCommand("0b0da3", 1, ConfigCommandType.SetRoom), "Set Room")));
+        assertTrue(SendCommandQueue.isRadioCommand(
+                new SendCommand("KEQ0000001", Z_Command.wakeupDevice("0b0da3"), "WakeUp device")));
+        assertFalse(SendCommandQueue.isRadioCommand(reload("KEQ0000001")));
+        assertFalse(SendCommandQueue.isRadioCommand(roomUpdate()));
+    }
+
+    @Test
+    public void requeueConfigCommandTest() {
+        SendCommand discarded = new SendCommand("KEQ0000001",
+                new S_ConfigCommand("0b0da3", 1, ConfigCommandType.SetRoom), "Set Room");
+        SendCommand newer = new SendCommand("KEQ0000001",
+                new S_ConfigCommand("0b0da3", 2, ConfigCommandType.SetRoom), "Set Room");
+        queue.offer(newer);
+
+        // configuration commands are not merged, so the discarded one is sent again first
+        assertTrue(queue.requeue(discarded));
+        assertNull(queue.poll());
+        queue.updateCubeState(0, 10);
+        assertSame(discarded, queue.poll());
+        assertSame(newer, queue.poll());
+    }
+
+    @Test
+    public void updateRoomSequenceTest() {
+        SendCommand previousReload = reload("KEQ0000001");
+        SendCommand roomUpdate = roomUpdate();
+        SendCommand wakeUp = new SendCommand("KEQ0000001", Z_Command.wakeupDevice("0b0da3"), "WakeUp device");
+        SendCommand setRoom = new SendCommand("KEQ0000001",
+                new S_ConfigCommand("0b0da3", 1, ConfigCommandType.SetRoom), "Set Room");
+        SendCommand reload = reload("KEQ0000001");
+        queue.offer(previousReload);
+        queue.offer(roomUpdate);
+        queue.offer(wakeUp);
+        queue.offer(setRoom);
+        assertNull(queue.offer(reload));
+        assertEquals(5, queue.size());
+
+        // the reload must not overtake the held back wakeup and set room commands of the device
+        queue.updateCubeState(SendCommandQueue.DUTY_CYCLE_LIMIT, 10);
+        assertSame(previousReload, queue.poll());
+        assertSame(roomUpdate, queue.poll());
+        assertNull(queue.poll());
+
+        queue.updateCubeState(0, 10);
+        assertSame(wakeUp, queue.poll());
+        assertSame(setRoom, queue.poll());
+        assertSame(reload, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void deleteDeviceSequenceTest() {
+        SendCommand previousReload = reload("KEQ0000001");
+        SendCommand radio = temperature("KEQ0000002", 20.0);
+        SendCommand delete = new SendCommand("KEQ0000001", new T_Command("0b0da3", true), "Delete device");
+        SendCommand roomUpdate = roomUpdate();
+        SendCommand reload = reload("KEQ0000001");
+        queue.offer(previousReload);
+        queue.offer(radio);
+        queue.offer(delete);
+        queue.offer(roomUpdate);
+        assertNull(queue.offer(reload));
+
+        // the new reload keeps its position after the delete
+        queue.updateCubeState(SendCommandQueue.DUTY_CYCLE_LIMIT, 10);
+        assertSame(previousReload, queue.poll());
+        assertSame(delete, queue.poll());
+        assertSame(roomUpdate, queue.poll());
+        assertSame(reload, queue.poll());
+        assertNull(queue.poll());
+
+        queue.updateCubeState(0, 10);
+        assertSame(radio, queue.poll());
+    }
+}
@@ -54,6 +54,8 @@ public class MaxBinding {
     public static final String CHANNEL_CONTACT_STATE = "contact_state";
     public static final String CHANNEL_FREE_MEMORY = "free_mem";
     public static final String CHANNEL_DUTY_CYCLE = "duty_cycle";
+    public static final String CHANNEL_QUEUE_DEPTH = "queue_depth";
+    public static final String CHANNEL_ROUND_TRIP_TIME = "round_trip_time";
 
     // Custom Properties
     public static final String PROPERTY_SERIAL_NUMBER = "serialNumber";
@@ -20,11 +20,12 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -53,6 +54,7 @@ import org.openhab.binding.max.internal.command.M_Command;
 import org.openhab.binding.max.internal.command.N_Command;
 import org.openhab.binding.max.internal.command.Q_Command;
 import org.openhab.binding.max.internal.command.S_Command;
+import org.openhab.binding.max.internal.command.S_ConfigCommand;
 import org.openhab.binding.max.internal.command.T_Command;
 import org.openhab.binding.max.internal.command.UdpCubeCommand;
 import org.openhab.binding.max.internal.device.Device;
@@ -113,11 +115,8 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
 
     private ArrayList<DeviceConfiguration> configurations = new ArrayList<DeviceConfiguration>();
 
-    /** maximum queue size that we're allowing */
-    private static final int MAX_COMMANDS = 50;
-    private ArrayBlockingQueue<SendCommand> commandQueue = new ArrayBlockingQueue<SendCommand>(MAX_COMMANDS);
-
-    private SendCommand lastCommandId = null;
+    /** queued commands, at most one per device and channel */
+    private final SendCommandQueue commandQueue = new SendCommandQueue();
 
     private String ipAddress;
     private int port;
@@ -141,6 +140,11 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
      */
     private int freeMemorySlots;
 
+    /**
+     * Set if the Cube discarded the last S command
+     */
+    private boolean lastCommandDiscarded = false;
+
     /**
      * connection socket and reader/writer for execute method
      */
@@ -159,12 +163,27 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
             refreshData();
         }
     };
-    private ScheduledFuture<?> sendCommandJob;
-    private long sendCommandInterval = 5;
-    private Runnable sendCommandRunnable = new Runnable() {
+
+    /** maximum number of S commands written to the Cube before their responses are read */
+    private static final int MAX_PIPELINED_COMMANDS = 8;
+
+    /**
+     * Sends the queued commands to this Cube as soon as they are queued, independent of other Cubes
+     */
+    private volatile Thread commandWorker;
+    private Runnable commandWorkerRunnable = new Runnable() {
         @Override
         public void run() {
-            sendCommands();
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    SendCommand sendCommand = commandQueue.take();
+                    sendCommands(sendCommand);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.debug("Unexpected exception occurred during sending of commands: {}", e.getMessage(), e);
+                }
+            }
         }
     };
 
@@ -306,9 +325,10 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
         if (pollingJob == null || pollingJob.isCancelled()) {
             pollingJob = scheduler.scheduleWithFixedDelay(pollingRunnable, 0, refreshInterval, TimeUnit.SECONDS);
         }
-        if (sendCommandJob == null || sendCommandJob.isCancelled()) {
-            sendCommandJob = scheduler.scheduleWithFixedDelay(sendCommandRunnable, 0, sendCommandInterval,
-                    TimeUnit.SECONDS);
+        if (commandWorker == null) {
+            commandWorker = new Thread(commandWorkerRunnable, "MAX! Cube " + ipAddress + " command worker");
+            commandWorker.setDaemon(true);
+            commandWorker.start();
         }
     }
 
@@ -320,39 +340,93 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
             pollingJob.cancel(true);
             pollingJob = null;
         }
-        if (sendCommandJob != null && !sendCommandJob.isCancelled()) {
-            sendCommandJob.cancel(true);
-            sendCommandJob = null;
+        Thread worker = commandWorker;
+        if (worker != null) {
+            worker.interrupt();
+            commandWorker = null;
         }
     }
 
     /**
-     * Takes a command from the command queue and send it to
-     * {@link executeCommand} for execution.
+     * Sends the given command and the following queued commands to the MAX!
+     * Cube. Consecutive S commands (setpoint and configuration) are written to
+     * the Cube at once and their responses are read afterwards, all other
+     * commands are sent on their own. Commands the Cube discarded are queued
+     * again.
      *
+     * @param sendCommand
+     *            the first command taken from the command queue
      */
-    private synchronized void sendCommands() {
+    private void sendCommands(SendCommand sendCommand) {
+        List<SendCommand> batch = new ArrayList<SendCommand>();
+        List<CubeCommand> cubeCommands = new ArrayList<CubeCommand>();
 
-        SendCommand sendCommand = commandQueue.poll();
-        if (sendCommand != null) {
+        while (sendCommand != null) {
             CubeCommand cmd = sendCommand.getCubeCommand();
             if (cmd == null) {
                 cmd = getCommand(sendCommand);
             }
-            if (cmd != null) {
-                // Actual sending of the data to the Max! Cube Lan Gateway
-                logger.debug("Command {} ({}:{}) sent to MAX! Cube at IP: {}", sendCommand.getId(),
-                        sendCommand.getKey(), sendCommand.getCommandText(), ipAddress);
+            if (cmd instanceof S_Command || cmd instanceof S_ConfigCommand) {
+                batch.add(sendCommand);
+                cubeCommands.add(cmd);
+                if (batch.size() >= getPipelineDepth()) {
+                    break;
+                }
+            } else if (cmd != null) {
+                sendBatch(batch, cubeCommands);
+                batch.add(sendCommand);
+                cubeCommands.add(cmd);
+                break;
+            }
+            sendCommand = commandQueue.poll();
+        }
+        sendBatch(batch, cubeCommands);
+        updateQueueState();
+    }
 
-                if (sendCubeCommand(cmd)) {
-                    logger.trace("Command {} ({}:{}) completed for MAX! Cube at IP: {}", sendCommand.getId(),
-                            sendCommand.getKey(), sendCommand.getCommandText(), ipAddress);
-                } else {
-                    logger.warn("Error sending command {} ({}:{}) to MAX! Cube at IP: {}", sendCommand.getId(),
-                            sendCommand.getKey(), sendCommand.getCommandText(), ipAddress);
+    /**
+     * Sends the commands of the batch to the MAX! Cube and clears the batch.
+     */
+    private void sendBatch(List<SendCommand> batch, List<CubeCommand> cubeCommands) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (SendCommand sendCommand : batch) {
+            // Actual sending of the data to the Max! Cube Lan Gateway
+            logger.debug("Command {} ({}:{}) sent to MAX! Cube at IP: {}", sendCommand.getId(), sendCommand.getKey(),
+                    sendCommand.getCommandText(), ipAddress);
+        }
+
+        List<CubeCommand> discardedCommands = new ArrayList<CubeCommand>();
+        boolean success = sendCubeCommands(cubeCommands, discardedCommands);
+        // commands are queued again at the head of the queue, so the last one goes first
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            SendCommand sendCommand = batch.get(i);
+            if (discardedCommands.contains(cubeCommands.get(i))) {
+                if (commandQueue.requeue(sendCommand)) {
+                    logger.debug("Command {} ({}:{}) discarded by MAX! Cube at IP: {}, queued again",
+                            sendCommand.getId(), sendCommand.getKey(), sendCommand.getCommandText(), ipAddress);
                 }
+            } else if (success) {
+                logger.trace("Command {} ({}:{}) completed for MAX! Cube at IP: {}", sendCommand.getId(),
+                        sendCommand.getKey(), sendCommand.getCommandText(), ipAddress);
+            } else {
+                logger.warn("Error sending command {} ({}:{}) to MAX! Cube at IP: {}", sendCommand.getId(),
+                        sendCommand.getKey(), sendCommand.getCommandText(), ipAddress);
             }
         }
+        batch.clear();
+        cubeCommands.clear();
+    }
+
+    /**
+     * @return the number of S commands, which can be written to the Cube
+     *         before their responses are read. Limited by the free memory
+     *         slots of the Cube, which buffer the commands until they are
+     *         sent to the devices.
+     */
+    private int getPipelineDepth() {
+        return Math.max(1, Math.min(MAX_PIPELINED_COMMANDS, freeMemorySlots));
     }
 
     /**
@@ -449,69 +523,95 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
      * @param {@link CubeCommand}
      * @return boolean success
      */
-    private synchronized boolean sendCubeCommand(CubeCommand command) {
-        synchronized (MaxCubeBridgeHandler.class) {
-            boolean sendSuccess = false;
-            try {
-                if (socket == null || socket.isClosed()) {
-                    this.socketConnect();
-                }
-
-                if (maxRequestsPerConnection > 0 && requestCount >= maxRequestsPerConnection) {
-                    logger.debug("maxRequestsPerConnection reached, reconnecting.");
-                    socket.close();
-                    this.socketConnect();
-                } else {
-
-                    if (requestCount == 0) {
-                        logger.debug("Connect to MAX! Cube");
-                        readliness("L:");
+    private boolean sendCubeCommand(CubeCommand command) {
+        return sendCubeCommands(Collections.singletonList(command), null);
+    }
 
-                    }
-                    if (!(requestCount == 0 && command instanceof L_Command)) {
+    /**
+     * Connects to the Max! Cube Lan gateway, writes all commands to the Cube
+     * and processes the responses in the order of the commands. Only the
+     * connection of this Cube is locked, other Cubes are not affected.
+     *
+     * @param commands
+     *            the {@link CubeCommand}s to send
+     * @param discardedCommands
+     *            receives the commands the Cube didn't accept, may be null
+     * @return boolean success
+     */
+    private synchronized boolean sendCubeCommands(List<CubeCommand> commands, List<CubeCommand> discardedCommands) {
+        boolean sendSuccess = false;
+        try {
+            if (socket != null && maxRequestsPerConnection > 0 && requestCount >= maxRequestsPerConnection) {
+                logger.debug("maxRequestsPerConnection reached, reconnecting.");
+                socketClose();
+            }
+            if (socket == null || socket.isClosed()) {
+                this.socketConnect();
+            }
 
-                        logger.debug("Sending request #{} to MAX! Cube", this.requestCount);
-                        if (writer == null) {
-                            logger.warn("Can't write to MAX! Cube");
-                            this.socketConnect();
-                        }
+            boolean connected = requestCount == 0;
+            if (connected) {
+                logger.debug("Connect to MAX! Cube");
+                readliness("L:");
+            }
 
-                        writer.write(command.getCommandString());
-                        logger.trace("Write string to Max! Cube {}: {}", ipAddress, command.getCommandString());
-                        writer.flush();
-                        if (command.getReturnStrings() != null) {
-                            readliness(command.getReturnStrings());
-                        } else {
-                            socketClose();
-                        }
-                    }
+            List<CubeCommand> sentCommands = new ArrayList<CubeCommand>(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                CubeCommand command = commands.get(i);
+                // the L message is sent by the Cube after connecting
+                if (!(connected && i == 0 && command instanceof L_Command)) {
+                    logger.debug("Sending request #{} to MAX! Cube", this.requestCount);
+                    writer.write(command.getCommandString());
+                    logger.trace("Write string to Max! Cube {}: {}", ipAddress, command.getCommandString());
+                    sentCommands.add(command);
                 }
-
                 requestCount++;
-                sendSuccess = true;
-
-                if (!exclusive) {
+            }
+            writer.flush();
+
+            long start = System.currentTimeMillis();
+            for (CubeCommand command : sentCommands) {
+                if (command.getReturnStrings() != null) {
+                    lastCommandDiscarded = false;
+                    readliness(command.getReturnStrings());
+                    if (lastCommandDiscarded && discardedCommands != null) {
+                        discardedCommands.add(command);
+                    }
+                } else {
                     socketClose();
+                    break;
                 }
-            } catch (ConnectException e) {
-                logger.debug("Connection timed out on {} port {}", ipAddress, port);
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
-            } catch (UnknownHostException e) {
-                logger.debug("Host error occurred during execution: {}", e.getMessage());
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
-            } catch (IOException e) {
-                logger.debug("IO error occurred during execution: {}", e.getMessage());
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
-            } catch (Exception e) {
-                logger.debug("Exception occurred during execution: {}", e.getMessage(), e);
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
             }
-            return sendSuccess;
+            if (!sentCommands.isEmpty()) {
+                // average time the Cube took to respond to one of the commands
+                long roundTripTime = (System.currentTimeMillis() - start) / sentCommands.size();
+                updateState(new ChannelUID(getThing().getUID(), CHANNEL_ROUND_TRIP_TIME),
+                        new DecimalType(roundTripTime));
+            }
+
+            sendSuccess = true;
+
+            if (!exclusive) {
+                socketClose();
+            }
+        } catch (ConnectException e) {
+            logger.debug("Connection timed out on {} port {}", ipAddress, port);
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
+        } catch (UnknownHostException e) {
+            logger.debug("Host error occurred during execution: {}", e.getMessage());
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
+        } catch (IOException e) {
+            logger.debug("IO error occurred during execution: {}", e.getMessage());
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
+        } catch (Exception e) {
+            logger.debug("Exception occurred during execution: {}", e.getMessage(), e);
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
         }
+        return sendSuccess;
     }
 
     /**
@@ -577,6 +677,7 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
                     dutyCycle = dutyCycleMsg;
                     updateCubeState();
                 }
+                commandQueue.updateCubeState(dutyCycle, freeMemorySlots);
                 if (!propertiesSet) {
                     setProperties((H_Message) message);
                     queueCommand(new SendCommand("Cube(" + getThing().getUID().getId() + ")", new F_Command(),
@@ -656,8 +757,10 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
             } else if (message.getType() == MessageType.S) {
                 dutyCycle = ((S_Message) message).getDutyCycle();
                 freeMemorySlots = ((S_Message) message).getFreeMemorySlots();
+                commandQueue.updateCubeState(dutyCycle, freeMemorySlots);
                 updateCubeState();
                 if (((S_Message) message).isCommandDiscarded()) {
+                    lastCommandDiscarded = true;
                     logger.warn("Last Send Command discarded. Duty Cycle: {}, Free Memory Slots: {}", dutyCycle,
                             freeMemorySlots);
                 } else {
@@ -769,33 +872,29 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
      * Takes the device command and puts it on the command queue to be processed
      * by the MAX! Cube Lan Gateway. Note that if multiple commands for the same
      * item-channel combination are send prior that they are processed by the
-     * Max! Cube, they will be removed from the queue as they would not be
-     * meaningful. This will improve the behavior when using sliders in the GUI.
+     * Max! Cube, the queued command is replaced by the newer one as it would not
+     * be meaningful. This will improve the behavior when using sliders in the GUI
+     * or rules changing many devices at once. Commands for the devices are held
+     * back while the duty cycle of the Cube is exhausted.
      *
      * @param SendCommand
      *            the SendCommand containing the serial number of the device as
      *            String the channelUID used to send the command and the the
      *            command data
      */
-    public synchronized void queueCommand(SendCommand sendCommand) {
-
-        if (commandQueue.offer(sendCommand)) {
-            if (lastCommandId != null) {
-                if (lastCommandId.getKey().equals(sendCommand.getKey())) {
-                    if (commandQueue.remove(lastCommandId)) {
-                        logger.debug("Removed Command id {} ({}) from queue. Superceeded by {}", lastCommandId.getId(),
-                                lastCommandId.getKey(), sendCommand.getId());
-                    }
-                }
-            }
-            lastCommandId = sendCommand;
-            logger.debug("Command queued id {} ({}:{}).", sendCommand.getId(), sendCommand.getKey(),
-                    sendCommand.getCommandText());
-
-        } else {
-            logger.debug("Command queued full dropping command id {} ({}).", sendCommand.getId(), sendCommand.getKey());
+    public void queueCommand(SendCommand sendCommand) {
+        SendCommand replaced = commandQueue.offer(sendCommand);
+        if (replaced != null) {
+            logger.debug("Removed Command id {} ({}) from queue. Superceeded by {}", replaced.getId(),
+                    replaced.getKey(), sendCommand.getId());
         }
-
+        logger.debug("Command queued id {} ({}:{}).", sendCommand.getId(), sendCommand.getKey(),
+                sendCommand.getCommandText());
+        if (commandQueue.isExhausted() && SendCommandQueue.isRadioCommand(sendCommand)) {
+            logger.debug("Duty cycle of MAX! Cube at IP: {} exhausted ({}%, {} free memory slots), command is delayed",
+                    ipAddress, dutyCycle, freeMemorySlots);
+        }
+        updateQueueState();
     }
 
     /**
@@ -933,4 +1032,8 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
         updateState(new ChannelUID(getThing().getUID(), CHANNEL_FREE_MEMORY), new DecimalType(freeMemorySlots));
         updateState(new ChannelUID(getThing().getUID(), CHANNEL_DUTY_CYCLE), new DecimalType(dutyCycle));
     }
+
+    private void updateQueueState() {
+        updateState(new ChannelUID(getThing().getUID(), CHANNEL_QUEUE_DEPTH), new DecimalType(commandQueue.size()));
+    }
 }
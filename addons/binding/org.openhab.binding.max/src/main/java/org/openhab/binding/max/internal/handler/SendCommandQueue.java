@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.max.internal.handler;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+
+import org.openhab.binding.max.internal.command.CubeCommand;
+import org.openhab.binding.max.internal.command.S_Command;
+import org.openhab.binding.max.internal.command.S_ConfigCommand;
+import org.openhab.binding.max.internal.command.Z_Command;
+
+/**
+ * Queue of the commands for one MAX! Cube.
+ *
+ * The commands are sent in the order they were queued. Only a queued setpoint
+ * update (S command) is replaced by a newer one with the same key (device and
+ * channel), wherever it is in the queue. All other commands are part of
+ * sequences like wakeup, set room and reload, so they are never merged.
+ *
+ * Commands for the devices are sent by radio and count against the duty cycle
+ * of the Cube. While the duty cycle is exhausted or the Cube has no free memory
+ * slots, these commands are held back. Commands for the Cube itself may be sent
+ * meanwhile, unless they belong to a device with a held back command, so the
+ * commands of every device keep their order. After {@link #RETRY_DELAY} one
+ * held back command is released to get the current duty cycle from the Cube.
+ *
+ * @author agent - Initial contribution
+ */
+class SendCommandQueue {
+
+    /** duty cycle in % from which on no more radio commands are sent */
+    static final int DUTY_CYCLE_LIMIT = 90;
+
+    /** time in ms radio commands are held back while the duty cycle is exhausted */
+    static final long RETRY_DELAY = 60000;
+
+    private final List<SendCommand> commands = new LinkedList<SendCommand>();
+
+    private boolean exhausted = false;
+    private long holdUntil = 0;
+
+    /**
+     * Queues the command at the end of the queue. A setpoint update replaces a
+     * queued setpoint update with the same key and takes its position in the
+     * queue.
+     *
+     * @param sendCommand
+     *            the command to queue
+     * @return the replaced command or null
+     */
+    synchronized SendCommand offer(SendCommand sendCommand) {
+        SendCommand replaced = null;
+        if (isSetpointCommand(sendCommand)) {
+            ListIterator<SendCommand> iterator = commands.listIterator();
+            while (iterator.hasNext() && replaced == null) {
+                SendCommand queued = iterator.next();
+                if (isSetpointCommand(queued) && queued.getKey().equals(sendCommand.getKey())) {
+                    iterator.set(sendCommand);
+                    replaced = queued;
+                }
+            }
+        }
+        if (replaced == null) {
+            commands.add(sendCommand);
+        }
+        notifyAll();
+        return replaced;
+    }
+
+    /**
+     * Puts a command, which was not accepted by the Cube, back to the head of
+     * the queue, unless it is a setpoint update and a newer one with the same
+     * key has been queued meanwhile. Radio commands are held back until the
+     * Cube reports a duty cycle below the limit again.
+     *
+     * @param sendCommand
+     *            the command to queue again
+     * @return true, if the command has been queued
+     */
+    synchronized boolean requeue(SendCommand sendCommand) {
+        if (!exhausted) {
+            exhausted = true;
+            holdUntil = System.currentTimeMillis() + RETRY_DELAY;
+        }
+        if (isSetpointCommand(sendCommand)) {
+            for (SendCommand queued : commands) {
+                if (isSetpointCommand(queued) && queued.getKey().equals(sendCommand.getKey())) {
+                    return false;
+                }
+            }
+        }
+        commands.add(0, sendCommand);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Waits for the next command, which may be sent to the Cube.
+     *
+     * @return the next command
+     * @throws InterruptedException
+     */
+    synchronized SendCommand take() throws InterruptedException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            SendCommand sendCommand = next(now);
+            if (sendCommand != null) {
+                return sendCommand;
+            }
+            wait(commands.isEmpty() ? 0 : Math.max(1, holdUntil - now));
+        }
+    }
+
+    /**
+     * @return the next command, which may be sent to the Cube or null, if there
+     *         is none
+     */
+    synchronized SendCommand poll() {
+        return next(System.currentTimeMillis());
+    }
+
+    /**
+     * Updates the radio budget of the Cube, as reported by the H and S
+     * messages.
+     *
+     * @param dutyCycle
+     *            the used duty cycle in %
+     * @param freeMemorySlots
+     *            the free memory slots of the Cube
+     */
+    synchronized void updateCubeState(int dutyCycle, int freeMemorySlots) {
+        boolean wasExhausted = exhausted;
+        exhausted = dutyCycle >= DUTY_CYCLE_LIMIT || freeMemorySlots == 0;
+        if (exhausted && !wasExhausted) {
+            holdUntil = System.currentTimeMillis() + RETRY_DELAY;
+        } else if (!exhausted) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return true, if radio commands are held back
+     */
+    synchronized boolean isExhausted() {
+        return exhausted;
+    }
+
+    synchronized int size() {
+        return commands.size();
+    }
+
+    private SendCommand next(long now) {
+        boolean hold = exhausted && now < holdUntil;
+        // devices with a held back command, their later commands have to wait as well
+        Set<String> heldDevices = new HashSet<String>();
+        Iterator<SendCommand> iterator = commands.iterator();
+        while (iterator.hasNext()) {
+            SendCommand sendCommand = iterator.next();
+            boolean radio = isRadioCommand(sendCommand);
+            if (hold && radio) {
+                heldDevices.add(sendCommand.getDeviceSerial());
+            } else if (!heldDevices.contains(sendCommand.getDeviceSerial())) {
+                iterator.remove();
+                if (radio && exhausted) {
+                    // only one command is released until the Cube reports its duty cycle again
+                    holdUntil = now + RETRY_DELAY;
+                }
+                return sendCommand;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true, if the command is sent to a device by radio
+     */
+    static boolean isRadioCommand(SendCommand sendCommand) {
+        CubeCommand cubeCommand = sendCommand.getCubeCommand();
+        return cubeCommand == null || cubeCommand instanceof S_Command || cubeCommand instanceof S_ConfigCommand
+                || cubeCommand instanceof Z_Command;
+    }
+
+    /**
+     * @return true, if the command updates the setpoint or mode of a device
+     *         and may be replaced by a newer one
+     */
+    private static boolean isSetpointCommand(SendCommand sendCommand) {
+        CubeCommand cubeCommand = sendCommand.getCubeCommand();
+        return cubeCommand == null || cubeCommand instanceof S_Command;
+    }
+}
@@ -40,6 +40,11 @@ public class NetworkBindingConstants {
     public static final String PARAMETER_REFRESH_INTERVAL = "refresh_interval";
     public static final String PARAMETER_USE_SYSTEM_PING = "use_system_ping";
 
+    // List of all binding configuration parameters
+    public static final String PARAMETER_SCAN_PORTS = "scan_ports";
+    public static final String PARAMETER_SCAN_CONCURRENCY = "scan_concurrency";
+    public static final String PARAMETER_SCAN_RATE = "scan_rate";
+
     public static final Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Collections.singleton(THING_TYPE_DEVICE);
 
 }
@@ -10,12 +10,12 @@ package org.openhab.binding.network.discovery;
 
 import static org.openhab.binding.network.NetworkBindingConstants.*;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.config.discovery.AbstractDiscoveryService;
@@ -23,65 +23,150 @@ import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.openhab.binding.network.service.DiscoveryCallback;
 import org.openhab.binding.network.service.NetworkUtils;
+import org.openhab.binding.network.service.TcpConnectScanner;
+import org.openhab.binding.network.service.dhcp.ReceiveDHCPRequestPackets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * The {@link NetworkDiscoveryService} is responsible for discovering devices on
  * the current Network. It uses every Network Interface which is connected to a network.
+ * Hosts in the ARP table or seen by the DHCP listener are reported at once, all other IPs are checked
+ * by TCP connects on a few common ports with the {@link TcpConnectScanner}.
  *
  * @author Marc Mettke - Initial contribution
  */
 public class NetworkDiscoveryService extends AbstractDiscoveryService implements DiscoveryCallback {
     private final Logger logger = LoggerFactory.getLogger(NetworkDiscoveryService.class);
-    private ExecutorService executorService = null;
     static final int PING_TIMEOUT_IN_MS = 500;
-    private int scanningNetworkSize = 0;
+
+    /** echo (used by the java ping), ssh, http, netbios, https, smb, rtsp, http alternative */
+    static final String DEFAULT_SCAN_PORTS = "7,22,80,139,443,445,554,8080";
+    static final int DEFAULT_SCAN_CONCURRENCY = 128;
+    static final int DEFAULT_SCAN_RATE = 1000;
+
+    /** DHCP requests seen within this time are used as known hosts */
+    static final long DHCP_REQUEST_MAX_AGE = TimeUnit.HOURS.toMillis(1);
+
+    private int[] scanPorts = parsePorts(DEFAULT_SCAN_PORTS);
+    private int scanConcurrency = DEFAULT_SCAN_CONCURRENCY;
+    private int scanRate = DEFAULT_SCAN_RATE;
+
+    private volatile TcpConnectScanner scanner = null;
 
     public NetworkDiscoveryService() {
         super(SUPPORTED_THING_TYPES_UIDS, 900, false);
     }
 
+    @Override
+    protected void activate(Map<String, Object> configProperties) {
+        super.activate(configProperties);
+        applyConfig(configProperties);
+    }
+
+    @Override
+    protected void modified(Map<String, Object> configProperties) {
+        super.modified(configProperties);
+        applyConfig(configProperties);
+    }
+
+    private void applyConfig(Map<String, Object> configProperties) {
+        if (configProperties == null) {
+            return;
+        }
+        Object value = configProperties.get(PARAMETER_SCAN_PORTS);
+        if (value != null) {
+            int[] ports = parsePorts(String.valueOf(value));
+            if (ports.length > 0) {
+                scanPorts = ports;
+            }
+        }
+        value = configProperties.get(PARAMETER_SCAN_CONCURRENCY);
+        if (value != null) {
+            scanConcurrency = new BigDecimal(String.valueOf(value)).intValue();
+        }
+        value = configProperties.get(PARAMETER_SCAN_RATE);
+        if (value != null) {
+            scanRate = new BigDecimal(String.valueOf(value)).intValue();
+        }
+    }
+
+    static int[] parsePorts(String ports) {
+        Set<Integer> parsedPorts = new LinkedHashSet<>();
+        for (String port : ports.split(",")) {
+            try {
+                int parsedPort = Integer.parseInt(port.trim());
+                if (parsedPort > 0 && parsedPort < 65536) {
+                    parsedPorts.add(parsedPort);
+                }
+            } catch (NumberFormatException e) {
+            }
+        }
+        int[] result = new int[parsedPorts.size()];
+        int i = 0;
+        for (Integer port : parsedPorts) {
+            result[i++] = port;
+        }
+        return result;
+    }
+
     /**
-     * Starts the DiscoveryThread for each IP on each interface on the network
+     * Starts the scan of each IP on each interface on the network. The hosts are reported as they answer.
      *
      */
     @Override
     protected void startScan() {
-        if (executorService != null) {
+        if (scanner != null) {
             stopScan();
         }
 
         logger.debug("Starting Discovery");
-        LinkedHashSet<String> networkIPs = NetworkUtils.getNetworkIPs(NetworkUtils.getInterfaceIPs());
-        scanningNetworkSize = networkIPs.size();
-        executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 10);
+        final LinkedHashSet<String> networkIPs = NetworkUtils.getNetworkIPs(NetworkUtils.getInterfaceIPs());
 
-        for (Iterator<String> it = networkIPs.iterator(); it.hasNext();) {
-            final String ip = it.next();
-            executorService.execute(new PingRunnable(ip, this));
+        // fast path: hosts known to the operating system or the DHCP listener
+        Set<String> knownIPs = NetworkUtils.getArpTableIPs();
+        knownIPs.addAll(ReceiveDHCPRequestPackets.getRequestedAddresses(DHCP_REQUEST_MAX_AGE));
+        for (String ip : knownIPs) {
+            if (networkIPs.remove(ip)) {
+                newDevice(ip);
+            }
         }
-        stopScan();
+
+        final TcpConnectScanner scanner = new TcpConnectScanner(scanConcurrency, scanRate, PING_TIMEOUT_IN_MS);
+        this.scanner = scanner;
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scanner.scan(networkIPs, scanPorts, new TcpConnectScanner.Listener() {
+                        @Override
+                        public void hostReachable(TcpConnectScanner.Target target, int port, double latency) {
+                            newDevice(target.getHost());
+                        }
+                    });
+                } catch (IOException e) {
+                    logger.warn("Network scan failed: {}", e.getMessage());
+                }
+                if (NetworkDiscoveryService.this.scanner == scanner) {
+                    stopScan();
+                }
+            }
+        });
     }
 
     @Override
     protected synchronized void stopScan() {
         super.stopScan();
-        if (executorService == null) {
+        if (scanner == null) {
             return;
         }
 
-        try {
-            executorService.awaitTermination(PING_TIMEOUT_IN_MS * scanningNetworkSize, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-        }
-        executorService.shutdown();
-        executorService = null;
-
+        scanner.stop();
+        scanner = null;
     }
 
     /**
-     * Submit newly discovered devices. This method is called by the spawned threads in {@link startScan}.
+     * Submit newly discovered devices. This method is called by the scanner in {@link startScan}.
      *
      * @param ip The device IP, received by the
      */
@@ -138,7 +138,7 @@ public class NetworkHandler extends BaseThingHandler implements StateUpdate {
             networkService.setUseSystemPing(confValueToBoolean(value));
         }
 
-        networkService.startAutomaticRefresh(scheduler, this);
+        networkService.startAutomaticRefresh(this);
     }
 
 }
@@ -9,16 +9,9 @@
 package org.openhab.binding.network.service;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.SocketException;
 import java.net.SocketTimeoutException;
-import java.net.UnknownHostException;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.model.script.actions.Ping;
-import org.openhab.binding.network.service.dhcp.ReceiveDHCPRequestPackets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,8 +25,6 @@ public class NetworkService {
 
     private Logger logger = LoggerFactory.getLogger(NetworkService.class);
 
-    private ScheduledFuture<?> refreshJob;
-
     private String hostname;
     private int port;
     private int retry;
@@ -110,36 +101,20 @@ public class NetworkService {
         this.useSystemPing = useSystemPing;
     }
 
-    public void startAutomaticRefresh(ScheduledExecutorService scheduledExecutorService,
-            final StateUpdate stateUpdate) {
-        Runnable runnable = new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    stateUpdate.newState(updateDeviceState());
-                } catch (InvalidConfigurationException e) {
-                    stateUpdate.invalidConfig();
-                }
-            }
-        };
-
-        refreshJob = scheduledExecutorService.scheduleAtFixedRate(runnable, 0, refreshInterval, TimeUnit.MILLISECONDS);
+    public boolean isDHCPListen() {
+        return dhcplisten;
+    }
 
-        if (dhcplisten) {
-            try {
-                ReceiveDHCPRequestPackets.register(InetAddress.getByName(hostname).getHostAddress(), stateUpdate);
-            } catch (SocketException | UnknownHostException e) {
-                logger.error("Cannot use DHCP listen: {}", e.getMessage());
-            }
-        }
+    /**
+     * Registers this service at the {@link PresenceEngine}, which checks the device every refresh interval together
+     * with the devices of all other services.
+     */
+    public void startAutomaticRefresh(StateUpdate stateUpdate) {
+        PresenceEngine.register(this, stateUpdate);
     }
 
     public void stopAutomaticRefresh() {
-        refreshJob.cancel(true);
-        try {
-            ReceiveDHCPRequestPackets.unregister(InetAddress.getByName(hostname).getHostAddress());
-        } catch (UnknownHostException e) {
-        }
+        PresenceEngine.unregister(this);
     }
 
     /**
@@ -8,6 +8,9 @@
  */
 package org.openhab.binding.network.service;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
@@ -18,6 +21,7 @@ import java.net.UnknownHostException;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.TreeSet;
 
 import org.apache.commons.lang.SystemUtils;
@@ -29,6 +33,9 @@ import org.apache.commons.net.util.SubnetUtils;
  * @author David Graeff <david.graeff@web.de>
  */
 public class NetworkUtils {
+    private static final String ARP_TABLE = "/proc/net/arp";
+    private static final String ARP_INCOMPLETE_FLAGS = "0x0";
+    private static final String ARP_EMPTY_HW_ADDRESS = "00:00:00:00:00:00";
 
     /**
      * Gets every IPv4 Address on each Interface except the loopback
@@ -146,6 +153,36 @@ public class NetworkUtils {
         return (inetAddress2Int(addr) & 0xFFFFFFFFL);
     }
 
+    /**
+     * Reads the IPv4 addresses with a resolved hardware address from the ARP table of the operating system. These
+     * hosts have been seen on the network recently. Only Linux is supported, on other systems the result is empty.
+     *
+     * @return The IPs in the ARP table
+     */
+    public static Set<String> getArpTableIPs() {
+        Set<String> arpIPs = new LinkedHashSet<String>();
+        File arpTable = new File(ARP_TABLE);
+        if (!arpTable.canRead()) {
+            return arpIPs;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(arpTable))) {
+            // skip the header
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                // IP address, HW type, Flags, HW address, Mask, Device
+                String[] columns = line.trim().split("\\s+");
+                if (columns.length >= 4 && !ARP_INCOMPLETE_FLAGS.equals(columns[2])
+                        && !ARP_EMPTY_HW_ADDRESS.equals(columns[3])) {
+                    arpIPs.add(columns[0]);
+                }
+            }
+        } catch (IOException e) {
+        }
+
+        return arpIPs;
+    }
+
     public static boolean nativePing(String hostname, int port, int timeout)
             throws InvalidConfigurationException, IOException, InterruptedException {
         Process proc;
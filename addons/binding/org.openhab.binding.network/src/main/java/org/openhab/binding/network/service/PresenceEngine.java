@@ -0,0 +1,360 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.model.script.actions.Ping;
+import org.openhab.binding.network.service.dhcp.ReceiveDHCPRequestPackets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A singleton, which checks the presence of the devices of all {@link NetworkService}s. NetworkServices can register
+ * and unregister. If the first one is registered, the instance is created and a tick job is started on the thread pool
+ * of the binding. The instance is removed again, when the last NetworkService is unregistered.
+ *
+ * Every tick, the devices which are due are checked together: devices with the same host and check method are
+ * checked only once and the result is passed to all of their NetworkServices. TCP checks of all devices are done at
+ * the same time by a {@link TcpConnectScanner}. The next checks are aligned to multiples of the refresh interval, so
+ * NetworkServices with the same host and refresh interval share their checks.
+ * The tick only starts the checks, which run on the thread pool. Every result is reported as soon as it is known, so
+ * an unreachable host doesn't delay the results of the others. A device is not checked again, before its last check
+ * has finished.
+ * DHCP requests for a registered address are passed to all NetworkServices of that address at once.
+ *
+ * @author agent
+ */
+public class PresenceEngine {
+    static final long TICK_INTERVAL = 1000;
+
+    /** the scheduled pool of the tick and the pool of the checks, ESH doesn't allow both kinds under one name */
+    private static final String SCHEDULER_POOL_NAME = "networkBinding";
+    private static final String CHECK_POOL_NAME = "networkBindingChecks";
+
+    /** maximum number of TCP connects in progress at the same time */
+    private static final int MAX_CONCURRENT_CONNECTS = 64;
+
+    /** the echo port, which is used by the java ping without privileges */
+    private static final int ECHO_PORT = 7;
+
+    private static PresenceEngine instance;
+
+    private final Logger logger = LoggerFactory.getLogger(PresenceEngine.class);
+
+    private final Map<NetworkService, Registration> registrations = new ConcurrentHashMap<>();
+    private final Map<String, Integer> dhcpAddresses = new HashMap<>();
+    private final Set<TcpConnectScanner> runningScans = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = ThreadPoolManager.getPool(CHECK_POOL_NAME);
+    private final ScheduledFuture<?> tickJob;
+    private volatile boolean stopped;
+
+    public static synchronized void register(NetworkService service, StateUpdate stateUpdate) {
+        if (instance == null) {
+            instance = new PresenceEngine();
+        }
+        instance.add(service, stateUpdate);
+    }
+
+    public static synchronized void unregister(NetworkService service) {
+        if (instance == null) {
+            return;
+        }
+        instance.remove(service);
+        if (instance.registrations.isEmpty()) {
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    PresenceEngine() {
+        tickJob = ThreadPoolManager.getScheduledPool(SCHEDULER_POOL_NAME).scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tick();
+                } catch (Exception e) {
+                    logger.warn("Presence check failed: {}", e.getMessage(), e);
+                }
+            }
+        }, 0, TICK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void stop() {
+        stopped = true;
+        tickJob.cancel(false);
+        for (TcpConnectScanner scanner : runningScans) {
+            scanner.stop();
+        }
+    }
+
+    private void add(NetworkService service, StateUpdate stateUpdate) {
+        String dhcpAddress = null;
+        if (service.isDHCPListen()) {
+            try {
+                dhcpAddress = InetAddress.getByName(service.getHostname()).getHostAddress();
+                registerDHCP(dhcpAddress);
+            } catch (SocketException | UnknownHostException e) {
+                logger.error("Cannot use DHCP listen: {}", e.getMessage());
+                dhcpAddress = null;
+            }
+        }
+        Registration old = registrations.put(service, new Registration(service, stateUpdate, dhcpAddress));
+        if (old != null && old.dhcpAddress != null) {
+            unregisterDHCP(old.dhcpAddress);
+        }
+    }
+
+    private void remove(NetworkService service) {
+        Registration registration = registrations.remove(service);
+        if (registration != null && registration.dhcpAddress != null) {
+            unregisterDHCP(registration.dhcpAddress);
+        }
+    }
+
+    private void registerDHCP(final String address) throws SocketException {
+        Integer count = dhcpAddresses.get(address);
+        if (count == null) {
+            ReceiveDHCPRequestPackets.register(address, new StateUpdate() {
+                @Override
+                public void newState(double state) {
+                    dhcpRequestReceived(address);
+                }
+
+                @Override
+                public void invalidConfig() {
+                }
+            });
+            count = 0;
+        }
+        dhcpAddresses.put(address, count + 1);
+    }
+
+    private void unregisterDHCP(String address) {
+        Integer count = dhcpAddresses.get(address);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            dhcpAddresses.put(address, count - 1);
+        } else {
+            dhcpAddresses.remove(address);
+            ReceiveDHCPRequestPackets.unregister(address);
+        }
+    }
+
+    private void dhcpRequestReceived(String address) {
+        for (Registration registration : registrations.values()) {
+            if (address.equals(registration.dhcpAddress)) {
+                registration.stateUpdate.newState(0);
+            }
+        }
+    }
+
+    /**
+     * Starts the checks of all devices which are due.
+     */
+    void tick() {
+        long now = System.currentTimeMillis();
+        Map<String, Check> checks = new LinkedHashMap<>();
+        for (Registration registration : registrations.values()) {
+            if (registration.checking || now < registration.nextCheck) {
+                continue;
+            }
+            NetworkService service = registration.service;
+            long interval = Math.max(TICK_INTERVAL, service.getRefreshInterval());
+            registration.nextCheck = now - now % interval + interval;
+            registration.checking = true;
+
+            String key = service.getHostname() + ";" + service.getPort() + ";" + service.isUseSystemPing();
+            Check check = checks.get(key);
+            if (check == null) {
+                check = new Check(service.getHostname(), service.getPort(), service.isUseSystemPing());
+                checks.put(key, check);
+            }
+            check.add(registration);
+        }
+
+        final List<Check> tcpChecks = new ArrayList<>();
+        for (Check check : checks.values()) {
+            if (check.useSystemPing) {
+                ping(check, 0);
+            } else {
+                tcpChecks.add(check);
+            }
+        }
+        if (!tcpChecks.isEmpty()) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    scan(tcpChecks);
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks the given devices by TCP connects at the same time and retries the unreachable ones. Devices without
+     * port, which don't answer on the echo port, are passed to the java ping.
+     */
+    private void scan(List<Check> checks) {
+        List<Check> pending = checks;
+        for (int attempt = 0; !pending.isEmpty() && !stopped; attempt++) {
+            final Map<TcpConnectScanner.Target, Check> targets = new IdentityHashMap<>();
+            int timeout = 0;
+            for (Check check : pending) {
+                boolean javaPing = check.port <= 0;
+                targets.put(new TcpConnectScanner.Target(check.hostname,
+                        new int[] { javaPing ? ECHO_PORT : check.port }, javaPing), check);
+                timeout = Math.max(timeout, check.timeout);
+            }
+
+            TcpConnectScanner scanner = new TcpConnectScanner(MAX_CONCURRENT_CONNECTS, 0, timeout);
+            runningScans.add(scanner);
+            try {
+                scanner.scan(targets.keySet(), new TcpConnectScanner.Listener() {
+                    @Override
+                    public void hostReachable(TcpConnectScanner.Target target, int port, double latency) {
+                        Check check = targets.get(target);
+                        check.latency = latency;
+                        publish(check);
+                    }
+                });
+            } catch (IOException e) {
+                logger.debug("TCP presence check failed: {}", e.getMessage());
+            } finally {
+                runningScans.remove(scanner);
+            }
+
+            List<Check> retry = new ArrayList<>();
+            for (Map.Entry<TcpConnectScanner.Target, Check> target : targets.entrySet()) {
+                Check check = target.getValue();
+                if (target.getKey().isAnswered()) {
+                    continue;
+                }
+                if (check.port <= 0) {
+                    // the java ping may use ICMP, if the process has the privileges
+                    ping(check, attempt);
+                } else if (attempt < check.retry && !stopped) {
+                    retry.add(check);
+                } else {
+                    publish(check);
+                }
+            }
+            pending = retry;
+        }
+    }
+
+    /**
+     * Checks the device by the system ping or the java ping on the thread pool, retries until the device answers.
+     */
+    private void ping(final Check check, final int firstAttempt) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int attempt = firstAttempt; attempt <= check.retry && !stopped; attempt++) {
+                    try {
+                        long start = System.nanoTime();
+                        boolean reachable = check.useSystemPing
+                                ? NetworkUtils.nativePing(check.hostname, check.port, check.timeout)
+                                : Ping.checkVitality(check.hostname, 0, check.timeout);
+                        if (reachable) {
+                            check.latency = (System.nanoTime() - start) / 1000000.0;
+                            break;
+                        }
+                    } catch (InvalidConfigurationException e) {
+                        check.invalidConfig = true;
+                        break;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (Exception e) {
+                        logger.debug("couldn't establish network connection [host '{}' port '{}' timeout '{}']",
+                                check.hostname, check.port, check.timeout);
+                    }
+                }
+                publish(check);
+            }
+        });
+    }
+
+    /**
+     * Passes the result of the check to all of its NetworkServices, which are still registered.
+     */
+    private void publish(Check check) {
+        logger.debug("Checked host '{}' port '{}': {}", check.hostname, check.port, check.latency);
+        for (Registration registration : check.registrations) {
+            registration.checking = false;
+            if (stopped || registrations.get(registration.service) != registration) {
+                continue;
+            }
+            if (check.invalidConfig) {
+                registration.stateUpdate.invalidConfig();
+            } else {
+                registration.stateUpdate.newState(check.latency);
+            }
+        }
+    }
+
+    private static class Registration {
+        final NetworkService service;
+        final StateUpdate stateUpdate;
+        final String dhcpAddress;
+        volatile long nextCheck;
+        volatile boolean checking;
+
+        Registration(NetworkService service, StateUpdate stateUpdate, String dhcpAddress) {
+            this.service = service;
+            this.stateUpdate = stateUpdate;
+            this.dhcpAddress = dhcpAddress;
+        }
+    }
+
+    /**
+     * A check of one host, shared by all registrations with the same host and check method.
+     */
+    private static class Check {
+        final String hostname;
+        final int port;
+        final boolean useSystemPing;
+        final List<Registration> registrations = new ArrayList<>();
+        int timeout;
+        int retry;
+
+        volatile double latency = -1;
+        volatile boolean invalidConfig;
+
+        Check(String hostname, int port, boolean useSystemPing) {
+            this.hostname = hostname;
+            this.port = port;
+            this.useSystemPing = useSystemPing;
+        }
+
+        void add(Registration registration) {
+            registrations.add(registration);
+            timeout = Math.max(timeout, registration.service.getTimeout());
+            retry = Math.max(retry, registration.service.getRetry());
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.service;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the reachability of many hosts at once by non-blocking TCP connects on a single {@link Selector}, instead of
+ * one thread or ping process per host.
+ * A {@link Target} is reachable, if a connection to one of its ports can be established or, if accepted by the target,
+ * is refused by the host. Only the first answer of a target is reported, its remaining connects are cancelled.
+ *
+ * @author agent
+ */
+public class TcpConnectScanner {
+    private final Logger logger = LoggerFactory.getLogger(TcpConnectScanner.class);
+
+    /**
+     * Receives the targets as they answer.
+     */
+    public interface Listener {
+        /**
+         * @param target The target that answered
+         * @param port The port the target answered on
+         * @param latency The time in milliseconds until the target answered
+         */
+        public void hostReachable(Target target, int port, double latency);
+    }
+
+    /**
+     * A host and the ports to connect to.
+     */
+    public static class Target {
+        private final String host;
+        private final int[] ports;
+        private final boolean acceptRefused;
+        private boolean answered;
+        private double latency = -1;
+
+        /**
+         * @param host The host name or IP
+         * @param ports The TCP ports to connect to
+         * @param acceptRefused True, if a refused connection shows that the host is reachable
+         */
+        public Target(String host, int[] ports, boolean acceptRefused) {
+            this.host = host;
+            this.ports = ports;
+            this.acceptRefused = acceptRefused;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * @return True, if the target answered during the last scan
+         */
+        public boolean isAnswered() {
+            return answered;
+        }
+
+        /**
+         * @return The time in milliseconds until the target answered or -1
+         */
+        public double getLatency() {
+            return latency;
+        }
+    }
+
+    private final int maxConcurrency;
+    private final int maxConnectsPerSecond;
+    private final int timeout;
+
+    private volatile Selector selector;
+    private volatile boolean stopped;
+    private int openConnects;
+
+    /**
+     * @param maxConcurrency The maximum number of connects in progress at the same time
+     * @param maxConnectsPerSecond The maximum number of connects started per second, 0 for no limit
+     * @param timeout The time in milliseconds after which a connect without answer is cancelled
+     */
+    public TcpConnectScanner(int maxConcurrency, int maxConnectsPerSecond, int timeout) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxConnectsPerSecond = maxConnectsPerSecond;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Connects to the given ports of every host and reports the hosts that answer or refuse the connection. Blocks
+     * until every host has answered or timed out, or {@link #stop()} is called.
+     *
+     * @param hosts The hosts to check
+     * @param ports The TCP ports to connect to
+     * @param listener Receives the reachable hosts
+     * @throws IOException If the selector cannot be opened
+     */
+    public void scan(final Collection<String> hosts, final int[] ports, Listener listener) throws IOException {
+        scan(new Iterator<Target>() {
+            private final Iterator<String> it = hosts.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Target next() {
+                return new Target(it.next(), ports, true);
+            }
+        }, listener);
+    }
+
+    /**
+     * Connects to the ports of every target and reports the targets that answer. Blocks until every target has
+     * answered or timed out, or {@link #stop()} is called.
+     *
+     * @param targets The targets to check
+     * @param listener Receives the reachable targets, may be null
+     * @throws IOException If the selector cannot be opened
+     */
+    public void scan(Collection<Target> targets, Listener listener) throws IOException {
+        scan(targets.iterator(), listener);
+    }
+
+    private void scan(Iterator<Target> pendingHosts, Listener listener) throws IOException {
+        stopped = false;
+        openConnects = 0;
+        selector = Selector.open();
+        try {
+            List<Probe> pendingProbes = new ArrayList<>();
+            long connectInterval = maxConnectsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxConnectsPerSecond
+                    : 0;
+            long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            long nextConnect = System.nanoTime();
+
+            while (!stopped) {
+                long now = System.nanoTime();
+
+                // start new connects within the concurrency and rate limits
+                while (openConnects < maxConcurrency && now - nextConnect >= 0) {
+                    if (pendingProbes.isEmpty()) {
+                        if (!pendingHosts.hasNext()) {
+                            break;
+                        }
+                        Target target = pendingHosts.next();
+                        target.answered = false;
+                        target.latency = -1;
+                        for (int port : target.ports) {
+                            pendingProbes.add(new Probe(target, port));
+                        }
+                    }
+                    Probe probe = pendingProbes.remove(0);
+                    if (probe.host.answered) {
+                        continue;
+                    }
+                    connect(probe, listener);
+                    nextConnect = Math.max(nextConnect, now - connectInterval) + connectInterval;
+                }
+
+                // cancel the connects without answer
+                long nextTimeout = Long.MAX_VALUE;
+                for (SelectionKey key : selector.keys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    Probe probe = (Probe) key.attachment();
+                    long age = now - probe.start;
+                    if (age >= timeoutNanos || probe.host.answered) {
+                        close(key);
+                    } else {
+                        nextTimeout = Math.min(nextTimeout, timeoutNanos - age);
+                    }
+                }
+
+                // checked after the timeout sweep, as the last connects may just have timed out. Otherwise the
+                // select below would wait without any timeout.
+                if (openConnects == 0 && pendingProbes.isEmpty() && !pendingHosts.hasNext()) {
+                    break;
+                }
+
+                long wait = nextTimeout;
+                if (openConnects < maxConcurrency && (!pendingProbes.isEmpty() || pendingHosts.hasNext())) {
+                    wait = Math.min(wait, nextConnect - now);
+                }
+                wait = TimeUnit.NANOSECONDS.toMillis(wait);
+                if (wait <= 0) {
+                    selector.selectNow();
+                } else {
+                    selector.select(wait);
+                }
+
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Probe probe = (Probe) key.attachment();
+                    try {
+                        ((SocketChannel) key.channel()).finishConnect();
+                        answered(probe, listener);
+                    } catch (ConnectException e) {
+                        // the host refused the connection, so it is there
+                        refused(probe, listener);
+                    } catch (IOException e) {
+                        logger.trace("{}:{} not reachable: {}", probe.host.host, probe.port, e.getMessage());
+                    }
+                    close(key);
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Stops a running scan.
+     */
+    public void stop() {
+        stopped = true;
+        Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    private void connect(Probe probe, Listener listener) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            probe.start = System.nanoTime();
+            if (channel.connect(new InetSocketAddress(InetAddress.getByName(probe.host.host), probe.port))) {
+                answered(probe, listener);
+                channel.close();
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                probe.registered = true;
+                openConnects++;
+            }
+        } catch (ConnectException e) {
+            refused(probe, listener);
+            closeQuietly(channel);
+        } catch (IOException e) {
+            logger.trace("{}:{} not reachable: {}", probe.host.host, probe.port, e.getMessage());
+            closeQuietly(channel);
+        }
+    }
+
+    private void refused(Probe probe, Listener listener) {
+        if (probe.host.acceptRefused) {
+            answered(probe, listener);
+        } else {
+            logger.trace("{}:{} refused the connection", probe.host.host, probe.port);
+        }
+    }
+
+    private void answered(Probe probe, Listener listener) {
+        if (probe.host.answered) {
+            return;
+        }
+        probe.host.answered = true;
+        probe.host.latency = (System.nanoTime() - probe.start) / 1000000.0;
+        if (listener != null) {
+            listener.hostReachable(probe.host, probe.port, probe.host.latency);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        // a failed connect closes the channel itself, so the key may already be invalid
+        Probe probe = (Probe) key.attachment();
+        if (probe.registered) {
+            probe.registered = false;
+            openConnects--;
+        }
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private void closeQuietly(Channel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private static class Probe {
+        final Target host;
+        final int port;
+        long start;
+        boolean registered;
+
+        Probe(Target host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+    }
+}
@@ -14,8 +14,12 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openhab.binding.network.service.StateUpdate;
 import org.slf4j.Logger;
@@ -38,6 +42,7 @@ public class ReceiveDHCPRequestPackets extends Thread {
     private Logger logger = LoggerFactory.getLogger(ReceiveDHCPRequestPackets.class);
     private static ReceiveDHCPRequestPackets instance;
     private static Map<String, StateUpdate> registeredListeners = new TreeMap<>();
+    private static Map<String, Long> requestedAddresses = new ConcurrentHashMap<>();
 
     public static synchronized void register(String hostAddress, StateUpdate receiveParseSimpleUDP)
             throws SocketException {
@@ -71,6 +76,26 @@ public class ReceiveDHCPRequestPackets extends Thread {
         instance = null;
     }
 
+    /**
+     * Returns the addresses, which have been requested by DHCP clients while the listener was running.
+     *
+     * @param maxAge Only addresses requested within the last maxAge milliseconds are returned
+     * @return The requested addresses
+     */
+    public static Set<String> getRequestedAddresses(long maxAge) {
+        Set<String> addresses = new HashSet<>();
+        long oldest = System.currentTimeMillis() - maxAge;
+        for (Iterator<Map.Entry<String, Long>> it = requestedAddresses.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getValue() < oldest) {
+                it.remove();
+            } else {
+                addresses.add(entry.getKey());
+            }
+        }
+        return addresses;
+    }
+
     ReceiveDHCPRequestPackets() throws SocketException {
         dsocket.setReuseAddress(true);
         dsocket.setBroadcast(true);
@@ -108,6 +133,7 @@ public class ReceiveDHCPRequestPackets extends Thread {
                     continue;
                 }
                 String requestedAddressStr = requestedAddress.getHostAddress();
+                requestedAddresses.put(requestedAddressStr, System.currentTimeMillis());
                 StateUpdate receiver = registeredListeners.get(requestedAddressStr);
                 if (receiver != null) {
                     logger.info("DHCP request for registered address: {}", requestedAddressStr);
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.rfxcom.internal.messages;
+
+import static org.junit.Assert.*;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.Test;
+import org.openhab.binding.rfxcom.internal.exceptions.RFXComException;
+
+/**
+ * Test for RFXCom-binding
+ *
+ * @author agent - Initial contribution
+ */
+public class RFXComMessageFactoryTest {
+
+    @Test
+    public void testImplementedMessage() {
+        // temperature
+        assertTrue(RFXComMessageFactory.isMessageImplemented(DatatypeConverter.parseHexBinary("08500110000180BC69")));
+        // interface message
+        assertTrue(RFXComMessageFactory.isMessageImplemented(DatatypeConverter.parseHexBinary("0D01000102")));
+    }
+
+    @Test
+    public void testNotImplementedMessage() {
+        // unknown packet type
+        assertFalse(RFXComMessageFactory.isMessageImplemented(DatatypeConverter.parseHexBinary("07CC01271356ECC0")));
+        // barometric, not implemented yet
+        assertFalse(RFXComMessageFactory.isMessageImplemented(DatatypeConverter.parseHexBinary("0953010000000000")));
+        // too short
+        assertFalse(RFXComMessageFactory.isMessageImplemented(new byte[] { 0x00 }));
+    }
+
+    @Test
+    public void testReuseMessage() throws RFXComException {
+        RFXComMessage first = RFXComMessageFactory
+                .createMessage(DatatypeConverter.parseHexBinary("08500110000180BC69"), null);
+        RFXComTemperatureMessage second = (RFXComTemperatureMessage) RFXComMessageFactory
+                .createMessage(DatatypeConverter.parseHexBinary("0850021DFB0100D770"), first);
+        assertSame(first, second);
+        assertEquals("Sensor Id", "64257", second.getDeviceId());
+        assertEquals("Temperature", 21.5d, second.temperature, 0.001);
+
+        // wind message of a different packet type
+        RFXComMessage third = RFXComMessageFactory
+                .createMessage(DatatypeConverter.parseHexBinary("105601122F000087000000140000000079"), second);
+        assertNotSame(second, third);
+        assertTrue(third instanceof RFXComWindMessage);
+    }
+}
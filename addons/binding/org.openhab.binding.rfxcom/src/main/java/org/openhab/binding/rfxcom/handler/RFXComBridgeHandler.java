@@ -11,9 +11,12 @@ package org.openhab.binding.rfxcom.handler;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +40,7 @@ import org.openhab.binding.rfxcom.internal.connector.RFXComTcpConnector;
 import org.openhab.binding.rfxcom.internal.exceptions.RFXComException;
 import org.openhab.binding.rfxcom.internal.exceptions.RFXComMessageNotImplementedException;
 import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage;
+import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
 import org.openhab.binding.rfxcom.internal.messages.RFXComInterfaceControlMessage;
 import org.openhab.binding.rfxcom.internal.messages.RFXComInterfaceMessage;
 import org.openhab.binding.rfxcom.internal.messages.RFXComInterfaceMessage.Commands;
@@ -66,6 +70,12 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
 
     private List<DeviceMessageListener> deviceStatusListeners = new CopyOnWriteArrayList<>();
 
+    /**
+     * Listeners of a single device, indexed by packet type and device id. Unlike the device status listeners, which
+     * receive all messages, they only receive the messages of their device.
+     */
+    private Map<PacketType, Map<String, Set<DeviceMessageListener>>> deviceListeners = new ConcurrentHashMap<>();
+
     private RFXComBridgeConfiguration configuration = null;
     private ScheduledFuture<?> connectorTask;
     private Set<ThingUID> knownDevices = new HashSet<>();
@@ -227,10 +237,28 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
 
     private class MessageListener implements RFXComEventListener {
 
+        /**
+         * Last received message of every packet type, used if the messages are reused. Only accessed by the thread
+         * reading from the transceiver.
+         */
+        private final RFXComMessage[] receivedMessages = new RFXComMessage[256];
+
         @Override
         public void packetReceived(byte[] packet) {
+            if (!RFXComMessageFactory.isMessageImplemented(packet)) {
+                logger.debug("Message not supported, data: {}", DatatypeConverter.printHexBinary(packet));
+                return;
+            }
+
             try {
-                RFXComMessage message = RFXComMessageFactory.createMessage(packet);
+                RFXComMessage message;
+                if (configuration.reuseMessages) {
+                    int index = packet[1] & 0xFF;
+                    message = RFXComMessageFactory.createMessage(packet, receivedMessages[index]);
+                    receivedMessages[index] = message;
+                } else {
+                    message = RFXComMessageFactory.createMessage(packet);
+                }
                 logger.debug("Message received: {}", message);
 
                 if (message instanceof RFXComInterfaceMessage) {
@@ -287,12 +315,18 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
 
                     transmitQueue.sendNext();
                 } else {
-
                     for (DeviceMessageListener deviceStatusListener : deviceStatusListeners) {
-                        try {
-                            deviceStatusListener.onDeviceMessageReceived(getThing().getUID(), message);
-                        } catch (Exception e) {
-                            logger.error("An exception occurred while calling the DeviceStatusListener", e);
+                        notifyListener(deviceStatusListener, message);
+                    }
+
+                    Map<String, Set<DeviceMessageListener>> packetTypeListeners = deviceListeners
+                            .get(((RFXComBaseMessage) message).packetType);
+                    if (packetTypeListeners != null) {
+                        Set<DeviceMessageListener> listeners = packetTypeListeners.get(message.getDeviceId());
+                        if (listeners != null) {
+                            for (DeviceMessageListener deviceListener : listeners) {
+                                notifyListener(deviceListener, message);
+                            }
                         }
                     }
                 }
@@ -306,6 +340,14 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
             }
         }
 
+        private void notifyListener(DeviceMessageListener listener, RFXComMessage message) {
+            try {
+                listener.onDeviceMessageReceived(getThing().getUID(), message);
+            } catch (Exception e) {
+                logger.error("An exception occurred while calling the DeviceStatusListener", e);
+            }
+        }
+
         @Override
         public void errorOccurred(String error) {
             logger.error("Error occurred: {}", error);
@@ -328,6 +370,64 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
         return deviceStatusListeners.remove(deviceStatusListener);
     }
 
+    /**
+     * Registers a listener for the messages of a single device.
+     *
+     * @param packetType packet type of the device
+     * @param deviceId id of the device, as returned by {@link RFXComMessage#getDeviceId()}
+     * @param deviceListener listener to register
+     * @return true, if the listener was not registered yet for the device
+     */
+    public boolean registerDeviceListener(PacketType packetType, String deviceId,
+            DeviceMessageListener deviceListener) {
+        if (packetType == null || deviceId == null || deviceListener == null) {
+            throw new IllegalArgumentException("It's not allowed to pass a null packetType, deviceId or listener.");
+        }
+        synchronized (deviceListeners) {
+            Map<String, Set<DeviceMessageListener>> packetTypeListeners = deviceListeners.get(packetType);
+            if (packetTypeListeners == null) {
+                packetTypeListeners = new ConcurrentHashMap<>();
+                deviceListeners.put(packetType, packetTypeListeners);
+            }
+            Set<DeviceMessageListener> listeners = packetTypeListeners.get(deviceId);
+            if (listeners == null) {
+                listeners = new CopyOnWriteArraySet<>();
+                packetTypeListeners.put(deviceId, listeners);
+            }
+            return listeners.add(deviceListener);
+        }
+    }
+
+    /**
+     * Unregisters a listener of a single device.
+     *
+     * @param packetType packet type of the device
+     * @param deviceId id of the device
+     * @param deviceListener listener to unregister
+     * @return true, if the listener was registered for the device
+     */
+    public boolean unregisterDeviceListener(PacketType packetType, String deviceId,
+            DeviceMessageListener deviceListener) {
+        if (packetType == null || deviceId == null || deviceListener == null) {
+            throw new IllegalArgumentException("It's not allowed to pass a null packetType, deviceId or listener.");
+        }
+        synchronized (deviceListeners) {
+            Map<String, Set<DeviceMessageListener>> packetTypeListeners = deviceListeners.get(packetType);
+            if (packetTypeListeners == null) {
+                return false;
+            }
+            Set<DeviceMessageListener> listeners = packetTypeListeners.get(deviceId);
+            if (listeners == null) {
+                return false;
+            }
+            boolean removed = listeners.remove(deviceListener);
+            if (listeners.isEmpty()) {
+                packetTypeListeners.remove(deviceId);
+            }
+            return removed;
+        }
+    }
+
     public RFXComBridgeConfiguration getConfiguration() {
         return configuration;
     }
@@ -11,6 +11,7 @@ package org.openhab.binding.rfxcom.handler;
 import static org.openhab.binding.rfxcom.RFXComBindingConstants.*;
 
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.library.types.OnOffType;
@@ -19,6 +20,7 @@ import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.ThingStatusInfo;
+import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
@@ -50,6 +52,8 @@ public class RFXComHandler extends BaseThingHandler implements DeviceMessageList
 
     private RFXComBridgeHandler bridgeHandler;
     private RFXComDeviceConfiguration config;
+    private PacketType registeredPacketType;
+    private String registeredDeviceId;
 
     public RFXComHandler(Thing thing) {
         super(thing);
@@ -120,8 +124,9 @@ public class RFXComHandler extends BaseThingHandler implements DeviceMessageList
                     "RFXCOM device missing deviceId or subType");
         } else if (thingHandler != null && bridgeStatus != null) {
 
+            unregisterDeviceListener();
             bridgeHandler = (RFXComBridgeHandler) thingHandler;
-            bridgeHandler.registerDeviceStatusListener(this);
+            registerDeviceListener();
 
             if (bridgeStatus == ThingStatus.ONLINE) {
                 updateStatus(ThingStatus.ONLINE);
@@ -133,6 +138,29 @@ public class RFXComHandler extends BaseThingHandler implements DeviceMessageList
         }
     }
 
+    /**
+     * Registers this handler at the bridge for the messages of its packet type and device id.
+     */
+    private void registerDeviceListener() {
+        for (Map.Entry<PacketType, ThingTypeUID> entry : PACKET_TYPE_THING_TYPE_UID_MAP.entrySet()) {
+            if (entry.getValue().equals(getThing().getThingTypeUID())) {
+                registeredPacketType = entry.getKey();
+                registeredDeviceId = config.deviceId;
+                bridgeHandler.registerDeviceListener(registeredPacketType, registeredDeviceId, this);
+                return;
+            }
+        }
+        logger.warn("No packet type found for thing type {}", getThing().getThingTypeUID());
+    }
+
+    private void unregisterDeviceListener() {
+        if (bridgeHandler != null && registeredPacketType != null) {
+            bridgeHandler.unregisterDeviceListener(registeredPacketType, registeredDeviceId, this);
+        }
+        registeredPacketType = null;
+        registeredDeviceId = null;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -141,9 +169,7 @@ public class RFXComHandler extends BaseThingHandler implements DeviceMessageList
     @Override
     public void dispose() {
         logger.debug("Thing {} disposed.", getThing().getUID());
-        if (bridgeHandler != null) {
-            bridgeHandler.unregisterDeviceStatusListener(this);
-        }
+        unregisterDeviceListener();
         bridgeHandler = null;
         super.dispose();
     }
@@ -21,7 +21,9 @@ public interface DeviceMessageListener {
 
     /**
      * This method is called whenever the message is received from the bridge.
-     * 
+     * The message may be reused for the next message of the same type, so it
+     * must not be kept after this method has returned.
+     *
      * @param bridge
      *            The RFXCom bridge where message is received.
      * @param message
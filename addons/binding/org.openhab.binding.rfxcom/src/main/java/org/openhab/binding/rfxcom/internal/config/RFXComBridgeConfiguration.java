@@ -43,6 +43,9 @@ public class RFXComBridgeConfiguration {
 
     public String setMode;
 
+    // Decode received messages into the previous message of the same type
+    public boolean reuseMessages;
+
     // Enabled protocols
     public boolean enableUndecoded;
     public boolean enableImagintronixOpus;
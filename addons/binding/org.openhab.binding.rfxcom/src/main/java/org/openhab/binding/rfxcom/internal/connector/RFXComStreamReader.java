@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 public class RFXComStreamReader extends Thread {
     private final Logger logger = LoggerFactory.getLogger(RFXComStreamReader.class);
 
+    private static final int BUFFER_SIZE = 1024;
+
     private RFXComBaseConnector connector;
     private InputStream in;
 
@@ -38,39 +40,60 @@ public class RFXComStreamReader extends Thread {
         logger.debug("Data listener started");
 
         final int MAX_READ_TIMEOUTS = 4;
-        byte[] buf = new byte[Byte.MAX_VALUE];
+        final int MAX_PACKET_SIZE = Byte.MAX_VALUE + 1;
+        byte[] buf = new byte[BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        int readTimeoutCount = 1;
 
         // The stream has (or SHOULD have) a read timeout set. Taking a
         // read timeout (read returns 0) between packets gives us a chance
         // to check if we've been interrupted. Read interrupts during a
         // packet are ignored but if too many timeouts occur we take it as
         // meaning the RFXCOM has become missing presumed dead.
+        //
+        // A single read may return several packets, so all complete
+        // packets in the buffer are passed to the listeners before the
+        // next read.
         try {
-start_packet:
-            while (!Thread.interrupted()) {
-                // First byte tells us how long the packet is
-                int bytesRead = in.read(buf, 0, 1);
-                int packetLength = buf[0];
+            while (start < end || !Thread.interrupted()) {
+                while (start < end) {
+                    // First byte tells us how long the packet is
+                    int packetLength = buf[start];
 
-                if (bytesRead > 0 && packetLength > 0) {
-                    // Now read the rest of the packet
-                    int bufferIndex = 1;
-                    int readTimeoutCount = 1;
+                    if (packetLength <= 0) {
+                        start++;
+                    } else if (end - start > packetLength) {
+                        connector.sendMsgToListeners(Arrays.copyOfRange(buf, start, start + packetLength + 1));
+                        start += packetLength + 1;
+                    } else {
+                        break;
+                    }
+                }
 
-                    while (bufferIndex <= packetLength) {
-                        int bytesRemaining = packetLength - bufferIndex + 1;
-                        bytesRead = in.read(buf, bufferIndex, bytesRemaining);
+                if (start == end) {
+                    start = 0;
+                    end = 0;
+                } else if (buf.length - start < MAX_PACKET_SIZE) {
+                    // move the incomplete packet to the beginning of the buffer
+                    System.arraycopy(buf, start, buf, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
 
-                        if (bytesRead > 0) {
-                            bufferIndex += bytesRead;
-                            readTimeoutCount = 1;
-                        } else if (readTimeoutCount++ == MAX_READ_TIMEOUTS) {
-                            connector.sendErrorToListeners("Timeout during packet read");
-                            break start_packet;
-                        }
-                    }
+                // Read at least the rest of the current packet, which doesn't
+                // wait for more data than necessary, and everything else
+                // that is already available.
+                int bytesMissing = start < end ? buf[start] + 1 - (end - start) : 1;
+                int bytesToRead = Math.min(Math.max(bytesMissing, in.available()), buf.length - end);
+                int bytesRead = in.read(buf, end, bytesToRead);
 
-                    connector.sendMsgToListeners(Arrays.copyOfRange(buf, 0, packetLength + 1));
+                if (bytesRead > 0) {
+                    end += bytesRead;
+                    readTimeoutCount = 1;
+                } else if (start < end && readTimeoutCount++ == MAX_READ_TIMEOUTS) {
+                    connector.sendErrorToListeners("Timeout during packet read");
+                    break;
                 }
             }
         } catch (IOException ioe) {
@@ -8,12 +8,6 @@
  */
 package org.openhab.binding.rfxcom.internal.messages;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.openhab.binding.rfxcom.internal.exceptions.RFXComException;
 import org.openhab.binding.rfxcom.internal.exceptions.RFXComMessageNotImplementedException;
 import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
@@ -24,58 +18,84 @@ import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType
  */
 public class RFXComMessageFactory {
 
-    @SuppressWarnings("serial")
-    private static final Map<PacketType, Class<? extends RFXComMessage>> MESSAGE_CLASSES = Collections
-            .unmodifiableMap(new HashMap<PacketType, Class<? extends RFXComMessage>>() {
-                {
-                    put(PacketType.INTERFACE_CONTROL, RFXComInterfaceControlMessage.class);
-                    put(PacketType.INTERFACE_MESSAGE, RFXComInterfaceMessage.class);
-                    put(PacketType.TRANSMITTER_MESSAGE, RFXComTransmitterMessage.class);
-                    put(PacketType.UNDECODED_RF_MESSAGE, RFXComUndecodedRFMessage.class);
-                    put(PacketType.LIGHTING1, RFXComLighting1Message.class);
-                    put(PacketType.LIGHTING2, RFXComLighting2Message.class);
-                    // put(PacketType.LIGHTING3, RFXComLighting3Message.class);
-                    put(PacketType.LIGHTING4, RFXComLighting4Message.class);
-                    put(PacketType.LIGHTING5, RFXComLighting5Message.class);
-                    put(PacketType.LIGHTING6, RFXComLighting6Message.class);
-                    put(PacketType.CHIME, RFXComChimeMessage.class);
-                    // put(PacketType.FAN, RFXComFanMessage.class);
-                    put(PacketType.CURTAIN1, RFXComCurtain1Message.class);
-                    put(PacketType.BLINDS1, RFXComBlinds1Message.class);
-                    put(PacketType.RFY, RFXComRfyMessage.class);
-                    put(PacketType.HOME_CONFORT, RFXComHomeConfortMessage.class);
-                    put(PacketType.SECURITY1, RFXComSecurity1Message.class);
-                    put(PacketType.SECURITY2, RFXComSecurity2Message.class);
-                    // put(PacketType.CAMERA1, RFXComCamera1Message.class);
-                    // put(PacketType.REMOTE_CONTROL, RFXComRemoteControlMessage.class);
-                    put(PacketType.THERMOSTAT1, RFXComThermostat1Message.class);
-                    // put(PacketType.THERMOSTAT2, RFXComThermostat2Message.class);
-                    // put(PacketType.THERMOSTAT3, RFXComThermostat3Message.class);
-                    // put(PacketType.RADIATOR1, RFXComRadiator1Message.class);
-                    // put(PacketType.BBQ1, RFXComBBQMessage.class);
-                    put(PacketType.TEMPERATURE_RAIN, RFXComTemperatureRainMessage.class);
-                    put(PacketType.TEMPERATURE, RFXComTemperatureMessage.class);
-                    put(PacketType.HUMIDITY, RFXComHumidityMessage.class);
-                    put(PacketType.TEMPERATURE_HUMIDITY, RFXComTemperatureHumidityMessage.class);
-                    // put(PacketType.BAROMETRIC, RFXComBarometricMessage.class);
-                    put(PacketType.TEMPERATURE_HUMIDITY_BAROMETRIC, RFXComTemperatureHumidityBarometricMessage.class);
-                    put(PacketType.RAIN, RFXComRainMessage.class);
-                    put(PacketType.WIND, RFXComWindMessage.class);
-                    put(PacketType.UV, RFXComUVMessage.class);
-                    put(PacketType.DATE_TIME, RFXComDateTimeMessage.class);
-                    // put(PacketType.CURRENT, RFXComCurrentMessage.class);
-                    put(PacketType.ENERGY, RFXComEnergyMessage.class);
-                    put(PacketType.CURRENT_ENERGY, RFXComCurrentEnergyMessage.class);
-                    // put(PacketType.POWER, RFXComPowerMessage.class);
-                    // put(PacketType.WEIGHT, RFXComWeightMessage.class);
-                    // put(PacketType.GAS, RFXComGasMessage.class);
-                    // put(PacketType.WATER, RFXComWaterMessage.class);
-                    // put(PacketType.RFXSENSOR, RFXComRFXSensorMessage.class);
-                    // put(PacketType.RFXMETER, RFXComRFXMeterMessage.class);
-                    // put(PacketType.FS20, RFXComFS20Message.class);
-                    // put(PacketType.IO_LINES, RFXComIOLinesMessage.class);
-                }
-            });
+    /**
+     * Creates an empty message, which is filled by the configuration of a thing to transmit it.
+     */
+    @FunctionalInterface
+    private interface MessageCreator {
+        RFXComMessage create();
+    }
+
+    /**
+     * Creates a message from a received packet.
+     */
+    @FunctionalInterface
+    private interface MessageDecoder {
+        RFXComMessage decode(byte[] packet) throws RFXComException;
+    }
+
+    /**
+     * Creators and decoders of the implemented messages, indexed by the packet type byte.
+     */
+    private static final MessageCreator[] MESSAGE_CREATORS = new MessageCreator[256];
+    private static final MessageDecoder[] MESSAGE_DECODERS = new MessageDecoder[256];
+
+    static {
+        addMessage(PacketType.INTERFACE_CONTROL, null, RFXComInterfaceControlMessage::new);
+        addMessage(PacketType.INTERFACE_MESSAGE, null, RFXComInterfaceMessage::new);
+        addMessage(PacketType.TRANSMITTER_MESSAGE, RFXComTransmitterMessage::new, RFXComTransmitterMessage::new);
+        addMessage(PacketType.UNDECODED_RF_MESSAGE, RFXComUndecodedRFMessage::new, RFXComUndecodedRFMessage::new);
+        addMessage(PacketType.LIGHTING1, RFXComLighting1Message::new, RFXComLighting1Message::new);
+        addMessage(PacketType.LIGHTING2, RFXComLighting2Message::new, RFXComLighting2Message::new);
+        // addMessage(PacketType.LIGHTING3, RFXComLighting3Message::new, RFXComLighting3Message::new);
+        addMessage(PacketType.LIGHTING4, RFXComLighting4Message::new, RFXComLighting4Message::new);
+        addMessage(PacketType.LIGHTING5, RFXComLighting5Message::new, RFXComLighting5Message::new);
+        addMessage(PacketType.LIGHTING6, RFXComLighting6Message::new, RFXComLighting6Message::new);
+        addMessage(PacketType.CHIME, RFXComChimeMessage::new, RFXComChimeMessage::new);
+        // addMessage(PacketType.FAN, RFXComFanMessage::new, RFXComFanMessage::new);
+        addMessage(PacketType.CURTAIN1, RFXComCurtain1Message::new, RFXComCurtain1Message::new);
+        addMessage(PacketType.BLINDS1, RFXComBlinds1Message::new, RFXComBlinds1Message::new);
+        addMessage(PacketType.RFY, RFXComRfyMessage::new, RFXComRfyMessage::new);
+        addMessage(PacketType.HOME_CONFORT, RFXComHomeConfortMessage::new, RFXComHomeConfortMessage::new);
+        addMessage(PacketType.SECURITY1, RFXComSecurity1Message::new, RFXComSecurity1Message::new);
+        addMessage(PacketType.SECURITY2, RFXComSecurity2Message::new, RFXComSecurity2Message::new);
+        // addMessage(PacketType.CAMERA1, RFXComCamera1Message::new, RFXComCamera1Message::new);
+        // addMessage(PacketType.REMOTE_CONTROL, RFXComRemoteControlMessage::new, RFXComRemoteControlMessage::new);
+        addMessage(PacketType.THERMOSTAT1, RFXComThermostat1Message::new, RFXComThermostat1Message::new);
+        // addMessage(PacketType.THERMOSTAT2, RFXComThermostat2Message::new, RFXComThermostat2Message::new);
+        // addMessage(PacketType.THERMOSTAT3, RFXComThermostat3Message::new, RFXComThermostat3Message::new);
+        // addMessage(PacketType.RADIATOR1, RFXComRadiator1Message::new, RFXComRadiator1Message::new);
+        // addMessage(PacketType.BBQ1, RFXComBBQMessage::new, RFXComBBQMessage::new);
+        addMessage(PacketType.TEMPERATURE_RAIN, RFXComTemperatureRainMessage::new,
+                RFXComTemperatureRainMessage::new);
+        addMessage(PacketType.TEMPERATURE, RFXComTemperatureMessage::new, RFXComTemperatureMessage::new);
+        addMessage(PacketType.HUMIDITY, RFXComHumidityMessage::new, RFXComHumidityMessage::new);
+        addMessage(PacketType.TEMPERATURE_HUMIDITY, RFXComTemperatureHumidityMessage::new,
+                RFXComTemperatureHumidityMessage::new);
+        // addMessage(PacketType.BAROMETRIC, RFXComBarometricMessage::new, RFXComBarometricMessage::new);
+        addMessage(PacketType.TEMPERATURE_HUMIDITY_BAROMETRIC, RFXComTemperatureHumidityBarometricMessage::new,
+                RFXComTemperatureHumidityBarometricMessage::new);
+        addMessage(PacketType.RAIN, RFXComRainMessage::new, RFXComRainMessage::new);
+        addMessage(PacketType.WIND, RFXComWindMessage::new, RFXComWindMessage::new);
+        addMessage(PacketType.UV, RFXComUVMessage::new, RFXComUVMessage::new);
+        addMessage(PacketType.DATE_TIME, RFXComDateTimeMessage::new, RFXComDateTimeMessage::new);
+        // addMessage(PacketType.CURRENT, RFXComCurrentMessage::new, RFXComCurrentMessage::new);
+        addMessage(PacketType.ENERGY, RFXComEnergyMessage::new, RFXComEnergyMessage::new);
+        addMessage(PacketType.CURRENT_ENERGY, RFXComCurrentEnergyMessage::new, RFXComCurrentEnergyMessage::new);
+        // addMessage(PacketType.POWER, RFXComPowerMessage::new, RFXComPowerMessage::new);
+        // addMessage(PacketType.WEIGHT, RFXComWeightMessage::new, RFXComWeightMessage::new);
+        // addMessage(PacketType.GAS, RFXComGasMessage::new, RFXComGasMessage::new);
+        // addMessage(PacketType.WATER, RFXComWaterMessage::new, RFXComWaterMessage::new);
+        // addMessage(PacketType.RFXSENSOR, RFXComRFXSensorMessage::new, RFXComRFXSensorMessage::new);
+        // addMessage(PacketType.RFXMETER, RFXComRFXMeterMessage::new, RFXComRFXMeterMessage::new);
+        // addMessage(PacketType.FS20, RFXComFS20Message::new, RFXComFS20Message::new);
+        // addMessage(PacketType.IO_LINES, RFXComIOLinesMessage::new, RFXComIOLinesMessage::new);
+    }
+
+    private static void addMessage(PacketType packetType, MessageCreator creator, MessageDecoder decoder) {
+        MESSAGE_CREATORS[packetType.toByte() & 0xFF] = creator;
+        MESSAGE_DECODERS[packetType.toByte() & 0xFF] = decoder;
+    }
 
     /**
      * Command to reset RFXCOM controller.
@@ -106,37 +126,55 @@ public class RFXComMessageFactory {
             0x00, 0x00, 0x00, 0x00, 0x00 };
 
     public static RFXComMessage createMessage(PacketType packetType) throws RFXComException {
+        MessageCreator creator = MESSAGE_CREATORS[packetType.toByte() & 0xFF];
+        if (creator == null) {
+            throw new RFXComMessageNotImplementedException("Message " + packetType + " not implemented");
+        }
+        return creator.create();
+    }
 
+    public static RFXComMessage createMessage(byte[] packet) throws RFXComException {
+        MessageDecoder decoder = MESSAGE_DECODERS[packet[1] & 0xFF];
+        if (decoder == null) {
+            PacketType packetType = PacketType.fromByte(packet[1]);
+            throw new RFXComMessageNotImplementedException("Message " + packetType + " not implemented");
+        }
         try {
-            Class<? extends RFXComMessage> cl = MESSAGE_CLASSES.get(packetType);
-            if (cl == null) {
-                throw new RFXComMessageNotImplementedException("Message " + packetType + " not implemented");
-            }
-            return cl.newInstance();
-        } catch (IllegalAccessException | InstantiationException e) {
+            return decoder.decode(packet);
+        } catch (RuntimeException e) {
             throw new RFXComException(e);
         }
     }
 
-    public static RFXComMessage createMessage(byte[] packet) throws RFXComException {
-        PacketType packetType = PacketType.fromByte(packet[1]);
-
-        try {
-            Class<? extends RFXComMessage> cl = MESSAGE_CLASSES.get(packetType);
-            if (cl == null) {
-                throw new RFXComMessageNotImplementedException("Message " + packetType + " not implemented");
-            }
-            Constructor<?> c = cl.getConstructor(byte[].class);
-            return (RFXComMessage) c.newInstance(packet);
-        } catch (InvocationTargetException e) {
-            if (e.getCause() instanceof RFXComException) {
-                throw (RFXComException) e.getCause();
-            } else {
+    /**
+     * Decodes a received packet into the given message, if it is of the same packet type. Otherwise a new message is
+     * created. Reused messages must only be passed to listeners, which don't keep them after they have processed the
+     * message.
+     *
+     * @param packet received packet including the length byte
+     * @param message message to reuse or null
+     * @return the decoded message
+     */
+    public static RFXComMessage createMessage(byte[] packet, RFXComMessage message) throws RFXComException {
+        if (message instanceof RFXComBaseMessage && ((RFXComBaseMessage) message).packetId == packet[1]) {
+            try {
+                message.encodeMessage(packet);
+            } catch (RuntimeException e) {
                 throw new RFXComException(e);
             }
-        } catch (NoSuchMethodException | IllegalAccessException | InstantiationException e) {
-            throw new RFXComException(e);
+            return message;
         }
+        return createMessage(packet);
+    }
+
+    /**
+     * Checks if a message class is implemented for the packet type of the received packet.
+     *
+     * @param packet received packet including the length byte
+     * @return true, if the packet can be decoded by {@link #createMessage(byte[])}
+     */
+    public static boolean isMessageImplemented(byte[] packet) {
+        return packet.length > 1 && MESSAGE_DECODERS[packet[1] & 0xFF] != null;
     }
 
     public static PacketType convertPacketType(String packetType) throws IllegalArgumentException {
@@ -109,6 +109,8 @@ public class RFXComWindMessage extends RFXComBaseMessage {
 
         if (subType != SubType.WIND5) {
             avgWindSpeed = (short) ((data[8] & 0xFF) << 8 | (data[9] & 0xFF)) * 0.1;
+        } else {
+            avgWindSpeed = 0;
         }
 
         windSpeed = (short) ((data[10] & 0xFF) << 8 | (data[11] & 0xFF)) * 0.1;
@@ -123,6 +125,9 @@ public class RFXComWindMessage extends RFXComBaseMessage {
             if ((data[14] & 0x80) != 0) {
                 chillTemperature = -chillTemperature;
             }
+        } else {
+            temperature = 0;
+            chillTemperature = 0;
         }
 
         signalLevel = (byte) ((data[16] & 0xF0) >> 4);
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.config.discovery.AbstractDiscoveryService;
@@ -23,6 +24,9 @@ import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.openhab.binding.smaenergymeter.handler.EnergyMeter;
+import org.openhab.binding.smaenergymeter.handler.EnergyMeterReceiver;
+import org.openhab.binding.smaenergymeter.handler.EnergyMeterReceiver.TelegramListener;
+import org.openhab.binding.smaenergymeter.handler.EnergyMeterTelegram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,10 +34,14 @@ import org.slf4j.LoggerFactory;
  * The {@link SMAEnergyMeterDiscoveryService} class implements a service
  * for discovering the SMA Energy Meter.
  *
+ * It listens to the multicast group for a few seconds and reports every meter sending a telegram.
+ *
  * @author Osman Basha - Initial contribution
  */
 public class SMAEnergyMeterDiscoveryService extends AbstractDiscoveryService {
 
+    private static final long LISTEN_TIME_MS = 5000;
+
     private final Logger logger = LoggerFactory.getLogger(SMAEnergyMeterDiscoveryService.class);
 
     public SMAEnergyMeterDiscoveryService() {
@@ -63,22 +71,47 @@ public class SMAEnergyMeterDiscoveryService extends AbstractDiscoveryService {
     }
 
     private synchronized void discover() {
-        logger.debug("Try to discover a SMA Energy Meter device");
+        logger.debug("Try to discover SMA Energy Meter devices");
+
+        final Set<Long> serialNumbers = ConcurrentHashMap.newKeySet();
+        TelegramListener listener = new TelegramListener() {
+            @Override
+            public void telegramReceived(EnergyMeterTelegram telegram) {
+                if (serialNumbers.add(telegram.getSerialNumber())) {
+                    addThing(String.valueOf(telegram.getSerialNumber()));
+                }
+            }
+        };
 
-        EnergyMeter energyMeter = new EnergyMeter(EnergyMeter.DEFAULT_MCAST_GRP, EnergyMeter.DEFAULT_MCAST_PORT);
+        EnergyMeterReceiver receiver = EnergyMeterReceiver.getInstance(EnergyMeter.DEFAULT_MCAST_GRP,
+                EnergyMeter.DEFAULT_MCAST_PORT);
         try {
-            energyMeter.update();
+            receiver.addListener(null, listener);
         } catch (IOException e) {
             logger.debug("No SMA Energy Meter found.");
             logger.debug("Diagnostic: ", e);
             return;
         }
 
-        logger.debug("Adding a new SMA Engergy Meter with S/N '{}' to inbox", energyMeter.getSerialNumber());
+        try {
+            Thread.sleep(LISTEN_TIME_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            receiver.removeListener(listener);
+        }
+
+        if (serialNumbers.isEmpty()) {
+            logger.debug("No SMA Energy Meter found.");
+        }
+    }
+
+    private void addThing(String serialNumber) {
+        logger.debug("Adding a new SMA Engergy Meter with S/N '{}' to inbox", serialNumber);
         Map<String, Object> properties = new HashMap<>();
         properties.put(Thing.PROPERTY_VENDOR, "SMA");
-        properties.put(Thing.PROPERTY_SERIAL_NUMBER, energyMeter.getSerialNumber());
-        ThingUID uid = new ThingUID(THING_TYPE_ENERGY_METER, energyMeter.getSerialNumber());
+        properties.put(Thing.PROPERTY_SERIAL_NUMBER, serialNumber);
+        ThingUID uid = new ThingUID(THING_TYPE_ENERGY_METER, serialNumber);
         DiscoveryResult result = DiscoveryResultBuilder.create(uid)
                 .withProperties(properties)
                 .withLabel("SMA Energy Meter")
@@ -8,99 +8,93 @@
  */
 package org.openhab.binding.smaenergymeter.handler;
 
-import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.InetAddress;
-import java.net.MulticastSocket;
-import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-
-import org.eclipse.smarthome.core.library.types.DecimalType;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * The {@link EnergyMeter} class is responsible for communication with the SMA device
- * and extracting the data fields out of the received telegrams.
+ * The {@link EnergyMeter} class collects the telegrams of one SMA device, which are sent every second, and
+ * aggregates their values to minimum, average, maximum and last value of a period.
  *
  * @author Osman Basha - Initial contribution
  */
 public class EnergyMeter {
 
-    private String multicastGroup;
-    private int port;
-
-    private String serialNumber;
-    private Date lastUpdate;
-
-    private final FieldDTO powerIn;
-    private final FieldDTO energyIn;
-    private final FieldDTO powerOut;
-    private final FieldDTO energyOut;
-
     public static final String DEFAULT_MCAST_GRP = "239.12.255.254";
     public static final int DEFAULT_MCAST_PORT = 9522;
 
-    public EnergyMeter(String multicastGroup, int port) {
-        this.multicastGroup = multicastGroup;
-        this.port = port;
-
-        powerIn = new FieldDTO(0x20, 4, 10);
-        energyIn = new FieldDTO(0x28, 8, 3600000);
-        powerOut = new FieldDTO(0x34, 4, 10);
-        energyOut = new FieldDTO(0x3C, 8, 3600000);
-    }
-
-    public void update() throws IOException {
-        byte[] bytes = new byte[600];
-        try (MulticastSocket socket = new MulticastSocket(port)) {
-            socket.setSoTimeout(5000);
-            InetAddress address = InetAddress.getByName(multicastGroup);
-            socket.joinGroup(address);
-
-            DatagramPacket msgPacket = new DatagramPacket(bytes, bytes.length);
-            socket.receive(msgPacket);
-
-            String sma = new String(Arrays.copyOfRange(bytes, 0x00, 0x03));
-            if (!sma.equals("SMA")) {
-                throw new IOException("Not a SMA telegram." + sma);
+    private Date lastUpdate;
+    private Map<Integer, Aggregate> aggregates = new HashMap<>();
+
+    /**
+     * Adds the values of a telegram to the current period.
+     *
+     * @param telegram the received telegram
+     */
+    public synchronized void add(EnergyMeterTelegram telegram) {
+        for (Map.Entry<Integer, Long> value : telegram.getValues().entrySet()) {
+            Aggregate aggregate = aggregates.get(value.getKey());
+            if (aggregate == null) {
+                aggregate = new Aggregate();
+                aggregates.put(value.getKey(), aggregate);
             }
-
-            ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOfRange(bytes, 0x14, 0x18));
-            serialNumber = String.valueOf(buffer.getInt());
-
-            powerIn.updateValue(bytes);
-            energyIn.updateValue(bytes);
-            powerOut.updateValue(bytes);
-            energyOut.updateValue(bytes);
-
-            lastUpdate = new Date(System.currentTimeMillis());
-        } catch (Exception e) {
-            throw new IOException(e);
+            aggregate.add(value.getValue());
         }
+        lastUpdate = new Date(System.currentTimeMillis());
     }
 
-    public String getSerialNumber() {
-        return serialNumber;
+    /**
+     * Ends the current period and starts a new one.
+     *
+     * @return the aggregated raw values of the period by their OBIS header, empty if no telegram was received
+     */
+    public synchronized Map<Integer, Aggregate> nextPeriod() {
+        Map<Integer, Aggregate> period = aggregates;
+        aggregates = new HashMap<>();
+        return Collections.unmodifiableMap(period);
     }
 
-    public Date getLastUpdate() {
+    public synchronized Date getLastUpdate() {
         return lastUpdate;
     }
 
-    public DecimalType getPowerIn() {
-        return new DecimalType(powerIn.getValue());
-    }
+    /**
+     * The {@link Aggregate} class holds minimum, average, maximum and last value of an OBIS value within a period.
+     */
+    public static class Aggregate {
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private double sum;
+        private int count;
+        private long last;
+
+        private void add(long value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+            last = value;
+        }
 
-    public DecimalType getPowerOut() {
-        return new DecimalType(powerOut.getValue());
-    }
+        public long getMin() {
+            return min;
+        }
 
-    public DecimalType getEnergyIn() {
-        return new DecimalType(energyIn.getValue());
-    }
+        public long getMax() {
+            return max;
+        }
 
-    public DecimalType getEnergyOut() {
-        return new DecimalType(energyOut.getValue());
-    }
+        public double getAverage() {
+            return sum / count;
+        }
+
+        public long getLast() {
+            return last;
+        }
 
+        public int getCount() {
+            return count;
+        }
+    }
 }
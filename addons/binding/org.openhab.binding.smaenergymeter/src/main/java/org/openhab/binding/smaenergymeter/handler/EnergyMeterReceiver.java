@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.smaenergymeter.handler;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link EnergyMeterReceiver} class receives the telegrams of all SMA Energy Meters on a multicast group and
+ * dispatches them to the listeners of the respective serial number.
+ *
+ * There is one receiver per multicast group and port, which keeps its socket open as long as listeners are
+ * registered. The meters send a telegram every second, so joining the group for every single reading is avoided.
+ *
+ * @author agent - Initial contribution
+ */
+public class EnergyMeterReceiver {
+
+    /**
+     * Receives the telegrams of a SMA Energy Meter.
+     */
+    public interface TelegramListener {
+
+        /**
+         * Called from the thread of the receiver for every received telegram.
+         *
+         * @param telegram the received telegram
+         */
+        void telegramReceived(EnergyMeterTelegram telegram);
+    }
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private static final Map<String, EnergyMeterReceiver> INSTANCES = new HashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(EnergyMeterReceiver.class);
+
+    private final String mcastGroup;
+    private final int port;
+
+    /** the registered listeners with their serial number, null for all meters; guarded by this */
+    private final Map<TelegramListener, Long> listeners = new HashMap<>();
+
+    /** copies of the listeners read by the receiving thread without locking */
+    private volatile Map<Long, List<TelegramListener>> listenersBySerialNumber = Collections.emptyMap();
+    private volatile List<TelegramListener> listenersForAll = Collections.emptyList();
+
+    private MulticastSocket socket;
+
+    private EnergyMeterReceiver(String mcastGroup, int port) {
+        this.mcastGroup = mcastGroup;
+        this.port = port;
+    }
+
+    /**
+     * Returns the receiver of a multicast group.
+     *
+     * @param mcastGroup the multicast group
+     * @param port the port
+     * @return the shared receiver
+     */
+    public static synchronized EnergyMeterReceiver getInstance(String mcastGroup, int port) {
+        String key = mcastGroup + ":" + port;
+        EnergyMeterReceiver receiver = INSTANCES.get(key);
+        if (receiver == null) {
+            receiver = new EnergyMeterReceiver(mcastGroup, port);
+            INSTANCES.put(key, receiver);
+        }
+        return receiver;
+    }
+
+    /**
+     * Registers a listener and starts receiving, if it is the first one.
+     *
+     * @param serialNumber the serial number of the meter or null for the telegrams of all meters
+     * @param listener the listener
+     * @throws IOException if the multicast group cannot be joined
+     */
+    public synchronized void addListener(Long serialNumber, TelegramListener listener) throws IOException {
+        if (socket == null) {
+            start();
+        }
+        listeners.put(listener, serialNumber);
+        updateListeners();
+    }
+
+    /**
+     * Unregisters a listener and stops receiving, if it was the last one.
+     *
+     * @param listener the listener
+     */
+    public synchronized void removeListener(TelegramListener listener) {
+        listeners.remove(listener);
+        updateListeners();
+        if (listeners.isEmpty() && socket != null) {
+            logger.debug("Leaving multicast group {}:{}", mcastGroup, port);
+            socket.close();
+            socket = null;
+        }
+    }
+
+    private void updateListeners() {
+        Map<Long, List<TelegramListener>> bySerialNumber = new HashMap<>();
+        List<TelegramListener> forAll = new ArrayList<>();
+        for (Map.Entry<TelegramListener, Long> entry : listeners.entrySet()) {
+            if (entry.getValue() == null) {
+                forAll.add(entry.getKey());
+            } else {
+                List<TelegramListener> list = bySerialNumber.get(entry.getValue());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    bySerialNumber.put(entry.getValue(), list);
+                }
+                list.add(entry.getKey());
+            }
+        }
+        listenersBySerialNumber = bySerialNumber;
+        listenersForAll = forAll;
+    }
+
+    private void start() throws IOException {
+        logger.debug("Joining multicast group {}:{}", mcastGroup, port);
+        final MulticastSocket socket = openSocket();
+        this.socket = socket;
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive(socket);
+            }
+        }, "SMA Energy Meter " + mcastGroup + ":" + port);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private MulticastSocket openSocket() throws IOException {
+        MulticastSocket socket = new MulticastSocket(port);
+        try {
+            socket.joinGroup(InetAddress.getByName(mcastGroup));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    private void receive(MulticastSocket initialSocket) {
+        MulticastSocket socket = initialSocket;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+
+        while (true) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+            } catch (IOException e) {
+                if (isStopped(socket)) {
+                    return;
+                }
+                logger.debug("Receiving from multicast group {}:{} failed, retrying: {}", mcastGroup, port,
+                        e.getMessage());
+                socket = reopen(socket);
+                if (socket == null) {
+                    return;
+                }
+                continue;
+            }
+
+            EnergyMeterTelegram telegram = EnergyMeterTelegram.parse(buffer, packet.getLength());
+            if (telegram != null) {
+                dispatch(telegram);
+            }
+        }
+    }
+
+    private void dispatch(EnergyMeterTelegram telegram) {
+        List<TelegramListener> listeners = listenersBySerialNumber.get(telegram.getSerialNumber());
+        if (listeners != null) {
+            for (TelegramListener listener : listeners) {
+                notify(listener, telegram);
+            }
+        }
+        for (TelegramListener listener : listenersForAll) {
+            notify(listener, telegram);
+        }
+    }
+
+    private void notify(TelegramListener listener, EnergyMeterTelegram telegram) {
+        try {
+            listener.telegramReceived(telegram);
+        } catch (RuntimeException e) {
+            logger.warn("Listener failed to handle telegram of SMA Energy Meter {}", telegram.getSerialNumber(), e);
+        }
+    }
+
+    private synchronized boolean isStopped(MulticastSocket socket) {
+        return this.socket != socket;
+    }
+
+    /**
+     * Replaces a failed socket after a delay.
+     *
+     * @return the new socket or null, if the receiver was stopped in the meantime
+     */
+    private MulticastSocket reopen(MulticastSocket failedSocket) {
+        failedSocket.close();
+        MulticastSocket socket = failedSocket;
+        while (true) {
+            try {
+                Thread.sleep(RETRY_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            synchronized (this) {
+                if (this.socket != socket) {
+                    return null;
+                }
+                try {
+                    MulticastSocket newSocket = openSocket();
+                    this.socket = newSocket;
+                    return newSocket;
+                } catch (IOException e) {
+                    logger.debug("Rejoining multicast group {}:{} failed: {}", mcastGroup, port, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.smaenergymeter.handler;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link EnergyMeterTelegram} class holds the data of a single telegram sent by a SMA Energy Meter.
+ *
+ * A telegram contains a list of OBIS values. Each value starts with a 4 byte header of channel, measurement index,
+ * type and tariff. The type is the length of the following value: 4 bytes for actual values and 8 bytes for
+ * counters. The values are kept in their raw units, see {@link ObisChannel} for the conversion.
+ *
+ * @author agent - Initial contribution
+ */
+public class EnergyMeterTelegram {
+
+    /** type of actual values, followed by 4 bytes */
+    public static final int TYPE_ACTUAL = 4;
+
+    /** type of counter values, followed by 8 bytes */
+    public static final int TYPE_COUNTER = 8;
+
+    private static final int SMA_NET2_TAG = 0x0010;
+    private static final int ENERGY_METER_PROTOCOL_ID = 0x6069;
+
+    private static final int DATA_LENGTH_OFFSET = 0x0C;
+    private static final int PROTOCOL_ID_OFFSET = 0x10;
+    private static final int SERIAL_NUMBER_OFFSET = 0x14;
+    private static final int TICKER_OFFSET = 0x18;
+    private static final int OBIS_OFFSET = 0x1C;
+
+    private final long serialNumber;
+    private final long ticker;
+    private final Map<Integer, Long> values;
+
+    private EnergyMeterTelegram(long serialNumber, long ticker, Map<Integer, Long> values) {
+        this.serialNumber = serialNumber;
+        this.ticker = ticker;
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Returns the OBIS header of a value with tariff 0.
+     *
+     * @param index the measurement index, i.e. 1 for the purchased active power
+     * @param type {@link #TYPE_ACTUAL} or {@link #TYPE_COUNTER}
+     * @return the header as it is used as key of {@link #getValues()}
+     */
+    public static int obis(int index, int type) {
+        return (index << 16) | (type << 8);
+    }
+
+    /**
+     * Parses a received telegram.
+     *
+     * @param bytes the received data
+     * @param length the length of the received data
+     * @return the telegram or null, if the data is no SMA Energy Meter telegram
+     */
+    public static EnergyMeterTelegram parse(byte[] bytes, int length) {
+        if (length < OBIS_OFFSET || bytes[0] != 'S' || bytes[1] != 'M' || bytes[2] != 'A') {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        if ((buffer.getShort(DATA_LENGTH_OFFSET + 2) & 0xFFFF) != SMA_NET2_TAG
+                || (buffer.getShort(PROTOCOL_ID_OFFSET) & 0xFFFF) != ENERGY_METER_PROTOCOL_ID) {
+            // other SMA devices use the same multicast group
+            return null;
+        }
+
+        // the data length counts from the protocol id
+        int end = Math.min(length, PROTOCOL_ID_OFFSET + (buffer.getShort(DATA_LENGTH_OFFSET) & 0xFFFF));
+        long serialNumber = buffer.getInt(SERIAL_NUMBER_OFFSET) & 0xFFFFFFFFL;
+        long ticker = buffer.getInt(TICKER_OFFSET) & 0xFFFFFFFFL;
+
+        Map<Integer, Long> values = new HashMap<>();
+        int position = OBIS_OFFSET;
+        while (position + 8 <= end) {
+            int header = buffer.getInt(position);
+            if (header == 0) {
+                // end of data
+                break;
+            }
+            int type = (header >> 8) & 0xFF;
+            if (type == TYPE_COUNTER) {
+                if (position + 12 > end) {
+                    break;
+                }
+                values.put(header, buffer.getLong(position + 4));
+                position += 12;
+            } else {
+                // actual values and the software version have 4 bytes
+                values.put(header, buffer.getInt(position + 4) & 0xFFFFFFFFL);
+                position += 8;
+            }
+        }
+
+        return new EnergyMeterTelegram(serialNumber, ticker, values);
+    }
+
+    public long getSerialNumber() {
+        return serialNumber;
+    }
+
+    /**
+     * @return the time of the measurement in ms, as counted by the meter
+     */
+    public long getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return the raw values by their OBIS header
+     */
+    public Map<Integer, Long> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.smaenergymeter.handler;
+
+import static org.openhab.binding.smaenergymeter.SMAEnergyMeterBindingConstants.*;
+import static org.openhab.binding.smaenergymeter.handler.EnergyMeterTelegram.*;
+
+/**
+ * The {@link ObisChannel} enum maps the OBIS values of the telegrams to the channels of the thing.
+ *
+ * @author agent - Initial contribution
+ */
+public enum ObisChannel {
+
+    POWER_IN(CHANNEL_POWER_IN, 1, TYPE_ACTUAL, 10, CHANNEL_POWER_IN_MIN, CHANNEL_POWER_IN_MAX),
+    POWER_OUT(CHANNEL_POWER_OUT, 2, TYPE_ACTUAL, 10, CHANNEL_POWER_OUT_MIN, CHANNEL_POWER_OUT_MAX),
+    ENERGY_IN(CHANNEL_ENERGY_IN, 1, TYPE_COUNTER, 3600000),
+    ENERGY_OUT(CHANNEL_ENERGY_OUT, 2, TYPE_COUNTER, 3600000),
+    POWER_FACTOR(CHANNEL_POWER_FACTOR, 13, TYPE_ACTUAL, 1000),
+
+    POWER_IN_L1(CHANNEL_POWER_IN_L1, 21, TYPE_ACTUAL, 10),
+    POWER_OUT_L1(CHANNEL_POWER_OUT_L1, 22, TYPE_ACTUAL, 10),
+    CURRENT_L1(CHANNEL_CURRENT_L1, 31, TYPE_ACTUAL, 1000),
+    VOLTAGE_L1(CHANNEL_VOLTAGE_L1, 32, TYPE_ACTUAL, 1000),
+    POWER_FACTOR_L1(CHANNEL_POWER_FACTOR_L1, 33, TYPE_ACTUAL, 1000),
+
+    POWER_IN_L2(CHANNEL_POWER_IN_L2, 41, TYPE_ACTUAL, 10),
+    POWER_OUT_L2(CHANNEL_POWER_OUT_L2, 42, TYPE_ACTUAL, 10),
+    CURRENT_L2(CHANNEL_CURRENT_L2, 51, TYPE_ACTUAL, 1000),
+    VOLTAGE_L2(CHANNEL_VOLTAGE_L2, 52, TYPE_ACTUAL, 1000),
+    POWER_FACTOR_L2(CHANNEL_POWER_FACTOR_L2, 53, TYPE_ACTUAL, 1000),
+
+    POWER_IN_L3(CHANNEL_POWER_IN_L3, 61, TYPE_ACTUAL, 10),
+    POWER_OUT_L3(CHANNEL_POWER_OUT_L3, 62, TYPE_ACTUAL, 10),
+    CURRENT_L3(CHANNEL_CURRENT_L3, 71, TYPE_ACTUAL, 1000),
+    VOLTAGE_L3(CHANNEL_VOLTAGE_L3, 72, TYPE_ACTUAL, 1000),
+    POWER_FACTOR_L3(CHANNEL_POWER_FACTOR_L3, 73, TYPE_ACTUAL, 1000);
+
+    private final String channelId;
+    private final int obis;
+    private final boolean counter;
+    private final double divisor;
+    private final String minChannelId;
+    private final String maxChannelId;
+
+    private ObisChannel(String channelId, int index, int type, double divisor) {
+        this(channelId, index, type, divisor, null, null);
+    }
+
+    private ObisChannel(String channelId, int index, int type, double divisor, String minChannelId,
+            String maxChannelId) {
+        this.channelId = channelId;
+        this.obis = EnergyMeterTelegram.obis(index, type);
+        this.counter = type == TYPE_COUNTER;
+        this.divisor = divisor;
+        this.minChannelId = minChannelId;
+        this.maxChannelId = maxChannelId;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public int getObis() {
+        return obis;
+    }
+
+    /**
+     * @return true, if the last value of a period is used, otherwise the average is used
+     */
+    public boolean isCounter() {
+        return counter;
+    }
+
+    /**
+     * @return the channel of the minimum within a period or null
+     */
+    public String getMinChannelId() {
+        return minChannelId;
+    }
+
+    /**
+     * @return the channel of the maximum within a period or null
+     */
+    public String getMaxChannelId() {
+        return maxChannelId;
+    }
+
+    /**
+     * Converts a raw value to the unit of the channel (W, kWh, A, V).
+     *
+     * @param value the raw value
+     * @return the converted value
+     */
+    public double convert(double value) {
+        return value / divisor;
+    }
+}
@@ -8,12 +8,13 @@
  */
 package org.openhab.binding.smaenergymeter.handler;
 
-import static org.openhab.binding.smaenergymeter.SMAEnergyMeterBindingConstants.*;
-
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
@@ -22,6 +23,8 @@ import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
 import org.openhab.binding.smaenergymeter.configuration.EnergyMeterConfig;
+import org.openhab.binding.smaenergymeter.handler.EnergyMeter.Aggregate;
+import org.openhab.binding.smaenergymeter.handler.EnergyMeterReceiver.TelegramListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,13 +32,20 @@ import org.slf4j.LoggerFactory;
  * The {@link SMAEnergyMeterHandler} is responsible for handling commands, which are
  * sent to one of the channels.
  *
+ * The telegrams of the meter are received continuously by the shared {@link EnergyMeterReceiver}. They are
+ * aggregated by the {@link EnergyMeter} and published once per polling period.
+ *
  * @author Osman Basha - Initial contribution
  */
-public class SMAEnergyMeterHandler extends BaseThingHandler {
+public class SMAEnergyMeterHandler extends BaseThingHandler implements TelegramListener {
 
     private Logger logger = LoggerFactory.getLogger(SMAEnergyMeterHandler.class);
-    private EnergyMeter energyMeter;
+    private EnergyMeterReceiver receiver;
+    private volatile EnergyMeter energyMeter;
     private ScheduledFuture<?> pollingJob;
+    private volatile Long serialNumber;
+    private volatile boolean receiving;
+    private volatile Map<Integer, Aggregate> lastPeriod = Collections.emptyMap();
 
     public SMAEnergyMeterHandler(Thing thing) {
         super(thing);
@@ -45,7 +55,7 @@ public class SMAEnergyMeterHandler extends BaseThingHandler {
     public void handleCommand(ChannelUID channelUID, Command command) {
         if (command == RefreshType.REFRESH) {
             logger.debug("Refreshing {}", channelUID);
-            updateData();
+            publish(lastPeriod);
         } else {
             logger.warn("This binding is a read-only binding and cannot handle commands");
         }
@@ -57,18 +67,33 @@ public class SMAEnergyMeterHandler extends BaseThingHandler {
 
         EnergyMeterConfig config = getConfigAs(EnergyMeterConfig.class);
 
+        String mcastGroup = (config.getMcastGroup() == null) ? EnergyMeter.DEFAULT_MCAST_GRP
+                : config.getMcastGroup();
         int port = (config.getPort() == null) ? EnergyMeter.DEFAULT_MCAST_PORT : config.getPort();
-        energyMeter = new EnergyMeter(config.getMcastGroup(), port);
-        try {
-            energyMeter.update();
 
-            updateProperty(Thing.PROPERTY_VENDOR, "SMA");
-            updateProperty(Thing.PROPERTY_SERIAL_NUMBER, energyMeter.getSerialNumber());
-            logger.debug("Found a SMA Energy Meter with S/N '{}'", energyMeter.getSerialNumber());
+        serialNumber = null;
+        String property = getThing().getProperties().get(Thing.PROPERTY_SERIAL_NUMBER);
+        if (property != null) {
+            try {
+                // older versions stored the serial number as signed int
+                serialNumber = Long.parseLong(property) & 0xFFFFFFFFL;
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring invalid serial number '{}' of '{}'", property, getThing().getUID());
+            }
+        }
+
+        energyMeter = new EnergyMeter();
+        lastPeriod = Collections.emptyMap();
+        receiving = false;
+        receiver = EnergyMeterReceiver.getInstance(mcastGroup, port);
+        try {
+            receiver.addListener(serialNumber, this);
         } catch (IOException e) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.CONFIGURATION_ERROR, e.getMessage());
+            receiver = null;
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, e.getMessage());
             return;
         }
+        updateProperty(Thing.PROPERTY_VENDOR, "SMA");
 
         int pollingPeriod = (config.getPollingPeriod() == null) ? 30 : config.getPollingPeriod();
         pollingJob = scheduler.scheduleWithFixedDelay(new Runnable() {
@@ -76,10 +101,10 @@ public class SMAEnergyMeterHandler extends BaseThingHandler {
             public void run() {
                 updateData();
             }
-        }, 0, pollingPeriod, TimeUnit.SECONDS);
+        }, pollingPeriod, pollingPeriod, TimeUnit.SECONDS);
         logger.debug("Polling job scheduled to run every {} sec. for '{}'", pollingPeriod, getThing().getUID());
 
-        updateStatus(ThingStatus.ONLINE);
+        updateStatus(ThingStatus.UNKNOWN);
     }
 
     @Override
@@ -90,25 +115,93 @@ public class SMAEnergyMeterHandler extends BaseThingHandler {
             pollingJob.cancel(true);
             pollingJob = null;
         }
+        if (receiver != null) {
+            receiver.removeListener(this);
+            receiver = null;
+        }
         energyMeter = null;
     }
 
+    @Override
+    public void telegramReceived(EnergyMeterTelegram telegram) {
+        EnergyMeter energyMeter = this.energyMeter;
+        if (energyMeter == null) {
+            return;
+        }
+
+        if (serialNumber == null) {
+            lockSerialNumber(telegram.getSerialNumber());
+        } else if (serialNumber != telegram.getSerialNumber()) {
+            return;
+        }
+
+        energyMeter.add(telegram);
+
+        if (!receiving) {
+            receiving = true;
+            updateStatus(ThingStatus.ONLINE);
+        }
+    }
+
+    /**
+     * Binds a thing without serial number to the first meter sending a telegram.
+     */
+    private synchronized void lockSerialNumber(long serialNumber) {
+        if (this.serialNumber != null) {
+            return;
+        }
+        this.serialNumber = serialNumber;
+        logger.debug("Found a SMA Energy Meter with S/N '{}'", serialNumber);
+        updateProperty(Thing.PROPERTY_SERIAL_NUMBER, String.valueOf(serialNumber));
+
+        EnergyMeterReceiver receiver = this.receiver;
+        if (receiver != null) {
+            try {
+                receiver.addListener(serialNumber, this);
+            } catch (IOException e) {
+                logger.debug("Failed to register for S/N '{}': {}", serialNumber, e.getMessage());
+            }
+        }
+    }
+
     private synchronized void updateData() {
         logger.debug("Update SMAEnergyMeter data '{}'", getThing().getUID());
 
-        try {
-            energyMeter.update();
+        EnergyMeter energyMeter = this.energyMeter;
+        if (energyMeter == null) {
+            return;
+        }
 
-            updateState(CHANNEL_POWER_IN, energyMeter.getPowerIn());
-            updateState(CHANNEL_POWER_OUT, energyMeter.getPowerOut());
-            updateState(CHANNEL_ENERGY_IN, energyMeter.getEnergyIn());
-            updateState(CHANNEL_ENERGY_OUT, energyMeter.getEnergyOut());
+        Map<Integer, Aggregate> period = energyMeter.nextPeriod();
+        if (period.isEmpty()) {
+            receiving = false;
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                    "No telegram received within the polling period");
+            return;
+        }
 
-            if (getThing().getStatus().equals(ThingStatus.OFFLINE)) {
-                updateStatus(ThingStatus.ONLINE);
+        lastPeriod = period;
+        publish(period);
+    }
+
+    private void publish(Map<Integer, Aggregate> period) {
+        for (ObisChannel channel : ObisChannel.values()) {
+            Aggregate aggregate = period.get(channel.getObis());
+            if (aggregate == null) {
+                continue;
+            }
+
+            if (channel.isCounter()) {
+                updateState(channel.getChannelId(), new DecimalType(channel.convert(aggregate.getLast())));
+            } else {
+                updateState(channel.getChannelId(), new DecimalType(channel.convert(aggregate.getAverage())));
+            }
+            if (channel.getMinChannelId() != null) {
+                updateState(channel.getMinChannelId(), new DecimalType(channel.convert(aggregate.getMin())));
+            }
+            if (channel.getMaxChannelId() != null) {
+                updateState(channel.getMaxChannelId(), new DecimalType(channel.convert(aggregate.getMax())));
             }
-        } catch (IOException e) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.COMMUNICATION_ERROR, e.getMessage());
         }
     }
 
@@ -8,8 +8,13 @@
  */
 package org.openhab.binding.tellstick.handler.live;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -19,31 +24,34 @@ import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.binding.BaseBridgeHandler;
+import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
 import org.eclipse.smarthome.core.types.State;
+import org.openhab.binding.tellstick.TellstickBindingConstants;
 import org.openhab.binding.tellstick.conf.TelldusLiveConfiguration;
 import org.openhab.binding.tellstick.handler.DeviceStatusListener;
 import org.openhab.binding.tellstick.handler.TelldusBridgeHandler;
 import org.openhab.binding.tellstick.handler.TelldusDeviceController;
 import org.openhab.binding.tellstick.handler.TelldusDevicesHandler;
-import org.openhab.binding.tellstick.handler.live.xml.DataTypeValue;
-import org.openhab.binding.tellstick.handler.live.xml.TellstickNetDevice;
+import org.openhab.binding.tellstick.handler.live.TelldusLiveDeviceSync.SyncListener;
 import org.openhab.binding.tellstick.handler.live.xml.TellstickNetDevices;
-import org.openhab.binding.tellstick.handler.live.xml.TellstickNetSensor;
 import org.openhab.binding.tellstick.handler.live.xml.TellstickNetSensors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tellstick.device.TellstickDeviceEvent;
 import org.tellstick.device.TellstickException;
-import org.tellstick.device.TellstickSensorEvent;
 import org.tellstick.device.iface.Device;
+import org.tellstick.device.iface.TellstickEvent;
+import org.tellstick.enums.DeviceType;
 
 /**
  * {@link TelldusLiveBridgeHandler} is the handler for Telldus Live service (Tellstick.NET and ZNET) and connects it
  * to the framework. All {@link TelldusDevicesHandler}s use the
  * {@link TelldusLiveDeviceController} to execute the actual commands.
  *
+ * The polled lists are merged by the {@link TelldusLiveDeviceSync}. State changes are only sent to the handler of the
+ * changed device, and polling backs off while Telldus Live is throttling requests.
+ *
  * @author Jarle Hjortland
  *
  */
@@ -51,12 +59,39 @@ public class TelldusLiveBridgeHandler extends BaseBridgeHandler implements Telld
 
     private final Logger logger = LoggerFactory.getLogger(TelldusLiveBridgeHandler.class);
 
-    private TellstickNetDevices deviceList = null;
-    private TellstickNetSensors sensorList = null;
+    private final TelldusLiveDeviceSync deviceSync = new TelldusLiveDeviceSync();
     private TelldusLiveDeviceController controller = new TelldusLiveDeviceController();
     private List<DeviceStatusListener> deviceStatusListeners = new Vector<DeviceStatusListener>();
 
+    /**
+     * the device and sensor handlers by their id, they only receive the state changes of their device. Devices and
+     * sensors have separate ids in Telldus Live, so they are indexed separately.
+     */
+    private final Map<String, DeviceStatusListener> deviceHandlers = new ConcurrentHashMap<>();
+    private final Map<String, DeviceStatusListener> sensorHandlers = new ConcurrentHashMap<>();
+    private final Set<DeviceStatusListener> deviceHandlerSet = Collections
+            .synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<DeviceStatusListener, Boolean>()));
+
     private static final int REFRESH_DELAY = 10;
+    private static final int MAX_BACKOFF_POLLS = 16;
+
+    /** number of polls skipped after the last throttled request, doubled on every throttled request */
+    private int backoffPolls = 0;
+    private int pollsToSkip = 0;
+
+    private final SyncListener syncListener = new SyncListener() {
+        @Override
+        public void deviceAdded(Device device) {
+            for (DeviceStatusListener listener : deviceStatusListeners) {
+                listener.onDeviceAdded(getThing(), device);
+            }
+        }
+
+        @Override
+        public void deviceChanged(Device device, TellstickEvent event) {
+            notifyDeviceStateChanged(device, event);
+        }
+    };
 
     public TelldusLiveBridgeHandler(Bridge bridge) {
         super(bridge);
@@ -67,7 +102,7 @@ public class TelldusLiveBridgeHandler extends BaseBridgeHandler implements Telld
     private Runnable pollingRunnable = new Runnable() {
         @Override
         public void run() {
-            refreshDeviceList();
+            pollDeviceList();
         }
     };
 
@@ -77,8 +112,7 @@ public class TelldusLiveBridgeHandler extends BaseBridgeHandler implements Telld
         if (pollingJob != null) {
             pollingJob.cancel(true);
         }
-        deviceList = null;
-        sensorList = null;
+        deviceSync.clear();
         super.dispose();
     }
 
@@ -114,11 +148,25 @@ public class TelldusLiveBridgeHandler extends BaseBridgeHandler implements Telld
         }
     }
 
+    private synchronized void pollDeviceList() {
+        if (pollsToSkip > 0) {
+            logger.debug("Telldus Live is throttling, skipping poll ({} left)", pollsToSkip);
+            pollsToSkip--;
+            return;
+        }
+        refreshDeviceList();
+    }
+
     synchronized void refreshDeviceList() {
         try {
-            updateDevices(deviceList);
-            updateSensors(sensorList);
+            updateDevices();
+            updateSensors();
+            backoffPolls = 0;
             updateStatus(ThingStatus.ONLINE);
+        } catch (TelldusLiveThrottledException e) {
+            backoffPolls = Math.min(Math.max(1, backoffPolls * 2), MAX_BACKOFF_POLLS);
+            pollsToSkip = backoffPolls;
+            logger.warn("{}, skipping the next {} polls", e.getMessage(), pollsToSkip);
         } catch (TellstickException e) {
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.getMessage());
             logger.error("Failed to update", e);
@@ -128,110 +176,64 @@ public class TelldusLiveBridgeHandler extends BaseBridgeHandler implements Telld
         }
     }
 
-    private synchronized void updateDevices(TellstickNetDevices previouslist) throws TellstickException {
+    private synchronized void updateDevices() throws TellstickException {
         TellstickNetDevices newList = controller.callRestMethod(TelldusLiveDeviceController.HTTP_TELLDUS_DEVICES,
                 TellstickNetDevices.class);
-        logger.debug("Device list {}", newList.getDevices());
-        if (previouslist == null) {
-            logger.debug("updateDevices, Creating devices.");
-            for (TellstickNetDevice device : newList.getDevices()) {
-                device.setUpdated(true);
-                for (DeviceStatusListener listener : deviceStatusListeners) {
-                    listener.onDeviceAdded(getThing(), device);
-                }
-            }
-            this.deviceList = newList;
-        } else {
-            logger.debug("updateDevices, Updating devices.");
-            for (TellstickNetDevice device : newList.getDevices()) {
-                int index = previouslist.getDevices().indexOf(device);
-                logger.debug("Device:{} found at {}", device, index);
-                if (index >= 0) {
-                    TellstickNetDevice orgDevice = previouslist.getDevices().get(index);
-                    if (device.getState() != orgDevice.getState()) {
-                        orgDevice.setState(device.getState());
-                        orgDevice.setStatevalue(device.getStatevalue());
-                        orgDevice.setUpdated(true);
-                    }
-                } else {
-                    logger.debug("New Device - Adding:{}", device);
-                    previouslist.getDevices().add(device);
-                    device.setUpdated(true);
-                    for (DeviceStatusListener listener : deviceStatusListeners) {
-                        listener.onDeviceAdded(getThing(), device);
-                    }
-                }
-            }
-        }
-
-        for (TellstickNetDevice device : deviceList.getDevices()) {
-            if (device.isUpdated()) {
-                logger.debug("Updated device:{}", device);
-                for (DeviceStatusListener listener : deviceStatusListeners) {
-                    listener.onDeviceStateChanged(getThing(), device,
-                            new TellstickDeviceEvent(device, null, null, null, System.currentTimeMillis()));
-                }
-                device.setUpdated(false);
-            }
+        if (newList == null) {
+            return;
         }
+        logger.debug("Device list {}", newList.getDevices());
+        deviceSync.syncDevices(newList.getDevices(), syncListener);
     }
 
-    private synchronized void updateSensors(TellstickNetSensors previouslist) throws TellstickException {
+    private synchronized void updateSensors() throws TellstickException {
         TellstickNetSensors newList = controller.callRestMethod(TelldusLiveDeviceController.HTTP_TELLDUS_SENSORS,
                 TellstickNetSensors.class);
+        if (newList == null) {
+            return;
+        }
         logger.debug("Updated sensors:{}", newList.getSensors());
-        if (previouslist == null) {
-            logger.debug("First update of sensors");
-            this.sensorList = newList;
-            for (TellstickNetSensor sensor : sensorList.getSensors()) {
-                sensor.setUpdated(true);
-                for (DeviceStatusListener listener : deviceStatusListeners) {
-                    listener.onDeviceAdded(getThing(), sensor);
-                }
-            }
-        } else {
-            logger.debug("Update sensors, reset updated flag");
-            for (TellstickNetSensor sensor : previouslist.getSensors()) {
-                sensor.setUpdated(false);
-            }
-            for (TellstickNetSensor sensor : newList.getSensors()) {
-                int index = this.sensorList.getSensors().indexOf(sensor);
-                if (index >= 0) {
-                    TellstickNetSensor orgSensor = this.sensorList.getSensors().get(index);
-                    logger.debug("Update sensor {}, prev update {}, new update {}", sensor.getId(),
-                            orgSensor.getLastUpdated(), sensor.getLastUpdated());
-                    if (sensor.getLastUpdated() > orgSensor.getLastUpdated()) {
-                        logger.debug("Update for sensor:{}", sensor);
-                        orgSensor.setData(sensor.getData());
-                        orgSensor.setLastUpdated(sensor.getLastUpdated());
-                        orgSensor.setUpdated(true);
-                        sensor.setUpdated(true);
-                    }
-                } else {
-                    logger.debug("Adding sensor {}, new update {}", sensor.getId(), sensor.getLastUpdated());
-                    this.sensorList.getSensors().add(sensor);
-                    sensor.setUpdated(true);
-                    for (DeviceStatusListener listener : deviceStatusListeners) {
-                        listener.onDeviceAdded(getThing(), sensor);
-                    }
-                }
+        deviceSync.syncSensors(newList.getSensors(), syncListener);
+    }
 
-            }
+    private void notifyDeviceStateChanged(Device device, TellstickEvent event) {
+        Map<String, DeviceStatusListener> handlers = device.getDeviceType() == DeviceType.SENSOR ? sensorHandlers
+                : deviceHandlers;
+        DeviceStatusListener handler = handlers.get(device.getUUId());
+        if (handler != null && deviceStatusListeners.contains(handler)) {
+            handler.onDeviceStateChanged(getThing(), device, event);
         }
-        for (TellstickNetSensor sensor : sensorList.getSensors()) {
-            if (sensor.getData() != null && sensor.isUpdated()) {
-                for (DeviceStatusListener listener : deviceStatusListeners) {
-                    for (DataTypeValue type : sensor.getData()) {
-                        listener.onDeviceStateChanged(getThing(), sensor,
-                                new TellstickSensorEvent(sensor.getId(), type.getValue(), type.getName(),
-                                        sensor.getProtocol(), sensor.getModel(), System.currentTimeMillis()));
-                    }
-                }
-                sensor.setUpdated(false);
+        // listeners which are not device handlers, e.g. the discovery service
+        for (DeviceStatusListener listener : deviceStatusListeners) {
+            if (!deviceHandlerSet.contains(listener)) {
+                listener.onDeviceStateChanged(getThing(), device, event);
             }
         }
     }
 
+    @Override
+    public void childHandlerInitialized(ThingHandler childHandler, Thing childThing) {
+        Object deviceId = childThing.getConfiguration().get(TellstickBindingConstants.DEVICE_ID);
+        if (deviceId != null && childHandler instanceof DeviceStatusListener) {
+            getHandlers(childThing).put(deviceId.toString(), (DeviceStatusListener) childHandler);
+            deviceHandlerSet.add((DeviceStatusListener) childHandler);
+        }
+    }
+
+    @Override
+    public void childHandlerDisposed(ThingHandler childHandler, Thing childThing) {
+        Object deviceId = childThing.getConfiguration().get(TellstickBindingConstants.DEVICE_ID);
+        if (deviceId != null) {
+            getHandlers(childThing).remove(deviceId.toString(), childHandler);
+        }
+        deviceHandlerSet.remove(childHandler);
+    }
+
+    private Map<String, DeviceStatusListener> getHandlers(Thing childThing) {
+        return TellstickBindingConstants.SENSOR_THING_TYPES_UIDS.contains(childThing.getThingTypeUID())
+                ? sensorHandlers : deviceHandlers;
+    }
+
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
         if (command instanceof RefreshType) {
@@ -275,49 +277,22 @@ public class TelldusLiveBridgeHandler extends BaseBridgeHandler implements Telld
         return result;
     }
 
-    private Device getDevice(String id, List<TellstickNetDevice> devices) {
-        for (Device device : devices) {
-            if (device.getId() == Integer.valueOf(id)) {
-                return device;
-            }
-        }
-        return null;
-    }
-
-    private Device getSensor(String id, List<TellstickNetSensor> sensors) {
-        for (Device sensor : sensors) {
-            if (sensor.getId() == Integer.valueOf(id)) {
-                return sensor;
-            }
-        }
-        return null;
-    }
-
     @Override
     public Device getDevice(String serialNumber) {
-        return getDevice(serialNumber, getDevices());
-    }
-
-    private List<TellstickNetDevice> getDevices() {
-        if (deviceList == null) {
+        if (!deviceSync.isDevicesLoaded()) {
             refreshDeviceList();
         }
-        return deviceList.getDevices();
+        return deviceSync.getDevice(Integer.valueOf(serialNumber));
     }
 
     @Override
     public Device getSensor(String deviceUUId) {
-        Device result = null;
-        if (sensorList != null) {
-            result = getSensor(deviceUUId, sensorList.getSensors());
-        }
-        return result;
+        return deviceSync.getSensor(Integer.valueOf(deviceUUId));
     }
 
     @Override
     public void rescanTelldusDevices() {
-        this.deviceList = null;
-        this.sensorList = null;
+        deviceSync.clear();
         refreshDeviceList();
     }
 
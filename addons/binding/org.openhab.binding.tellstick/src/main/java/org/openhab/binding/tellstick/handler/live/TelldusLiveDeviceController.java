@@ -72,6 +72,8 @@ public class TelldusLiveDeviceController implements DeviceChangeListener, Sensor
     static final String HTTP_TELLDUS_DEVICE_TURNOFF = HTTP_API_TELLDUS_COM_XML + "device/turnOff?id=%d";
     static final String HTTP_TELLDUS_DEVICE_TURNON = HTTP_API_TELLDUS_COM_XML + "device/turnOn?id=%d";
     private static final int MAX_RETRIES = 3;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
 
     public TelldusLiveDeviceController() {
     }
@@ -303,9 +305,13 @@ public class TelldusLiveDeviceController implements DeviceChangeListener, Sensor
     }
 
     private <T> T innerCallRest(String uri, Class<T> response) throws InterruptedException, ExecutionException,
-            TimeoutException, JAXBException, FactoryConfigurationError, XMLStreamException {
+            TimeoutException, JAXBException, FactoryConfigurationError, XMLStreamException,
+            TelldusLiveThrottledException {
         Future<Response> future = client.prepareGet(uri).execute();
         Response resp = future.get(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (resp.getStatusCode() == HTTP_TOO_MANY_REQUESTS || resp.getStatusCode() == HTTP_SERVICE_UNAVAILABLE) {
+            throw new TelldusLiveThrottledException(resp.getStatusCode(), resp.getStatusText());
+        }
         // TelldusLiveHandler.logger.info("Devices" + resp.getResponseBody());
         JAXBContext jc = JAXBContext.newInstance(response);
         XMLInputFactory xif = XMLInputFactory.newInstance();
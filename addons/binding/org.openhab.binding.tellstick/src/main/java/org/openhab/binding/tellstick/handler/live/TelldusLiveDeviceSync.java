@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tellstick.handler.live;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openhab.binding.tellstick.handler.live.xml.DataTypeValue;
+import org.openhab.binding.tellstick.handler.live.xml.TellstickNetDevice;
+import org.openhab.binding.tellstick.handler.live.xml.TellstickNetSensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tellstick.device.TellstickDeviceEvent;
+import org.tellstick.device.TellstickSensorEvent;
+import org.tellstick.device.iface.Device;
+import org.tellstick.device.iface.TellstickEvent;
+import org.tellstick.enums.DataType;
+
+/**
+ * {@link TelldusLiveDeviceSync} keeps the devices and sensors of Telldus Live by their id and merges the lists
+ * polled from the service into them. Only added devices and changed fields are reported to the
+ * {@link SyncListener}.
+ *
+ * The known objects are updated in place, as they are handed out to the device handlers and the controller.
+ *
+ * @author agent
+ */
+class TelldusLiveDeviceSync {
+
+    /**
+     * Receives the differences found by a sync.
+     */
+    interface SyncListener {
+
+        void deviceAdded(Device device);
+
+        void deviceChanged(Device device, TellstickEvent event);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(TelldusLiveDeviceSync.class);
+
+    private final Map<Integer, TellstickNetDevice> devices = new ConcurrentHashMap<>();
+    private final Map<Integer, TellstickNetSensor> sensors = new ConcurrentHashMap<>();
+    private volatile boolean devicesLoaded = false;
+
+    /**
+     * @return true, if the device list was synced at least once since the last {@link #clear()}
+     */
+    boolean isDevicesLoaded() {
+        return devicesLoaded;
+    }
+
+    TellstickNetDevice getDevice(int id) {
+        return devices.get(id);
+    }
+
+    TellstickNetSensor getSensor(int id) {
+        return sensors.get(id);
+    }
+
+    void clear() {
+        devicesLoaded = false;
+        devices.clear();
+        sensors.clear();
+    }
+
+    /**
+     * Merges a polled device list. A device is reported as changed if its state, state value or online flag differ,
+     * or if it was marked as updated by the controller.
+     *
+     * @param newDevices the polled devices, may be null for an empty list
+     * @param listener receives the differences
+     */
+    synchronized void syncDevices(List<TellstickNetDevice> newDevices, SyncListener listener) {
+        List<TellstickNetDevice> changed = new ArrayList<>();
+        for (TellstickNetDevice device : nonNull(newDevices)) {
+            TellstickNetDevice known = devices.get(device.getId());
+            if (known == null) {
+                logger.debug("New Device - Adding:{}", device);
+                devices.put(device.getId(), device);
+                listener.deviceAdded(device);
+                changed.add(device);
+            } else {
+                known.setName(device.getName());
+                known.setMethods(device.getMethods());
+                boolean stateChanged = known.getState() != device.getState()
+                        || !Objects.equals(known.getStatevalue(), device.getStatevalue())
+                        || known.getOnline() != device.getOnline();
+                if (stateChanged || known.isUpdated()) {
+                    known.setState(device.getState());
+                    known.setStatevalue(device.getStatevalue());
+                    known.setOnline(device.getOnline());
+                    changed.add(known);
+                }
+            }
+        }
+        devicesLoaded = true;
+
+        for (TellstickNetDevice device : changed) {
+            logger.debug("Updated device:{}", device);
+            device.setUpdated(false);
+            listener.deviceChanged(device,
+                    new TellstickDeviceEvent(device, null, null, null, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Merges a polled sensor list. Sensors whose lastUpdated timestamp did not advance are skipped, otherwise only
+     * the changed values are reported.
+     *
+     * @param newSensors the polled sensors, may be null for an empty list
+     * @param listener receives the differences
+     */
+    synchronized void syncSensors(List<TellstickNetSensor> newSensors, SyncListener listener) {
+        for (TellstickNetSensor sensor : nonNull(newSensors)) {
+            TellstickNetSensor known = sensors.get(sensor.getId());
+            if (known == null) {
+                logger.debug("Adding sensor {}, new update {}", sensor.getId(), sensor.getLastUpdated());
+                sensors.put(sensor.getId(), sensor);
+                listener.deviceAdded(sensor);
+                notifyValues(sensor, Collections.<DataType, String> emptyMap(), listener);
+            } else if (isNewer(sensor.getLastUpdated(), known.getLastUpdated())) {
+                logger.debug("Update sensor {}, prev update {}, new update {}", sensor.getId(),
+                        known.getLastUpdated(), sensor.getLastUpdated());
+                Map<DataType, String> previousValues = getValues(known);
+                known.setData(sensor.getData());
+                known.setLastUpdated(sensor.getLastUpdated());
+                known.setOnline(sensor.getOnline());
+                notifyValues(known, previousValues, listener);
+            }
+        }
+    }
+
+    private void notifyValues(TellstickNetSensor sensor, Map<DataType, String> previousValues,
+            SyncListener listener) {
+        if (sensor.getData() == null) {
+            return;
+        }
+        long timestamp = sensor.getLastUpdated() != null ? sensor.getLastUpdated() * 1000
+                : System.currentTimeMillis();
+        for (DataTypeValue type : sensor.getData()) {
+            if (!Objects.equals(previousValues.get(type.getName()), type.getValue())) {
+                listener.deviceChanged(sensor, new TellstickSensorEvent(sensor.getId(), type.getValue(),
+                        type.getName(), sensor.getProtocol(), sensor.getModel(), timestamp));
+            }
+        }
+    }
+
+    private static Map<DataType, String> getValues(TellstickNetSensor sensor) {
+        Map<DataType, String> values = new HashMap<>();
+        if (sensor.getData() != null) {
+            for (DataTypeValue type : sensor.getData()) {
+                values.put(type.getName(), type.getValue());
+            }
+        }
+        return values;
+    }
+
+    private static boolean isNewer(Long lastUpdated, Long previousUpdate) {
+        if (lastUpdated == null) {
+            return false;
+        }
+        return previousUpdate == null || lastUpdated > previousUpdate;
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : Collections.<T> emptyList();
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tellstick.handler.live;
+
+import java.io.IOException;
+
+/**
+ * {@link TelldusLiveThrottledException} is used when Telldus Live rejects a request because of too many requests.
+ *
+ * @author agent
+ */
+public class TelldusLiveThrottledException extends TelldusLiveException {
+
+    private static final long serialVersionUID = -2271936734390425183L;
+
+    public TelldusLiveThrottledException(int statusCode, String statusText) {
+        super(new IOException("Telldus Live is throttling requests: " + statusCode + " " + statusText));
+    }
+}
@@ -95,6 +95,7 @@ public class ZWayBindingConstants {
     public static final String BRIDGE_CONFIG_ZWAY_SERVER_PASSWORD = "zwayServerPassword";
     public static final String BRIDGE_CONFIG_POLLING_INTERVAL = "pollingInterval";
     public static final String BRIDGE_CONFIG_OBSERVER_MECHANISM_ENABLED = "observerMechanismEnabled";
+    public static final String BRIDGE_CONFIG_PER_DEVICE_POLLING_ENABLED = "perDevicePollingEnabled";
 
     public static final String DEVICE_CONFIG_NODE_ID = "nodeId";
     public static final String DEVICE_CONFIG_VIRTUAL_DEVICE_ID = "deviceId";
@@ -33,6 +33,7 @@ public class ZWayBridgeConfiguration {
 
     private Integer pollingInterval;
     private Boolean observerMechanismEnabled;
+    private Boolean perDevicePollingEnabled;
 
     public String getOpenHabAlias() {
         return openHABAlias;
@@ -122,6 +123,14 @@ public class ZWayBridgeConfiguration {
         this.observerMechanismEnabled = observerMechanismEnabled;
     }
 
+    public Boolean getPerDevicePollingEnabled() {
+        return perDevicePollingEnabled;
+    }
+
+    public void setPerDevicePollingEnabled(Boolean perDevicePollingEnabled) {
+        this.perDevicePollingEnabled = perDevicePollingEnabled;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this).append(BRIDGE_CONFIG_OPENHAB_ALIAS, this.getOpenHabAlias())
@@ -134,6 +143,7 @@ public class ZWayBridgeConfiguration {
                 .append(BRIDGE_CONFIG_ZWAY_SERVER_USERNAME, this.getZWayUsername())
                 .append(BRIDGE_CONFIG_ZWAY_SERVER_PASSWORD, this.getZWayPassword())
                 .append(BRIDGE_CONFIG_POLLING_INTERVAL, this.getPollingInterval())
-                .append(BRIDGE_CONFIG_OBSERVER_MECHANISM_ENABLED, this.getObserverMechanismEnabled()).toString();
+                .append(BRIDGE_CONFIG_OBSERVER_MECHANISM_ENABLED, this.getObserverMechanismEnabled())
+                .append(BRIDGE_CONFIG_PER_DEVICE_POLLING_ENABLED, this.getPerDevicePollingEnabled()).toString();
     }
 }
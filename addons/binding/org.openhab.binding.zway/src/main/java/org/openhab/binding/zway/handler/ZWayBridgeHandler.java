@@ -10,7 +10,14 @@ package org.openhab.binding.zway.handler;
 
 import static org.openhab.binding.zway.ZWayBindingConstants.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -27,6 +34,7 @@ import org.eclipse.smarthome.core.thing.binding.BaseBridgeHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.openhab.binding.zway.config.ZWayBridgeConfiguration;
+import org.openhab.binding.zway.internal.ZWayIncrementalDeviceLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +72,9 @@ import de.fh_zwickau.informatik.sensor.model.zwaveapi.devices.ZWaveDevice;
  * - after update, perform refresh listener command to openHAB Connector
  * - initialize all containing device things
  *
+ * During the polling the virtual devices updated since the last polling are loaded with one request and passed to
+ * the device handlers registered for them (unless per device polling is enabled).
+ *
  * During the removal process the following tasks are performed:
  * - clean up openHAB Connector configuration
  * - important: the configured devices not changed in openHAB Connector!
@@ -84,6 +95,13 @@ public class ZWayBridgeHandler extends BaseBridgeHandler implements IZWayApiCall
 
     private ZWayBridgeConfiguration mConfig = null;
     private IZWayApi mZWayApi = null;
+    private ZWayIncrementalDeviceLoader mDeviceLoader = null;
+
+    /** device handlers by the ids of their virtual devices; guarded by itself */
+    private final Map<String, Set<ZWayDeviceHandler>> mDeviceHandlers = new HashMap<String, Set<ZWayDeviceHandler>>();
+
+    /** last polled state of the virtual devices, passed to device handlers registered later */
+    private final Map<String, Device> mDevices = new ConcurrentHashMap<String, Device>();
 
     /**
      * Initializer authenticate the Z-Way API instance with bridge configuration.
@@ -280,8 +298,13 @@ public class ZWayBridgeHandler extends BaseBridgeHandler implements IZWayApiCall
             if (mConfig.getOpenHabAlias() != null) {
                 logger.debug("Configuration complete: {}", mConfig);
 
-                mZWayApi = new ZWayApiHttp(mConfig.getZWayIpAddress(), mConfig.getZWayPort(), mConfig.getZWayProtocol(),
-                        mConfig.getZWayUsername(), mConfig.getZWayPassword(), -1, false, this);
+                ZWayApiHttp zwayApi = new ZWayApiHttp(mConfig.getZWayIpAddress(), mConfig.getZWayPort(),
+                        mConfig.getZWayProtocol(), mConfig.getZWayUsername(), mConfig.getZWayPassword(), -1, false,
+                        this);
+                mZWayApi = zwayApi;
+                if (!mConfig.getPerDevicePollingEnabled()) {
+                    mDeviceLoader = new ZWayIncrementalDeviceLoader(zwayApi, mConfig.getZWayProtocol(), this);
+                }
 
                 // Start an extra thread, because it takes sometimes more
                 // than 5000 milliseconds and the handler will suspend (ThingStatus.UNINITIALIZED).
@@ -304,6 +327,12 @@ public class ZWayBridgeHandler extends BaseBridgeHandler implements IZWayApiCall
             resetInclusionExclusionJob = null;
         }
 
+        if (mDeviceLoader != null) {
+            mDeviceLoader.dispose();
+            mDeviceLoader = null;
+        }
+        mDevices.clear();
+
         super.dispose();
     }
 
@@ -339,7 +368,16 @@ public class ZWayBridgeHandler extends BaseBridgeHandler implements IZWayApiCall
         public void run() {
             logger.debug("Starting polling for bridge: {}", getThing().getLabel());
             if (getThing().getStatus().equals(ThingStatus.ONLINE)) {
-                updateControllerData();
+                // https://community.openhab.org/t/oh2-major-bug-with-scheduled-jobs/12350/11
+                // If any execution of the task encounters an exception, subsequent executions are
+                // suppressed. Otherwise, the task will only terminate via cancellation or
+                // termination of the executor.
+                try {
+                    updateDevices();
+                    updateControllerData();
+                } catch (Throwable t) {
+                    logger.error("Error occurred when performing polling: {}", t.getMessage());
+                }
             } else {
                 logger.debug("Polling not possible, bridge isn't ONLINE");
             }
@@ -379,6 +417,87 @@ public class ZWayBridgeHandler extends BaseBridgeHandler implements IZWayApiCall
         }
     }
 
+    /**
+     * Loads the virtual devices updated since the last polling and passes them to the registered device handlers.
+     */
+    private void updateDevices() {
+        ZWayIncrementalDeviceLoader deviceLoader = mDeviceLoader;
+        if (deviceLoader == null) {
+            return; // per device polling enabled
+        }
+
+        DeviceList deviceList = deviceLoader.getUpdatedDevices();
+        if (deviceList == null) {
+            return;
+        }
+
+        logger.debug("Updated virtual devices loaded: {}", deviceList.getAllDevices().size());
+        for (Device device : deviceList.getAllDevices()) {
+            mDevices.put(device.getDeviceId(), device);
+
+            for (ZWayDeviceHandler handler : getDeviceHandlers(device.getDeviceId())) {
+                try {
+                    handler.deviceUpdated(device);
+                } catch (RuntimeException e) {
+                    logger.warn("Updating virtual device {} failed: {}", device.getDeviceId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<ZWayDeviceHandler> getDeviceHandlers(String deviceId) {
+        synchronized (mDeviceHandlers) {
+            Set<ZWayDeviceHandler> handlers = mDeviceHandlers.get(deviceId);
+            return handlers == null ? new ArrayList<ZWayDeviceHandler>() : new ArrayList<ZWayDeviceHandler>(handlers);
+        }
+    }
+
+    /**
+     * Registers a device handler for the virtual devices of its channels, so it gets the updates of the bridge
+     * polling. The last polled state of the devices is passed immediately.
+     *
+     * @param handler initialized device handler
+     */
+    protected void registerDeviceHandler(ZWayDeviceHandler handler) {
+        Set<String> deviceIds = handler.getDeviceIds();
+        synchronized (mDeviceHandlers) {
+            unregisterDeviceHandler(handler);
+            for (String deviceId : deviceIds) {
+                Set<ZWayDeviceHandler> handlers = mDeviceHandlers.get(deviceId);
+                if (handlers == null) {
+                    handlers = new HashSet<ZWayDeviceHandler>();
+                    mDeviceHandlers.put(deviceId, handlers);
+                }
+                handlers.add(handler);
+            }
+        }
+        logger.debug("Device handler registered for virtual devices: {}", deviceIds);
+
+        for (String deviceId : deviceIds) {
+            Device device = mDevices.get(deviceId);
+            if (device != null) {
+                handler.deviceUpdated(device);
+            }
+        }
+    }
+
+    private void unregisterDeviceHandler(ThingHandler handler) {
+        synchronized (mDeviceHandlers) {
+            Iterator<Set<ZWayDeviceHandler>> iterator = mDeviceHandlers.values().iterator();
+            while (iterator.hasNext()) {
+                Set<ZWayDeviceHandler> handlers = iterator.next();
+                if (handlers.remove(handler) && handlers.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void childHandlerDisposed(ThingHandler childHandler, Thing childThing) {
+        unregisterDeviceHandler(childHandler);
+    }
+
     /**
      * Inclusion/Exclusion must be reset manually, also channel states.
      */
@@ -560,6 +679,11 @@ public class ZWayBridgeHandler extends BaseBridgeHandler implements IZWayApiCall
             config.setObserverMechanismEnabled(true);
         }
 
+        // Per device polling enabled
+        if (config.getPerDevicePollingEnabled() == null) {
+            config.setPerDevicePollingEnabled(false);
+        }
+
         return config;
     }
 
@@ -585,6 +709,13 @@ public class ZWayBridgeHandler extends BaseBridgeHandler implements IZWayApiCall
     @Override
     public void getLoginResponse(String sessionId) {
         logger.debug("New session id: {}", sessionId);
+
+        // A new session may belong to a restarted server, so the next polling loads all devices again
+        ZWayIncrementalDeviceLoader deviceLoader = mDeviceLoader;
+        if (deviceLoader != null) {
+            deviceLoader.reset();
+        }
+
         updateStatus(ThingStatus.ONLINE);
     }
 
@@ -11,8 +11,11 @@ package org.openhab.binding.zway.handler;
 import static de.fh_zwickau.informatik.sensor.ZWayConstants.*;
 import static org.openhab.binding.zway.ZWayBindingConstants.*;
 
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -97,15 +100,20 @@ public abstract class ZWayDeviceHandler extends BaseThingHandler {
                     return;
                 }
 
-                // Initialize device polling
-                if (pollingJob == null || pollingJob.isCancelled()) {
-                    logger.debug("Starting polling job at intervall {}",
-                            zwayBridgeHandler.getZWayBridgeConfiguration().getPollingInterval());
-                    pollingJob = scheduler.scheduleAtFixedRate(devicePolling, 10,
-                            zwayBridgeHandler.getZWayBridgeConfiguration().getPollingInterval(), TimeUnit.SECONDS);
+                if (zwayBridgeHandler.getZWayBridgeConfiguration().getPerDevicePollingEnabled()) {
+                    // Initialize device polling
+                    if (pollingJob == null || pollingJob.isCancelled()) {
+                        logger.debug("Starting polling job at intervall {}",
+                                zwayBridgeHandler.getZWayBridgeConfiguration().getPollingInterval());
+                        pollingJob = scheduler.scheduleAtFixedRate(devicePolling, 10,
+                                zwayBridgeHandler.getZWayBridgeConfiguration().getPollingInterval(), TimeUnit.SECONDS);
+                    } else {
+                        // Called when thing or bridge updated ...
+                        logger.debug("Polling is allready active");
+                    }
                 } else {
-                    // Called when thing or bridge updated ...
-                    logger.debug("Polling is allready active");
+                    // Updated devices are polled by the bridge
+                    zwayBridgeHandler.registerDeviceHandler(ZWayDeviceHandler.this);
                 }
 
                 // Register all linked items on server start
@@ -303,6 +311,61 @@ public abstract class ZWayDeviceHandler extends BaseThingHandler {
         scheduler.execute(new DevicePolling());
     }
 
+    /**
+     * @return ids of all virtual devices associated with the channels of this thing
+     */
+    protected Set<String> getDeviceIds() {
+        Set<String> deviceIds = new HashSet<String>();
+        for (Channel channel : getThing().getChannels()) {
+            String deviceId = channel.getProperties().get("deviceId");
+            if (deviceId != null) {
+                deviceIds.add(deviceId);
+            }
+        }
+        return deviceIds;
+    }
+
+    /**
+     * Called by the bridge polling for an updated virtual device. Only the channels associated with the device are
+     * updated, no further requests to the Z-Way server are necessary (except for the thermostat mode channel).
+     *
+     * @param device updated virtual device
+     */
+    protected void deviceUpdated(Device device) {
+        if (!getThing().getStatus().equals(ThingStatus.ONLINE)) {
+            logger.debug("Update not possible, Z-Way device isn't ONLINE");
+            return;
+        }
+
+        logger.debug("Updating channels of virtual device: {}", device.getDeviceId());
+        for (Channel channel : getThing().getChannels()) {
+            if (device.getDeviceId().equals(channel.getProperties().get("deviceId"))
+                    && isLinked(channel.getUID().getId())) {
+                updateChannelState(channel, device);
+            }
+        }
+
+        // The thermostat mode is only available by the Z-Wave API, changes are expected along with the thermostat
+        if (device instanceof Thermostat) {
+            Channel channel = getThing().getChannel(THERMOSTAT_MODE_CC_CHANNEL);
+            if (channel != null && isLinked(channel.getUID().getId())) {
+                refreshChannel(channel);
+            }
+        }
+
+        if (device.getUpdateTime() != null) {
+            Calendar lastUpdateOfDevice = Calendar.getInstance();
+            lastUpdateOfDevice.setTimeInMillis(device.getUpdateTime().longValue() * 1000);
+
+            if (lastUpdate == null || lastUpdateOfDevice.after(lastUpdate)) {
+                lastUpdate = lastUpdateOfDevice;
+
+                DateFormat formatter = new SimpleDateFormat("dd.MM.yyyy hh:mm:ss");
+                updateProperty(DEVICE_PROP_LAST_UPDATE, formatter.format(lastUpdate.getTime()));
+            }
+        }
+    }
+
     private void refreshChannel(Channel channel) {
         // Check Z-Way bridge handler
         ZWayBridgeHandler zwayBridgeHandler = getZWayBridgeHandler();
@@ -324,19 +387,7 @@ public abstract class ZWayDeviceHandler extends BaseThingHandler {
                     return;
                 }
 
-                try {
-                    updateState(channel.getUID(), ZWayDeviceStateConverter.toState(device, channel));
-                } catch (IllegalArgumentException iae) {
-                    logger.debug(
-                            "IllegalArgumentException ({}) during refresh channel for device: {} (level: {}) with channel: {}",
-                            iae.getMessage(), device.getMetrics().getTitle(), device.getMetrics().getLevel(),
-                            channel.getChannelTypeUID());
-
-                    updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.NONE,
-                            "Channel refresh for device: " + device.getMetrics().getTitle() + " (level: "
-                                    + device.getMetrics().getLevel() + ") with channel: " + channel.getChannelTypeUID()
-                                    + " failed!");
-                }
+                updateChannelState(channel, device);
                 // 2.) Trigger update function, soon as the value has been updated, openHAB will be notified
                 try {
                     device.update();
@@ -363,6 +414,22 @@ public abstract class ZWayDeviceHandler extends BaseThingHandler {
         }
     }
 
+    private void updateChannelState(Channel channel, Device device) {
+        try {
+            updateState(channel.getUID(), ZWayDeviceStateConverter.toState(device, channel));
+        } catch (IllegalArgumentException iae) {
+            logger.debug(
+                    "IllegalArgumentException ({}) during refresh channel for device: {} (level: {}) with channel: {}",
+                    iae.getMessage(), device.getMetrics().getTitle(), device.getMetrics().getLevel(),
+                    channel.getChannelTypeUID());
+
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.NONE,
+                    "Channel refresh for device: " + device.getMetrics().getTitle() + " (level: "
+                            + device.getMetrics().getLevel() + ") with channel: " + channel.getChannelTypeUID()
+                            + " failed!");
+        }
+    }
+
     @Override
     public void channelLinked(ChannelUID channelUID) {
         logger.debug("Z-Way device channel linked: {}", channelUID);
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zway.internal;
+
+import java.net.HttpCookie;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpResponseException;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import de.fh_zwickau.informatik.sensor.IZWayApiCallbacks;
+import de.fh_zwickau.informatik.sensor.ZWayApiHttp;
+import de.fh_zwickau.informatik.sensor.model.devices.DeviceList;
+import de.fh_zwickau.informatik.sensor.model.devices.DeviceListDeserializer;
+
+/**
+ * The {@link ZWayIncrementalDeviceLoader} loads the virtual devices of the Z-Way server incrementally. It uses the
+ * <code>since</code> parameter of the ZAutomation devices resource, so every request returns only the devices updated
+ * after the previous request. The first request returns all devices.
+ *
+ * The Z-Way API library doesn't support the parameter, so the request is sent with the session of the given API
+ * instance and the response is deserialized by the library.
+ *
+ * @author agent - Initial contribution
+ */
+public class ZWayIncrementalDeviceLoader {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int HTTP_CLIENT_TIMEOUT = 5000;
+
+    private final ZWayApiHttp mZWayApi;
+    private final IZWayApiCallbacks mCaller;
+    private final HttpClient mHttpClient;
+
+    private long mSince = 0;
+
+    /**
+     * @param zwayApi authenticated Z-Way API instance, used for the session and the device commands
+     * @param protocol protocol to connect to the Z-Way server (http or https)
+     * @param caller receives the errors like the callbacks of the Z-Way API
+     */
+    public ZWayIncrementalDeviceLoader(ZWayApiHttp zwayApi, String protocol, IZWayApiCallbacks caller) {
+        mZWayApi = zwayApi;
+        mCaller = caller;
+
+        if ("https".equals(protocol)) {
+            mHttpClient = new HttpClient(new SslContextFactory());
+        } else {
+            mHttpClient = new HttpClient();
+        }
+        mHttpClient.setConnectTimeout(HTTP_CLIENT_TIMEOUT);
+    }
+
+    /**
+     * Loads the devices updated since the last successful call.
+     *
+     * @return updated devices or null if the request failed (the next call requests the same period again)
+     */
+    public synchronized DeviceList getUpdatedDevices() {
+        try {
+            if (!mHttpClient.isStarted()) {
+                mHttpClient.start();
+            }
+
+            ContentResponse response = sendRequest();
+            if (response == null) {
+                logger.debug("Z-Way session expired, login again");
+                if (mZWayApi.getLogin() == null) {
+                    mCaller.authenticationError();
+                    return null;
+                }
+                response = sendRequest();
+                if (response == null) {
+                    mCaller.authenticationError();
+                    return null;
+                }
+            }
+
+            if (response.getStatus() != HttpStatus.OK_200) {
+                mCaller.httpStatusError(response.getStatus(), "Loading updated devices failed", true);
+                return null;
+            }
+
+            return parseResponse(response.getContentAsString());
+        } catch (Exception e) {
+            logger.warn("Request for updated devices failed: {}", e.getMessage());
+            mCaller.apiError(e.getMessage(), true);
+            return null;
+        }
+    }
+
+    /**
+     * The next call of {@link #getUpdatedDevices()} returns all devices again.
+     */
+    public synchronized void reset() {
+        mSince = 0;
+    }
+
+    public synchronized void dispose() {
+        try {
+            mHttpClient.stop();
+        } catch (Exception e) {
+            logger.debug("Stopping HTTP client failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return response or null if the session isn't valid anymore
+     */
+    private ContentResponse sendRequest() throws Exception {
+        String url = mZWayApi.getTopLevelUrl() + "/ZAutomation/api/v1/devices?since=" + mSince;
+        logger.debug("Loading updated devices: {}", url);
+
+        Request request = mHttpClient.newRequest(url).method(HttpMethod.GET)
+                .header(HttpHeader.ACCEPT, "application/json").header(HttpHeader.CONTENT_TYPE, "application/json")
+                .timeout(HTTP_CLIENT_TIMEOUT, TimeUnit.MILLISECONDS)
+                .cookie(new HttpCookie("ZWAYSession", mZWayApi.getZWaySessionId()));
+        if (mZWayApi.getZWayRemoteSessionId() != null) {
+            request.cookie(new HttpCookie("ZBW_SESSID", mZWayApi.getZWayRemoteSessionId()));
+        }
+
+        try {
+            ContentResponse response = request.send();
+            return response.getStatus() == HttpStatus.UNAUTHORIZED_401 ? null : response;
+        } catch (ExecutionException e) {
+            // Z-Way answers 401 without authentication challenge, which is reported as exception by Jetty
+            if (e.getCause() instanceof HttpResponseException && ((HttpResponseException) e.getCause()).getResponse()
+                    .getStatus() == HttpStatus.UNAUTHORIZED_401) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private DeviceList parseResponse(String content) {
+        try {
+            JsonElement root = new JsonParser().parse(content);
+            JsonElement data = root.isJsonObject() ? root.getAsJsonObject().get("data") : null;
+            JsonElement devices = data != null && data.isJsonObject() ? data.getAsJsonObject().get("devices") : null;
+            if (devices == null || !devices.isJsonArray()) {
+                logger.warn("Unexpected response format: devices missing");
+                mCaller.responseFormatError("Unexpected response format: devices missing", false);
+                return null;
+            }
+
+            DeviceList deviceList = new DeviceListDeserializer().deserializeDeviceList(devices.getAsJsonArray(),
+                    mZWayApi);
+
+            // The update time is the server time of the response, so the next request doesn't depend on the clocks
+            JsonElement updateTime = data.getAsJsonObject().get("updateTime");
+            if (updateTime != null && updateTime.isJsonPrimitive()) {
+                mSince = updateTime.getAsLong();
+            }
+
+            return deviceList;
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            logger.warn("Unexpected response format: {}", e.getMessage());
+            mCaller.responseFormatError("Unexpected response format: " + e.getMessage(), false);
+            return null;
+        }
+    }
+}
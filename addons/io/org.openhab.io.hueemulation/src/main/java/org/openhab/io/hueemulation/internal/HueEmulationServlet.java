@@ -19,7 +19,6 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -31,7 +30,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.events.EventPublisher;
 import org.eclipse.smarthome.core.items.Item;
@@ -91,11 +89,14 @@ public class HueEmulationServlet extends HttpServlet {
     private String udn;
     private String xmlDoc;
     private CopyOnWriteArrayList<String> userNames = new CopyOnWriteArrayList<String>();
+    private final TaggedItemIndex itemIndex = new TaggedItemIndex(SUPPORTED_TAGS);
+    private volatile JsonSnapshot snapshot;
 
     private boolean pairingEnabled = false;
 
     protected void activate(Map<String, Object> config) {
         modified(config);
+        itemIndex.start(itemRegistry);
         try {
             Dictionary<String, String> servletParams = new Hashtable<String, String>();
             httpService.registerServlet(PATH, this, servletParams, httpService.createDefaultHttpContext());
@@ -151,6 +152,8 @@ public class HueEmulationServlet extends HttpServlet {
         if (disco != null) {
             disco.shutdown();
         }
+        itemIndex.stop();
+        snapshot = null;
     }
 
     protected void setItemRegistry(ItemRegistry itemRegistry) {
@@ -363,7 +366,7 @@ public class HueEmulationServlet extends HttpServlet {
      */
     public void apiLights(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         PrintWriter out = resp.getWriter();
-        out.write(gson.toJson(getHueDeviceNames()));
+        out.write(getSnapshot().getDeviceNames());
         out.close();
     }
 
@@ -376,9 +379,7 @@ public class HueEmulationServlet extends HttpServlet {
      */
     public void apiGroupZero(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         PrintWriter out = resp.getWriter();
-        String[] lights = getHueDeviceNames().keySet().toArray(new String[0]);
-        HueState action = new HueState();
-        out.write(gson.toJson(new HueGroup("0", lights, action)));
+        out.write(getSnapshot().getGroupZero());
         out.close();
     }
 
@@ -391,9 +392,7 @@ public class HueEmulationServlet extends HttpServlet {
      */
     public void apiDataStore(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         PrintWriter out = resp.getWriter();
-        HueDataStore ds = new HueDataStore();
-        ds.lights = getHueDevices();
-        out.write(gson.toJson(ds));
+        out.write(getSnapshot().getDataStore());
     }
 
     /**
@@ -544,16 +543,22 @@ public class HueEmulationServlet extends HttpServlet {
      * @return
      */
     private Collection<Item> getTaggedItems() {
-        Collection<Item> items = new LinkedList<Item>();
-        for (Item item : itemRegistry.getItems()) {
-            for (String tag : item.getTags()) {
-                if (ArrayUtils.contains(SUPPORTED_TAGS, tag)) {
-                    items.add(item);
-                    break;
-                }
-            }
+        return itemIndex.getItems();
+    }
+
+    /**
+     * Returns the JSON responses for the current version of the tagged items
+     *
+     * @return
+     */
+    private JsonSnapshot getSnapshot() {
+        long version = itemIndex.getVersion();
+        JsonSnapshot current = snapshot;
+        if (current == null || current.version != version) {
+            current = new JsonSnapshot(version);
+            snapshot = current;
         }
-        return items;
+        return current;
     }
 
     /**
@@ -636,4 +641,52 @@ public class HueEmulationServlet extends HttpServlet {
     public boolean getPairingEnabled() {
         return pairingEnabled;
     }
+
+    /**
+     * JSON responses of one version of the tagged items, each response is serialized on first use
+     *
+     * @author agent
+     *
+     */
+    private class JsonSnapshot {
+        private final long version;
+        private volatile String deviceNames;
+        private volatile String groupZero;
+        private volatile String dataStore;
+
+        JsonSnapshot(long version) {
+            this.version = version;
+        }
+
+        String getDeviceNames() {
+            String json = deviceNames;
+            if (json == null) {
+                json = gson.toJson(getHueDeviceNames());
+                deviceNames = json;
+            }
+            return json;
+        }
+
+        String getGroupZero() {
+            String json = groupZero;
+            if (json == null) {
+                String[] lights = getHueDeviceNames().keySet().toArray(new String[0]);
+                HueState action = new HueState();
+                json = gson.toJson(new HueGroup("0", lights, action));
+                groupZero = json;
+            }
+            return json;
+        }
+
+        String getDataStore() {
+            String json = dataStore;
+            if (json == null) {
+                HueDataStore ds = new HueDataStore();
+                ds.lights = getHueDevices();
+                json = gson.toJson(ds);
+                dataStore = json;
+            }
+            return json;
+        }
+    }
 }
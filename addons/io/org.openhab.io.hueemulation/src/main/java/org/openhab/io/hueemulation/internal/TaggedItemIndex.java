@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.hueemulation.internal;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.core.items.GenericItem;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.items.ItemRegistryChangeListener;
+import org.eclipse.smarthome.core.items.StateChangeListener;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * Keeps the items with a supported tag up to date, so requests don't have to scan the item registry. The version is
+ * increased whenever a tagged item is added, removed, updated or changes its state.
+ *
+ * @author agent
+ *
+ */
+public class TaggedItemIndex implements ItemRegistryChangeListener, StateChangeListener {
+    private final String[] supportedTags;
+    private final Map<String, Item> items = new ConcurrentHashMap<String, Item>();
+    private final AtomicLong version = new AtomicLong();
+    private ItemRegistry itemRegistry;
+
+    public TaggedItemIndex(String... supportedTags) {
+        this.supportedTags = supportedTags;
+    }
+
+    /**
+     * Starts listening to the item registry and indexes all its items
+     *
+     * @param itemRegistry
+     */
+    public void start(ItemRegistry itemRegistry) {
+        this.itemRegistry = itemRegistry;
+        itemRegistry.addRegistryChangeListener(this);
+        allItemsChanged(null);
+    }
+
+    /**
+     * Stops listening to the item registry and all indexed items
+     */
+    public void stop() {
+        if (itemRegistry != null) {
+            itemRegistry.removeRegistryChangeListener(this);
+            itemRegistry = null;
+        }
+        for (Item item : items.values()) {
+            unlisten(item);
+        }
+        items.clear();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns all items that have a supported tag
+     *
+     * @return
+     */
+    public Collection<Item> getItems() {
+        return items.values();
+    }
+
+    /**
+     * Returns the version of the index, which changes with every change of a tagged item
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public void added(Item element) {
+        if (isTagged(element)) {
+            Item old = items.put(element.getName(), element);
+            if (old != null) {
+                unlisten(old);
+            }
+            if (element instanceof GenericItem) {
+                ((GenericItem) element).addStateChangeListener(this);
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void removed(Item element) {
+        Item old = items.remove(element.getName());
+        if (old != null) {
+            unlisten(old);
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void updated(Item oldElement, Item element) {
+        removed(oldElement);
+        added(element);
+    }
+
+    @Override
+    public synchronized void allItemsChanged(Collection<String> oldItemNames) {
+        for (Item item : items.values()) {
+            unlisten(item);
+        }
+        items.clear();
+        ItemRegistry registry = itemRegistry;
+        if (registry != null) {
+            for (Item item : registry.getItems()) {
+                added(item);
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void stateChanged(Item item, State oldState, State newState) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void stateUpdated(Item item, State state) {
+        // only changes are relevant
+    }
+
+    private boolean isTagged(Item item) {
+        for (String tag : supportedTags) {
+            if (item.getTags().contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void unlisten(Item item) {
+        if (item instanceof GenericItem) {
+            ((GenericItem) item).removeStateChangeListener(this);
+        }
+    }
+}
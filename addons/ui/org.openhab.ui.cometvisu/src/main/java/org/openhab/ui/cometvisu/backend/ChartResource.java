@@ -8,15 +8,22 @@
  */
 package org.openhab.ui.cometvisu.backend;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -31,6 +38,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.eclipse.smarthome.core.items.GroupItem;
@@ -79,6 +87,24 @@ public class ChartResource implements RESTResource {
         // df.setPositivePrefix("+");
     }
 
+    // downsampled series with more values are streamed to the client instead of being cached
+    private static final int MAX_CACHED_VALUES = 10000;
+
+    // time in milliseconds a downsampled series is reused for identical requests
+    private static final long CACHE_TTL = 30000;
+
+    private static final int CACHE_SIZE = 32;
+
+    private final Map<String, CachedSeries> seriesCache = new LinkedHashMap<String, CachedSeries>(CACHE_SIZE, 0.75f,
+            true) {
+        private static final long serialVersionUID = -5310946741232361848L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSeries> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     protected static Map<String, QueryablePersistenceService> persistenceServices = new HashMap<String, QueryablePersistenceService>();
 
     private ItemRegistry itemRegistry;
@@ -112,12 +138,21 @@ public class ChartResource implements RESTResource {
     @Produces({ MediaType.APPLICATION_JSON })
     public Response getChartSeries(@Context HttpHeaders headers, @QueryParam("rrd") String itemName,
             @QueryParam("ds") String consFunction, @QueryParam("start") String start, @QueryParam("end") String end,
-            @QueryParam("res") long resolution) {
+            @QueryParam("res") long resolution, @QueryParam("downsampling") String downsampling) {
         if (logger.isDebugEnabled()) {
             logger.debug("Received GET request at '{}' for rrd '{}'.", uriInfo.getPath(), itemName);
         }
         String responseType = MediaType.APPLICATION_JSON;
 
+        // panels showing the same chart request identical series
+        String cacheKey = itemName + "|" + consFunction + "|" + start + "|" + end + "|" + resolution + "|"
+                + downsampling;
+        byte[] cachedSeries = getCachedSeries(cacheKey);
+        if (cachedSeries != null) {
+            logger.debug("series for '{}' served from cache", itemName);
+            return Response.ok(cachedSeries, responseType).build();
+        }
+
         // RRD specific: no equivalent in PersistenceService known
         ConsolFun consilidationFunction = ConsolFun.valueOf(consFunction);
 
@@ -159,9 +194,17 @@ public class ChartResource implements RESTResource {
             }
             Object data = null;
             if (persistenceService.getId().equals("rrd4j")) {
-                data = getRrdSeries(persistenceService, item, consilidationFunction, startTime, endTime, resolution);
+                data = getRrdSeries(persistenceService, item, consilidationFunction, startTime, endTime, resolution,
+                        downsampling);
             } else {
-                data = getPersistenceSeries(persistenceService, item, startTime, endTime, resolution);
+                data = getPersistenceSeries(persistenceService, item, consilidationFunction, startTime, endTime,
+                        resolution, downsampling);
+            }
+            if (data == null) {
+                return Response.serverError().build();
+            }
+            if (data instanceof byte[]) {
+                putCachedSeries(cacheKey, (byte[]) data);
             }
             return Response.ok(data, responseType).build();
         } catch (ItemNotFoundException e1) {
@@ -171,10 +214,58 @@ public class ChartResource implements RESTResource {
         return Response.serverError().build();
     }
 
-    public Object getPersistenceSeries(QueryablePersistenceService persistenceService, Item item, Date timeBegin,
-            Date timeEnd, long resolution) {
-        Map<Long, ArrayList<String>> data = new HashMap<Long, ArrayList<String>>();
+    /**
+     * returns the series of a persistence service, an array of [[timestamp,data]]. If a resolution is given, the
+     * values are downsampled to one value per resolution interval.
+     *
+     * @param persistenceService
+     * @param item
+     * @param consilidationFunction
+     *            - used to reduce the values of one interval, if no downsampling is given
+     * @param timeBegin
+     * @param timeEnd
+     * @param resolution
+     *            - the interval in seconds, 0 returns all values
+     * @param downsampling
+     *            - optional downsampling function: average, min, max, first, last, total or lttb
+     * @return the series as JSON, a byte[] for downsampled series, otherwise a {@link StreamingOutput} which
+     *         queries the persistence service while writing the response. Null, if a downsampled series can't be
+     *         read.
+     */
+    public Object getPersistenceSeries(final QueryablePersistenceService persistenceService, final Item item,
+            ConsolFun consilidationFunction, final Date timeBegin, final Date timeEnd, long resolution,
+            String downsampling) {
+        final long resolutionMillis = Math.max(0, resolution) * 1000L;
+        final ChartSeriesWriter.Downsampling function = ChartSeriesWriter.Downsampling.from(consilidationFunction,
+                downsampling);
+
+        StreamingOutput output = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                writePersistenceSeries(outputStream, persistenceService, item, timeBegin, timeEnd, resolutionMillis,
+                        function);
+            }
+        };
+
+        if (resolutionMillis > 0
+                && (timeEnd.getTime() - timeBegin.getTime()) / resolutionMillis < MAX_CACHED_VALUES) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try {
+                output.write(bos);
+            } catch (IOException e) {
+                logger.error("error reading series of '{}': {}", item.getName(), e.getLocalizedMessage());
+                // a partially written series is no valid JSON and must not be cached
+                return null;
+            }
+            return bos.toByteArray();
+        }
+        return output;
+    }
 
+    private void writePersistenceSeries(OutputStream outputStream, QueryablePersistenceService persistenceService,
+            Item item, Date timeBegin, Date timeEnd, long resolution, ChartSeriesWriter.Downsampling function)
+            throws IOException {
         // Define the data filter
         FilterCriteria filter = new FilterCriteria();
         filter.setBeginDate(timeBegin);
@@ -182,25 +273,40 @@ public class ChartResource implements RESTResource {
         filter.setItemName(item.getName());
         filter.setOrdering(Ordering.ASCENDING);
 
-        // Get the data from the persistence store
-        Iterable<HistoricItem> result = persistenceService.query(filter);
-        Iterator<HistoricItem> it = result.iterator();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        ChartSeriesWriter seriesWriter = new ChartSeriesWriter(writer, timeBegin.getTime(), resolution, function);
+        seriesWriter.begin();
 
-        // Iterate through the data
-        int dataCounter = 0;
-        while (it.hasNext()) {
-            dataCounter++;
-            HistoricItem historicItem = it.next();
+        // Get the data from the persistence store and write it while iterating through it
+        for (HistoricItem historicItem : persistenceService.query(filter)) {
             org.eclipse.smarthome.core.types.State state = historicItem.getState();
             if (state instanceof DecimalType) {
-                ArrayList<String> vals = new ArrayList<String>();
-                vals.add(formatDouble(((DecimalType) state).doubleValue(), "null", true));
-                data.put(historicItem.getTimestamp().getTime(), vals);
+                seriesWriter.add(historicItem.getTimestamp().getTime(), ((DecimalType) state).doubleValue());
             }
         }
+        seriesWriter.end();
         logger.debug("'{}' querying item '{}' from '{}' to '{}' => '{}' results", persistenceService.getId(),
-                filter.getItemName(), filter.getBeginDate(), filter.getEndDate(), dataCounter);
-        return convertToRrd(data);
+                filter.getItemName(), filter.getBeginDate(), filter.getEndDate(), seriesWriter.getCount());
+    }
+
+    private byte[] getCachedSeries(String cacheKey) {
+        synchronized (seriesCache) {
+            CachedSeries cachedSeries = seriesCache.get(cacheKey);
+            if (cachedSeries == null) {
+                return null;
+            }
+            if (cachedSeries.expires < System.currentTimeMillis()) {
+                seriesCache.remove(cacheKey);
+                return null;
+            }
+            return cachedSeries.data;
+        }
+    }
+
+    private void putCachedSeries(String cacheKey, byte[] data) {
+        synchronized (seriesCache) {
+            seriesCache.put(cacheKey, new CachedSeries(data, System.currentTimeMillis() + CACHE_TTL));
+        }
     }
 
     /**
@@ -212,10 +318,12 @@ public class ChartResource implements RESTResource {
      * @param timeBegin
      * @param timeEnd
      * @param resolution
+     * @param downsampling
+     *            - downsampling function used, if the series is read from the persistence service instead
      * @return
      */
     public Object getRrdSeries(QueryablePersistenceService persistenceService, Item item,
-            ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution) {
+            ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution, String downsampling) {
         Map<Long, ArrayList<String>> data = new TreeMap<Long, ArrayList<String>>();
         try {
             List<String> itemNames = new ArrayList<String>();
@@ -235,10 +343,12 @@ public class ChartResource implements RESTResource {
         } catch (FileNotFoundException e) {
             // rrd file does not exist, fallback to generic persistance service
             logger.debug("no rrd file found '{}'", (RRD_FOLDER + File.separator + item.getName() + ".rrd"));
-            return getPersistenceSeries(persistenceService, item, timeBegin, timeEnd, resolution);
+            return getPersistenceSeries(persistenceService, item, consilidationFunction, timeBegin, timeEnd,
+                    resolution, downsampling);
         } catch (Exception e) {
             logger.error("{}: fallback to generic persistance service", e.getLocalizedMessage());
-            return getPersistenceSeries(persistenceService, item, timeBegin, timeEnd, resolution);
+            return getPersistenceSeries(persistenceService, item, consilidationFunction, timeBegin, timeEnd,
+                    resolution, downsampling);
         }
         return convertToRrd(data);
     }
@@ -296,4 +406,17 @@ public class ChartResource implements RESTResource {
         }
         return "" + x;
     }
+
+    /**
+     * serialized series with its expiry time
+     */
+    private static class CachedSeries {
+        private final byte[] data;
+        private final long expires;
+
+        CachedSeries(byte[] data, long expires) {
+            this.data = data;
+            this.expires = expires;
+        }
+    }
 }
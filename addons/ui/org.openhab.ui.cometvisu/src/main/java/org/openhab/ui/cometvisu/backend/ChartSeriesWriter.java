@@ -0,0 +1,282 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.backend;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+
+import org.rrd4j.ConsolFun;
+
+/**
+ * Writes a chart series as JSON array of [[timestamp,["value"]],...] while the values are read from the persistence
+ * service. If a resolution is given, the values are grouped into buckets of that size and every bucket is written as
+ * one value, so only the values of the current buckets are held in memory.
+ *
+ * @author agent
+ * @since 2.2.0
+ */
+class ChartSeriesWriter {
+
+    /**
+     * function used to reduce the values of one bucket
+     */
+    enum Downsampling {
+        AVERAGE,
+        MIN,
+        MAX,
+        FIRST,
+        LAST,
+        TOTAL,
+        LTTB;
+
+        /**
+         * @param consolidationFunction
+         *            - the consolidation function requested by the client
+         * @param downsampling
+         *            - optional name of the downsampling, overrides the consolidation function
+         */
+        static Downsampling from(ConsolFun consolidationFunction, String downsampling) {
+            if (downsampling != null) {
+                for (Downsampling value : values()) {
+                    if (value.name().equalsIgnoreCase(downsampling)) {
+                        return value;
+                    }
+                }
+            }
+            return valueOf(consolidationFunction.name());
+        }
+    }
+
+    private final Writer writer;
+    private final DecimalFormat format = (DecimalFormat) ChartResource.df.clone();
+    private final long timeBegin;
+    private final long resolution;
+    private final Downsampling downsampling;
+
+    private boolean firstEntry = true;
+    private int count;
+
+    private long bucket = -1;
+    private Bucket current = new Bucket();
+
+    // LTTB: the bucket a value is selected from, once the average of the following bucket is known
+    private Bucket previous = new Bucket();
+    private long selectedTime;
+    private double selectedValue;
+    private boolean hasSelected;
+
+    /**
+     * @param writer
+     *            - the JSON is written to this writer
+     * @param timeBegin
+     *            - start of the series in milliseconds
+     * @param resolution
+     *            - size of one bucket in milliseconds, 0 writes all values
+     * @param downsampling
+     *            - the function used to reduce the values of one bucket
+     */
+    ChartSeriesWriter(Writer writer, long timeBegin, long resolution, Downsampling downsampling) {
+        this.writer = writer;
+        this.timeBegin = timeBegin;
+        this.resolution = resolution;
+        this.downsampling = downsampling;
+    }
+
+    void begin() throws IOException {
+        writer.write('[');
+    }
+
+    /**
+     * adds the next value of the series, values must be added in ascending order of their timestamps
+     */
+    void add(long time, double value) throws IOException {
+        count++;
+        if (resolution <= 0) {
+            writeEntry(time, value);
+            return;
+        }
+        long valueBucket = Math.max(0, (time - timeBegin) / resolution);
+        if (valueBucket != bucket) {
+            closeBucket();
+            bucket = valueBucket;
+        }
+        if (downsampling == Downsampling.LTTB && !hasSelected) {
+            // the first value is always part of the series
+            selectedTime = time;
+            selectedValue = value;
+            hasSelected = true;
+            writeEntry(time, value);
+            return;
+        }
+        current.add(time, value, downsampling == Downsampling.LTTB);
+    }
+
+    /**
+     * writes the remaining buckets and closes the JSON array
+     */
+    void end() throws IOException {
+        closeBucket();
+        if (downsampling == Downsampling.LTTB && !previous.isEmpty()) {
+            // the last value is always part of the series
+            int last = previous.size - 1;
+            if (previous.size > 1) {
+                selectLargestTriangle(previous, last, previous.times[last], previous.values[last]);
+            }
+            writeEntry(previous.times[last], previous.values[last]);
+        }
+        writer.write(']');
+        writer.flush();
+    }
+
+    /**
+     * @return the number of values added
+     */
+    int getCount() {
+        return count;
+    }
+
+    private void closeBucket() throws IOException {
+        if (current.isEmpty()) {
+            return;
+        }
+        switch (downsampling) {
+            case AVERAGE:
+                writeEntry(Math.round(current.timeSum / current.size), current.valueSum / current.size);
+                break;
+            case TOTAL:
+                writeEntry(Math.round(current.timeSum / current.size), current.valueSum);
+                break;
+            case MIN:
+                writeEntry(current.minTime, current.min);
+                break;
+            case MAX:
+                writeEntry(current.maxTime, current.max);
+                break;
+            case FIRST:
+                writeEntry(current.firstTime, current.first);
+                break;
+            case LAST:
+                writeEntry(current.lastTime, current.last);
+                break;
+            case LTTB:
+                if (!previous.isEmpty()) {
+                    selectLargestTriangle(previous, previous.size, current.timeSum / current.size,
+                            current.valueSum / current.size);
+                }
+                Bucket completed = current;
+                current = previous;
+                previous = completed;
+                break;
+        }
+        current.clear();
+    }
+
+    /**
+     * writes the value of the bucket which forms the largest triangle with the last selected value and the average
+     * of the following bucket
+     */
+    private void selectLargestTriangle(Bucket candidates, int size, double nextTime, double nextValue)
+            throws IOException {
+        double ax = selectedTime - timeBegin;
+        double ay = selectedValue;
+        double cx = nextTime - timeBegin;
+        double maxArea = -1;
+        int selected = 0;
+        for (int i = 0; i < size; i++) {
+            double area = Math.abs((ax - cx) * (candidates.values[i] - ay)
+                    - (ax - (candidates.times[i] - timeBegin)) * (nextValue - ay));
+            if (area > maxArea) {
+                maxArea = area;
+                selected = i;
+            }
+        }
+        selectedTime = candidates.times[selected];
+        selectedValue = candidates.values[selected];
+        writeEntry(selectedTime, selectedValue);
+    }
+
+    private void writeEntry(long time, double value) throws IOException {
+        if (firstEntry) {
+            firstEntry = false;
+        } else {
+            writer.write(',');
+        }
+        writer.write('[');
+        writer.write(Long.toString(time));
+        writer.write(",[\"");
+        writer.write(Double.isNaN(value) ? "null" : format.format(value));
+        writer.write("\"]]");
+    }
+
+    /**
+     * values of one bucket
+     */
+    private static class Bucket {
+        private long[] times = new long[16];
+        private double[] values = new double[16];
+        private int size;
+
+        private double timeSum;
+        private double valueSum;
+        private long firstTime;
+        private double first;
+        private long lastTime;
+        private double last;
+        private long minTime;
+        private double min;
+        private long maxTime;
+        private double max;
+
+        void add(long time, double value, boolean keepValues) {
+            if (size == 0) {
+                firstTime = time;
+                first = value;
+                minTime = time;
+                min = value;
+                maxTime = time;
+                max = value;
+            } else if (value < min) {
+                minTime = time;
+                min = value;
+            } else if (value > max) {
+                maxTime = time;
+                max = value;
+            }
+            lastTime = time;
+            last = value;
+            timeSum += time;
+            valueSum += value;
+            size++;
+            if (!keepValues) {
+                return;
+            }
+            if (size > times.length) {
+                long[] newTimes = new long[size * 2];
+                double[] newValues = new double[size * 2];
+                System.arraycopy(times, 0, newTimes, 0, times.length);
+                System.arraycopy(values, 0, newValues, 0, values.length);
+                times = newTimes;
+                values = newValues;
+            }
+            times[size - 1] = time;
+            values[size - 1] = value;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+            timeSum = 0;
+            valueSum = 0;
+        }
+    }
+}
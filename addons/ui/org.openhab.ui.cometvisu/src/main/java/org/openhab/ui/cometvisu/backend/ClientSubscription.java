@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.smarthome.core.types.State;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.openhab.ui.cometvisu.backend.beans.StateBean;
+
+/**
+ * Subscription of one connected CometVisu client. It holds the requested addresses per item and collects the
+ * pending state updates, only the latest state of every address is kept until the next event is sent.
+ *
+ * @author agent
+ * @since 2.2.0
+ */
+class ClientSubscription {
+
+    private final EventOutput eventOutput;
+
+    private final Map<String, Map<String, Class<? extends State>>> addresses = new HashMap<String, Map<String, Class<? extends State>>>();
+
+    private final Map<String, StateBean> pendingStates = new LinkedHashMap<String, StateBean>();
+
+    /*
+     * the initial flush is scheduled by the creator, after the current states have been queued
+     */
+    private boolean flushScheduled = true;
+
+    private int droppedStates;
+
+    ClientSubscription(EventOutput eventOutput) {
+        this.eventOutput = eventOutput;
+    }
+
+    EventOutput getEventOutput() {
+        return eventOutput;
+    }
+
+    /**
+     * adds a CometVisu address, must only be called before the subscription is published
+     *
+     * @param itemName
+     *            - the name of the openHAB item
+     * @param cvItemName
+     *            - the address as requested by the client
+     * @param stateClass
+     *            - the state class the item state is converted to or null
+     */
+    void addAddress(String itemName, String cvItemName, Class<? extends State> stateClass) {
+        Map<String, Class<? extends State>> itemAddresses = addresses.get(itemName);
+        if (itemAddresses == null) {
+            itemAddresses = new HashMap<String, Class<? extends State>>();
+            addresses.put(itemName, itemAddresses);
+        }
+        itemAddresses.put(cvItemName, stateClass);
+    }
+
+    /**
+     * @return the names of all subscribed items
+     */
+    Set<String> getItemNames() {
+        return addresses.keySet();
+    }
+
+    /**
+     * @param itemName
+     *            - the name of the openHAB item
+     * @return the requested addresses and their state class for the item
+     */
+    Map<String, Class<? extends State>> getAddresses(String itemName) {
+        Map<String, Class<? extends State>> itemAddresses = addresses.get(itemName);
+        if (itemAddresses == null) {
+            return Collections.emptyMap();
+        }
+        return itemAddresses;
+    }
+
+    /**
+     * queues a state update, an older pending state of the same address is replaced
+     *
+     * @param stateBean
+     *            - the new state
+     * @return true, if a flush has to be scheduled
+     */
+    synchronized boolean offer(StateBean stateBean) {
+        if (pendingStates.put(stateBean.name, stateBean) != null) {
+            droppedStates++;
+        }
+        if (flushScheduled) {
+            return false;
+        }
+        flushScheduled = true;
+        return true;
+    }
+
+    /**
+     * @return all pending states, the queue is empty afterwards
+     */
+    synchronized List<StateBean> takePendingStates() {
+        List<StateBean> states = new ArrayList<StateBean>(pendingStates.values());
+        pendingStates.clear();
+        return states;
+    }
+
+    /**
+     * marks the running flush as finished
+     *
+     * @return true, if states have been queued during the flush and another flush has to be scheduled
+     */
+    synchronized boolean flushFinished() {
+        flushScheduled = !pendingStates.isEmpty();
+        return flushScheduled;
+    }
+
+    synchronized int getDroppedStates() {
+        return droppedStates;
+    }
+}
@@ -9,14 +9,16 @@
 package org.openhab.ui.cometvisu.backend;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -27,6 +29,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.UriInfo;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemFactory;
@@ -35,7 +38,6 @@ import org.eclipse.smarthome.core.items.ItemRegistry;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.io.rest.RESTResource;
 import org.glassfish.jersey.media.sse.EventOutput;
-import org.glassfish.jersey.media.sse.SseBroadcaster;
 import org.glassfish.jersey.media.sse.SseFeature;
 import org.openhab.ui.cometvisu.backend.beans.StateBean;
 import org.openhab.ui.cometvisu.internal.Config;
@@ -46,7 +48,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * handles read request from the CometVisu client every request initializes a
- * SSE communication
+ * SSE communication, each client only receives the states of the items it
+ * requested
  *
  * @author Tobias Bräutigam
  * @since 2.0.0
@@ -55,16 +58,18 @@ import org.slf4j.LoggerFactory;
 public class ReadResource implements EventBroadcaster, RESTResource {
     private final Logger logger = LoggerFactory.getLogger(ReadResource.class);
 
-    private SseBroadcaster broadcaster = new SseBroadcaster();
+    private static final String THREAD_POOL_NAME = "cometvisu";
 
-    private final ExecutorService executorService;
+    private final ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool(THREAD_POOL_NAME);
 
     private ItemRegistry itemRegistry;
 
     private StateEventListener stateEventListener;
 
-    private List<String> itemNames = new ArrayList<String>();
-    private Map<Item, Map<String, Class<? extends State>>> items = new HashMap<Item, Map<String, Class<? extends State>>>();
+    /**
+     * inverted index from item name to the subscriptions of all clients that requested the item
+     */
+    private final Map<String, Set<ClientSubscription>> subscriptionsByItemName = new ConcurrentHashMap<String, Set<ClientSubscription>>();
 
     @Context
     private UriInfo uriInfo;
@@ -78,7 +83,6 @@ public class ReadResource implements EventBroadcaster, RESTResource {
     private Collection<ItemFactory> itemFactories = new CopyOnWriteArrayList<ItemFactory>();
 
     public ReadResource() {
-        this.executorService = Executors.newSingleThreadExecutor();
         this.stateEventListener = new StateEventListener();
         this.stateEventListener.setEventBroadcaster(this);
     }
@@ -100,10 +104,11 @@ public class ReadResource implements EventBroadcaster, RESTResource {
     }
 
     /**
-     * Subscribes the connecting client to the stream of events filtered by the
-     * given eventFilter.
+     * Subscribes the connecting client to the state changes of the requested
+     * items.
      *
-     * @param eventFilter
+     * @param itemNames
+     *            - the addresses requested by the client
      * @return {@link EventOutput} object associated with the incoming
      *         connection.
      * @throws IOException
@@ -114,68 +119,106 @@ public class ReadResource implements EventBroadcaster, RESTResource {
     public Object getStates(@QueryParam("a") List<String> itemNames, @QueryParam("i") long index,
             @QueryParam("t") long time) throws IOException, InterruptedException {
         final EventOutput eventOutput = new EventOutput();
+        final ClientSubscription subscription = new ClientSubscription(eventOutput);
 
-        this.itemNames = itemNames;
-
-        broadcaster.add(eventOutput);
+        for (String cvItemName : itemNames) {
+            String[] parts = cvItemName.split(":");
+            String ohItemName = cvItemName;
+            Class<? extends State> stateClass = null;
+            if (parts.length == 2) {
+                String classPrefix = parts[0].toLowerCase();
+                if (Config.itemTypeMapper.containsKey(classPrefix)) {
+                    stateClass = Config.itemTypeMapper.get(classPrefix);
+                } else {
+                    logger.debug("no type found for '{}'", classPrefix);
+                }
+                ohItemName = parts[1];
+            }
+            subscription.addAddress(ohItemName, cvItemName, stateClass);
+        }
+        addSubscription(subscription);
 
-        // get all requested items and send their states to the client
-        items = new HashMap<Item, Map<String, Class<? extends State>>>();
-        // send the current states of all items to the client
+        // send the current states of all requested items to the client
         if (this.itemRegistry != null) {
-            List<StateBean> states = new ArrayList<StateBean>();
-            for (String cvItemName : itemNames) {
+            int count = 0;
+            for (String ohItemName : subscription.getItemNames()) {
                 try {
-                    String[] parts = cvItemName.split(":");
-                    String ohItemName = cvItemName;
-                    Class<? extends State> stateClass = null;
-                    if (parts.length == 2) {
-                        String classPrefix = parts[0].toLowerCase();
-                        if (Config.itemTypeMapper.containsKey(classPrefix)) {
-                            stateClass = Config.itemTypeMapper.get(classPrefix);
-                            classPrefix += ":";
-                        } else {
-                            logger.debug("no type found for '{}'", classPrefix);
-                            classPrefix = "";
-                        }
-                        ohItemName = parts[1];
-                    }
                     Item item = this.itemRegistry.getItem(ohItemName);
-                    if (!items.containsKey(item)) {
-                        items.put(item, new HashMap<String, Class<? extends State>>());
-                    }
-                    items.get(item).put(cvItemName, stateClass);
-                    StateBean itemState = new StateBean();
-                    itemState.name = cvItemName;
-
-                    if (stateClass != null) {
-                        itemState.state = item.getStateAs(stateClass).toString();
-                        logger.trace("get state of '{}' as '{}' == '{}'", item, stateClass, itemState.state);
-                    } else {
-                        itemState.state = item.getState().toString();
+                    for (Map.Entry<String, Class<? extends State>> address : subscription.getAddresses(ohItemName)
+                            .entrySet()) {
+                        StateBean itemState = createStateBean(item, address.getKey(), address.getValue());
+                        logger.trace("get state of '{}' as '{}' == '{}'", item, address.getValue(), itemState.state);
+                        subscription.offer(itemState);
+                        count++;
                     }
-                    states.add(itemState);
+                    registerItem(item);
                 } catch (ItemNotFoundException e) {
                     logger.error("{}", e.getLocalizedMessage());
                 }
             }
-            logger.debug("initially broadcasting {}/{} item states", states.size(), itemNames.size());
-            broadcaster.broadcast(SseUtil.buildEvent(states));
+            logger.debug("initially sending {}/{} item states", count, itemNames.size());
         }
-        // listen to state changes of the requested items
-        registerItems();
+        scheduleFlush(subscription, 0);
 
         return eventOutput;
     }
 
+    private StateBean createStateBean(Item item, String cvItemName, Class<? extends State> stateClass) {
+        StateBean stateBean = new StateBean();
+        stateBean.name = cvItemName;
+        if (stateClass != null) {
+            stateBean.state = item.getStateAs(stateClass).toString();
+        } else {
+            stateBean.state = item.getState().toString();
+        }
+        return stateBean;
+    }
+
+    private void addSubscription(ClientSubscription subscription) {
+        synchronized (subscriptionsByItemName) {
+            for (String itemName : subscription.getItemNames()) {
+                Set<ClientSubscription> subscriptions = subscriptionsByItemName.get(itemName);
+                if (subscriptions == null) {
+                    subscriptions = new CopyOnWriteArraySet<ClientSubscription>();
+                    subscriptionsByItemName.put(itemName, subscriptions);
+                }
+                subscriptions.add(subscription);
+            }
+        }
+    }
+
+    private void removeSubscription(ClientSubscription subscription) {
+        synchronized (subscriptionsByItemName) {
+            for (String itemName : subscription.getItemNames()) {
+                Set<ClientSubscription> subscriptions = subscriptionsByItemName.get(itemName);
+                if (subscriptions != null) {
+                    subscriptions.remove(subscription);
+                    if (subscriptions.isEmpty()) {
+                        subscriptionsByItemName.remove(itemName);
+                    }
+                }
+            }
+        }
+        logger.debug("client disconnected, {} outdated state updates have been skipped",
+                subscription.getDroppedStates());
+    }
+
     /**
      * listen for state changes from the requested items
      */
     @Override
     public void registerItems() {
-        for (Item item : items.keySet()) {
-            if (item instanceof GenericItem) {
-                ((GenericItem) item).addStateChangeListener(stateEventListener);
+        if (itemRegistry == null) {
+            return;
+        }
+        for (String itemName : subscriptionsByItemName.keySet()) {
+            try {
+                Item item = itemRegistry.getItem(itemName);
+                if (item instanceof GenericItem) {
+                    ((GenericItem) item).addStateChangeListener(stateEventListener);
+                }
+            } catch (ItemNotFoundException e) {
+                logger.debug("{}", e.getLocalizedMessage());
             }
         }
     }
@@ -189,7 +232,7 @@ public class ReadResource implements EventBroadcaster, RESTResource {
      */
     @Override
     public void registerItem(Item item) {
-        if (item == null || items.containsKey(item) || !itemNames.contains(item.getName())) {
+        if (item == null || !subscriptionsByItemName.containsKey(item.getName())) {
             return;
         }
         if (item instanceof GenericItem) {
@@ -198,45 +241,94 @@ public class ReadResource implements EventBroadcaster, RESTResource {
     }
 
     /**
-     * listens to state changes of the given item, if it is part of the
-     * requested items
+     * stops listening to state changes of the given item, the subscriptions
+     * are kept, so the item is listened to again when it is added again
      *
      * @param item
-     *            - the new item, that should be listened to
+     *            - the item, that should not be listened to anymore
      */
     @Override
     public void unregisterItem(Item item) {
-        if (item == null || items.containsKey(item) || !itemNames.contains(item.getName())) {
-            return;
-        }
         if (item instanceof GenericItem) {
             ((GenericItem) item).removeStateChangeListener(stateEventListener);
-            items.remove(item);
         }
     }
 
     /**
-     * Broadcasts an event described by the given parameters to all currently
-     * listening clients.
+     * Queues the state of the item for all clients that requested it. This
+     * is called from the event thread and never blocks on a client
+     * connection, slow clients only receive the latest state of an address.
      *
      * @param item
      *            - the item which has changed
-     * @param eventObject
-     *            - bean that can be converted to a JSON object.
+     * @param transformedOnly
+     *            - only send the state to addresses with a type transformation
      */
     @Override
-    public void broadcastEvent(final Object eventObject) {
-        executorService.execute(new Runnable() {
+    public void broadcastItemState(Item item, boolean transformedOnly) {
+        Set<ClientSubscription> subscriptions = subscriptionsByItemName.get(item.getName());
+        if (subscriptions == null) {
+            return;
+        }
+        Map<Class<? extends State>, String> states = new HashMap<Class<? extends State>, String>();
+        for (ClientSubscription subscription : subscriptions) {
+            for (Map.Entry<String, Class<? extends State>> address : subscription.getAddresses(item.getName())
+                    .entrySet()) {
+                Class<? extends State> stateClass = address.getValue();
+                if (transformedOnly && stateClass == null) {
+                    continue;
+                }
+                String state = states.get(stateClass);
+                if (state == null) {
+                    state = createStateBean(item, address.getKey(), stateClass).state;
+                    states.put(stateClass, state);
+                }
+                StateBean stateBean = new StateBean();
+                stateBean.name = address.getKey();
+                stateBean.state = state;
+                if (subscription.offer(stateBean)) {
+                    scheduleFlush(subscription, Config.COMETVISU_UPDATE_INTERVAL);
+                }
+            }
+        }
+    }
+
+    private void scheduleFlush(final ClientSubscription subscription, long delay) {
+        scheduler.schedule(new Runnable() {
 
             @Override
             public void run() {
-                broadcaster.broadcast(SseUtil.buildEvent(eventObject));
+                flush(subscription);
             }
-        });
+        }, delay, TimeUnit.MILLISECONDS);
     }
 
-    @Override
-    public Map<String, Class<? extends State>> getClientItems(Item item) {
-        return items.get(item);
+    /**
+     * sends all pending states of the client as one event
+     */
+    private void flush(ClientSubscription subscription) {
+        EventOutput eventOutput = subscription.getEventOutput();
+        List<StateBean> states = subscription.takePendingStates();
+        try {
+            if (eventOutput.isClosed()) {
+                removeSubscription(subscription);
+                return;
+            }
+            if (!states.isEmpty()) {
+                eventOutput.write(SseUtil.buildEvent(states));
+            }
+        } catch (IOException e) {
+            logger.debug("error sending states to client: {}", e.getMessage());
+            try {
+                eventOutput.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+            removeSubscription(subscription);
+            return;
+        }
+        if (subscription.flushFinished()) {
+            scheduleFlush(subscription, Config.COMETVISU_UPDATE_INTERVAL);
+        }
     }
 }
@@ -44,6 +44,21 @@ public class Config {
 
     public static String COMETVISU_WEBAPP_ALIAS = "/cometvisu";
 
+    public static final String COMETVISU_UPDATE_INTERVAL_PROPERTY = "updateInterval";
+
+    /*
+     * time in milliseconds during which state updates for one client are collected and sent as a single event,
+     * 0 sends every update immediately
+     */
+    public static long COMETVISU_UPDATE_INTERVAL = 100;
+
+    public static final String COMETVISU_CACHE_SIZE_PROPERTY = "cacheSize";
+
+    /*
+     * maximum size in MB of the in-memory cache for the static files of the CometVisu client, 0 disables the cache
+     */
+    public static int COMETVISU_CACHE_SIZE = 16;
+
     public static String COMETVISU_WEBAPP_USERFILE_FOLDER = File.separator + "cometvisu";
 
     /*
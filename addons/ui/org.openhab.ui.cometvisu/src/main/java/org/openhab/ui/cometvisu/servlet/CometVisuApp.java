@@ -171,6 +171,24 @@ public class CometVisuApp {
             if (properties.get(Config.COMETVISU_WEBAPP_ALIAS_PROPERTY) != null) {
                 Config.COMETVISU_WEBAPP_ALIAS = (String) properties.get(Config.COMETVISU_WEBAPP_ALIAS_PROPERTY);
             }
+            if (properties.get(Config.COMETVISU_UPDATE_INTERVAL_PROPERTY) != null) {
+                String updateInterval = properties.get(Config.COMETVISU_UPDATE_INTERVAL_PROPERTY).toString().trim();
+                try {
+                    Config.COMETVISU_UPDATE_INTERVAL = Math.max(0, Long.parseLong(updateInterval));
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid {} '{}', using {} ms", Config.COMETVISU_UPDATE_INTERVAL_PROPERTY,
+                            updateInterval, Config.COMETVISU_UPDATE_INTERVAL);
+                }
+            }
+            if (properties.get(Config.COMETVISU_CACHE_SIZE_PROPERTY) != null) {
+                String cacheSize = properties.get(Config.COMETVISU_CACHE_SIZE_PROPERTY).toString().trim();
+                try {
+                    Config.COMETVISU_CACHE_SIZE = Math.max(0, Integer.parseInt(cacheSize));
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid {} '{}', using {} MB", Config.COMETVISU_CACHE_SIZE_PROPERTY, cacheSize,
+                            Config.COMETVISU_CACHE_SIZE);
+                }
+            }
             for (String key : properties.keySet()) {
                 String[] parts = key.split(">");
                 String propKey = parts.length > 1 ? parts[1] : parts[0];
@@ -247,12 +265,14 @@ public class CometVisuApp {
             return;
         }
         if (configProps.containsKey(Config.COMETVISU_WEBFOLDER_PROPERTY)
-                || configProps.containsKey(Config.COMETVISU_WEBAPP_ALIAS_PROPERTY)) {
+                || configProps.containsKey(Config.COMETVISU_WEBAPP_ALIAS_PROPERTY)
+                || configProps.containsKey(Config.COMETVISU_CACHE_SIZE_PROPERTY)) {
             unregisterServlet();
         }
         readConfiguration(configProps);
         if (configProps.containsKey(Config.COMETVISU_WEBFOLDER_PROPERTY)
-                || configProps.containsKey(Config.COMETVISU_WEBAPP_ALIAS_PROPERTY)) {
+                || configProps.containsKey(Config.COMETVISU_WEBAPP_ALIAS_PROPERTY)
+                || configProps.containsKey(Config.COMETVISU_CACHE_SIZE_PROPERTY)) {
             registerServlet();
         }
     }
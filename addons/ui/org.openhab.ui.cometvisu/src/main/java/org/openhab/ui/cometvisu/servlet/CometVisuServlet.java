@@ -101,6 +101,8 @@ public class CometVisuServlet extends HttpServlet {
 
     private CometVisuApp cometVisuApp;
 
+    private final StaticAssetCache assetCache = new StaticAssetCache(Config.COMETVISU_CACHE_SIZE * 1024L * 1024L);
+
     public CometVisuServlet(String filesystemDir, CometVisuApp cometVisuApp) {
         root = filesystemDir;
         rootFolder = new File(root);
@@ -146,6 +148,7 @@ public class CometVisuServlet extends HttpServlet {
         super.init(config);
         _config = config;
         _servletContext = config.getServletContext();
+        assetCache.start(rootFolder, userFileFolder);
 
         // init php service if available
         if (this.engine != null) {
@@ -154,6 +157,12 @@ public class CometVisuServlet extends HttpServlet {
         }
     }
 
+    @Override
+    public void destroy() {
+        assetCache.stop();
+        super.destroy();
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -697,13 +706,16 @@ public class CometVisuServlet extends HttpServlet {
         // Send requested file (part(s)) to client
         // ------------------------------------------------
 
-        // Prepare streams.
+        // Prepare streams. Files held by the asset cache are served from memory.
+        StaticAssetCache.Asset asset = assetCache.get(file, contentType.startsWith("text"));
         RandomAccessFile input = null;
         OutputStream output = null;
 
         try {
             // Open streams.
-            input = new RandomAccessFile(file, "r");
+            if (asset == null) {
+                input = new RandomAccessFile(file, "r");
+            }
             output = response.getOutputStream();
 
             if (ranges.isEmpty() || ranges.get(0) == full) {
@@ -714,7 +726,13 @@ public class CometVisuServlet extends HttpServlet {
                 response.setHeader("Content-Range", "bytes " + r.start + "-" + r.end + "/" + r.total);
 
                 if (content) {
-                    if (acceptsGzip) {
+                    if (acceptsGzip && asset != null && asset.getGzipContent() != null) {
+                        // The browser accepts GZIP and the file has already been compressed.
+                        response.setHeader("Content-Encoding", "gzip");
+                        response.setHeader("Content-Length", String.valueOf(asset.getGzipContent().length));
+                        output.write(asset.getGzipContent());
+                        return;
+                    } else if (acceptsGzip) {
                         // The browser accepts GZIP, so GZIP the content.
                         response.setHeader("Content-Encoding", "gzip");
                         output = new GZIPOutputStream(output, DEFAULT_BUFFER_SIZE);
@@ -727,7 +745,7 @@ public class CometVisuServlet extends HttpServlet {
                     }
 
                     // Copy full range.
-                    copy(input, output, r.start, r.length);
+                    copy(asset, input, output, r.start, r.length);
                 }
 
             } else if (ranges.size() == 1) {
@@ -741,7 +759,7 @@ public class CometVisuServlet extends HttpServlet {
 
                 if (content) {
                     // Copy single part range.
-                    copy(input, output, r.start, r.length);
+                    copy(asset, input, output, r.start, r.length);
                 }
 
             } else {
@@ -765,7 +783,7 @@ public class CometVisuServlet extends HttpServlet {
                         sos.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
 
                         // Copy single part range of multi part range.
-                        copy(input, output, r.start, r.length);
+                        copy(asset, input, output, r.start, r.length);
                     }
 
                     // End with multipart boundary.
@@ -1003,6 +1021,32 @@ public class CometVisuServlet extends HttpServlet {
         return (substring.length() > 0) ? Long.parseLong(substring) : -1;
     }
 
+    /**
+     * Copy the given byte range of the cached file or, if it is not cached, of
+     * the given input to the given output.
+     *
+     * @param asset
+     *            The cached file or null.
+     * @param input
+     *            The input to copy from, if the file is not cached.
+     * @param output
+     *            The output to copy the given range to.
+     * @param start
+     *            Start of the byte range.
+     * @param length
+     *            Length of the byte range.
+     * @throws IOException
+     *             If something fails at I/O level.
+     */
+    private static void copy(StaticAssetCache.Asset asset, RandomAccessFile input, OutputStream output, long start,
+            long length) throws IOException {
+        if (asset != null) {
+            output.write(asset.getContent(), (int) start, (int) length);
+        } else {
+            copy(input, output, start, length);
+        }
+    }
+
     /**
      * Copy the given byte range of the given input to the given output.
      *
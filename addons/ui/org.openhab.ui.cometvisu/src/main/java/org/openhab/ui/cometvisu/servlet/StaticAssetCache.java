@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.servlet;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LRU cache for the static files of the CometVisu client, which holds the content and the gzipped content of
+ * text files in memory. The size of the cache is bounded, changes in the watched folders evict the affected entries.
+ *
+ * @author agent
+ * @since 2.2.0
+ */
+class StaticAssetCache {
+    private final Logger logger = LoggerFactory.getLogger(StaticAssetCache.class);
+
+    private final long maxSize;
+    private final long maxAssetSize;
+
+    private final Map<String, Asset> assets = new LinkedHashMap<String, Asset>(64, 0.75f, true);
+    private long size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private WatchService watchService;
+
+    /**
+     * @param maxSize
+     *            - the maximum number of bytes held by the cache, 0 disables the cache
+     */
+    StaticAssetCache(long maxSize) {
+        this.maxSize = maxSize;
+        this.maxAssetSize = maxSize / 4;
+    }
+
+    /**
+     * Starts watching the given folders and their sub folders for changes.
+     */
+    void start(File... folders) {
+        if (maxSize <= 0) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (File folder : folders) {
+                if (folder.isDirectory()) {
+                    registerAll(folder.toPath());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Can't watch the CometVisu folders, static file cache disabled: {}", e.getMessage());
+            stop();
+            return;
+        }
+        Thread watchThread = new Thread("CometVisu static file watcher") {
+            @Override
+            public void run() {
+                processEvents();
+            }
+        };
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Stops watching the folders and clears the cache.
+     */
+    void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            watchService = null;
+        }
+        synchronized (this) {
+            logger.debug("Static file cache: {} hits, {} misses, {} evictions, {} bytes", hits, misses, evictions,
+                    size);
+            assets.clear();
+            size = 0;
+        }
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void processEvents() {
+        WatchService service = watchService;
+        while (service != null) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    invalidateAll();
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                invalidate(child.toFile().getAbsolutePath());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                    try {
+                        registerAll(child);
+                    } catch (IOException | ClosedWatchServiceException e) {
+                        logger.debug("Can't watch folder {}: {}", child, e.getMessage());
+                    }
+                }
+            }
+            if (!key.reset()) {
+                invalidate(dir.toFile().getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Returns the cached file, reads it if it is not cached yet or has changed. Returns null, if the file is too big
+     * for the cache or can't be read.
+     *
+     * @param file
+     *            - the requested file
+     * @param compress
+     *            - true, if a gzipped copy should be held in the cache
+     */
+    Asset get(File file, boolean compress) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            Asset asset = assets.get(path);
+            if (asset != null && asset.length == length && asset.lastModified == lastModified) {
+                hits++;
+                return asset;
+            }
+            misses++;
+        }
+        if (length > maxAssetSize) {
+            return null;
+        }
+
+        Asset asset;
+        try {
+            asset = new Asset(length, lastModified, Files.readAllBytes(file.toPath()), compress);
+        } catch (IOException e) {
+            logger.debug("Can't read {}: {}", file, e.getMessage());
+            return null;
+        }
+        if (asset.content.length != length || file.lastModified() != lastModified) {
+            // file has been changed while reading it
+            return null;
+        }
+        put(path, asset);
+        return asset;
+    }
+
+    private synchronized void put(String path, Asset asset) {
+        Asset old = assets.put(path, asset);
+        if (old != null) {
+            size -= old.getSize();
+        }
+        size += asset.getSize();
+        Iterator<Asset> iterator = assets.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Asset eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getSize();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes the given file or all files below the given folder from the cache.
+     */
+    private synchronized void invalidate(String path) {
+        String folderPrefix = path + File.separator;
+        Iterator<Map.Entry<String, Asset>> iterator = assets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Asset> entry = iterator.next();
+            if (entry.getKey().equals(path) || entry.getKey().startsWith(folderPrefix)) {
+                iterator.remove();
+                size -= entry.getValue().getSize();
+                logger.trace("Removed {} from the static file cache", entry.getKey());
+            }
+        }
+    }
+
+    private synchronized void invalidateAll() {
+        assets.clear();
+        size = 0;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * A cached file.
+     */
+    static class Asset {
+        private final long length;
+        private final long lastModified;
+        private final byte[] content;
+        private final byte[] gzipContent;
+
+        private Asset(long length, long lastModified, byte[] content, boolean compress) throws IOException {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.content = content;
+            this.gzipContent = compress ? gzip(content) : null;
+        }
+
+        private static byte[] gzip(byte[] content) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, content.length / 3));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+                gzip.write(content);
+            }
+            return bos.toByteArray();
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * @return the gzipped content or null, if the file is not compressed
+         */
+        byte[] getGzipContent() {
+            return gzipContent;
+        }
+
+        private long getSize() {
+            return content.length + (gzipContent != null ? gzipContent.length : 0);
+        }
+    }
+}